@@ -5,6 +5,7 @@ import org.netcrusher.core.meter.RateMeters;
 import java.io.Closeable;
 import java.net.InetSocketAddress;
 import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
 
 public interface NetCrusher extends NetFreezer, Closeable {
 
@@ -65,6 +66,16 @@ public interface NetCrusher extends NetFreezer, Closeable {
      */
     RateMeters getClientByteMeters(InetSocketAddress clientAddress);
 
+    /**
+     * Get byte statistics for the specified client address without waiting for the reactor.
+     * The default implementation waits for the statistics and returns a completed future
+     * @param clientAddress Client address
+     * @return Future of statistic for the specified client address or null if such client is not found
+     */
+    default CompletableFuture<RateMeters> getClientByteMetersAsync(InetSocketAddress clientAddress) {
+        return CompletableFuture.completedFuture(getClientByteMeters(clientAddress));
+    }
+
     /**
      * Close facilities for the specified client
      * @param clientAddress Client address
@@ -72,6 +83,32 @@ public interface NetCrusher extends NetFreezer, Closeable {
      */
     boolean closeClient(InetSocketAddress clientAddress);
 
+    /**
+     * Close facilities for the specified client without waiting for the reactor.
+     * The default implementation closes the client and returns a completed future
+     * @param clientAddress Client address
+     * @return Future of true if client is closed, false if client is not found
+     */
+    default CompletableFuture<Boolean> closeClientAsync(InetSocketAddress clientAddress) {
+        return CompletableFuture.completedFuture(closeClient(clientAddress));
+    }
+
+    /**
+     * Close facilities for the specified clients with one round-trip per event loop.
+     * The default implementation closes clients one by one
+     * @param clientAddresses Client addresses
+     * @return Return the number of closed clients
+     */
+    default int closeClients(Collection<InetSocketAddress> clientAddresses) {
+        int closed = 0;
+        for (InetSocketAddress clientAddress : clientAddresses) {
+            if (closeClient(clientAddress)) {
+                closed++;
+            }
+        }
+        return closed;
+    }
+
     /**
      * Get the total number of registered client since last crusher opening
      * @return Total number of clients
@@ -18,12 +18,18 @@ public class BufferOptions implements Serializable {
 
     private boolean direct;
 
+    private long trimIdleNs;
+
+    private boolean leakDetection;
+
     public BufferOptions copy() {
         BufferOptions copy = new BufferOptions();
 
         copy.count = this.count;
         copy.size = this.size;
         copy.direct = this.direct;
+        copy.trimIdleNs = this.trimIdleNs;
+        copy.leakDetection = this.leakDetection;
 
         return copy;
     }
@@ -52,6 +58,22 @@ public class BufferOptions implements Serializable {
         this.direct = direct;
     }
 
+    public long getTrimIdleNs() {
+        return trimIdleNs;
+    }
+
+    public void setTrimIdleNs(long trimIdleNs) {
+        this.trimIdleNs = trimIdleNs;
+    }
+
+    public boolean isLeakDetection() {
+        return leakDetection;
+    }
+
+    public void setLeakDetection(boolean leakDetection) {
+        this.leakDetection = leakDetection;
+    }
+
     public void checkTcpSocket(Socket socket) throws SocketException {
         final long sizeTotal = count * size;
 
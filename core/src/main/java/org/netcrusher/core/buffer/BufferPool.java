@@ -0,0 +1,450 @@
+package org.netcrusher.core.buffer;
+
+import org.netcrusher.core.nio.NioUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared pool of equally sized buffers. Buffers are sliced from large slabs which are allocated on demand.
+ * Buffers are taken from the lowest slabs first, so upper slabs drain when the load goes down, and a slab
+ * which has got all its buffers back is freed as soon as the pool keeps another slab of spare buffers.
+ * Each thread keeps a few buffers in its own cache in front of the shared part, so event loops don't contend
+ * on the pool lock for every buffer. A cache of a thread which has terminated (e.g. a loop of a closed reactor)
+ * is dropped and its buffers are returned to the shared part. With leak detection enabled thread caches are
+ * not used and the pool remembers where each buffer has been taken and reports buffers which are not returned.
+ */
+public class BufferPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BufferPool.class);
+
+    private static final int SLAB_SIZE = 1024 * 1024;
+
+    private static final int LEAK_REPORT_LIMIT = 10;
+
+    private static final int LOCAL_CACHE_SIZE = 16;
+
+    // buffers are moved between a thread cache and the shared part in batches
+    private static final int LOCAL_CACHE_BATCH = LOCAL_CACHE_SIZE / 2;
+
+    private final BufferOptions options;
+
+    private final MemoryBudget budget;
+
+    private final int slabBufferCount;
+
+    private final Map<ByteBuffer, Throwable> acquisitions;
+
+    private final ThreadLocal<LocalCache> localCache;
+
+    private final List<LocalCache> localCaches;
+
+    private final List<Slab> slabs;
+
+    private final BitSet slabsWithAvailable;
+
+    private final Map<ByteBuffer, Slab> owners;
+
+    private int availableCount;
+
+    private long allocatedCount;
+
+    private long acquiredCount;
+
+    private long acquiredPeak;
+
+    public BufferPool(BufferOptions options) {
+        this(options, new MemoryBudget(0));
+    }
+
+    public BufferPool(BufferOptions options, MemoryBudget budget) {
+        this.options = options.copy();
+        this.budget = budget;
+        this.slabBufferCount = Math.max(1, SLAB_SIZE / options.getSize());
+
+        this.slabs = new ArrayList<>();
+        this.slabsWithAvailable = new BitSet();
+        this.owners = new IdentityHashMap<>();
+        this.localCaches = new ArrayList<>();
+
+        if (options.isLeakDetection()) {
+            this.acquisitions = new IdentityHashMap<>();
+            this.localCache = null;
+        } else {
+            this.acquisitions = null;
+            this.localCache = ThreadLocal.withInitial(this::createLocalCache);
+        }
+    }
+
+    /**
+     * Take a buffer from the pool. Allocates a new slab if there is no available buffer
+     * @return Cleared buffer or null if the memory budget is exhausted
+     */
+    public ByteBuffer acquire() {
+        if (!budget.tryAcquire(options.getSize())) {
+            return null;
+        }
+
+        if (localCache == null) {
+            synchronized (this) {
+                ByteBuffer bb = take();
+                countAcquired(1);
+                acquisitions.put(bb, new Throwable("Buffer is acquired here"));
+                return bb;
+            }
+        }
+
+        final LocalCache cache = localCache.get();
+        if (cache.isEmpty()) {
+            synchronized (this) {
+                for (int i = 0; i < LOCAL_CACHE_BATCH; i++) {
+                    cache.push(take());
+                }
+                countAcquired(LOCAL_CACHE_BATCH);
+            }
+        }
+
+        return cache.pop();
+    }
+
+    /**
+     * Return the buffer to the pool. The buffer must not be used after that
+     * @param bb Buffer taken with acquire()
+     */
+    public void release(ByteBuffer bb) {
+        bb.clear();
+
+        if (localCache == null) {
+            synchronized (this) {
+                if (acquisitions.remove(bb) == null) {
+                    throw new IllegalStateException("Buffer is released twice or is not from this pool");
+                }
+
+                put(bb);
+                acquiredCount--;
+            }
+        } else {
+            final LocalCache cache = localCache.get();
+            if (cache.isFull()) {
+                synchronized (this) {
+                    for (int i = 0; i < LOCAL_CACHE_BATCH; i++) {
+                        put(cache.pop());
+                    }
+                    acquiredCount -= LOCAL_CACHE_BATCH;
+                }
+            }
+
+            cache.push(bb);
+        }
+
+        // waiters are woken up outside of the lock
+        budget.release(options.getSize());
+    }
+
+    /**
+     * Return buffers cached by the calling thread and by threads which have terminated to the shared part,
+     * so slabs which have got all their buffers back are freed. Should be called by event loops periodically
+     * when they are idle and when they stop using the pool
+     */
+    public void trim() {
+        if (localCache == null) {
+            return;
+        }
+
+        final LocalCache cache = localCache.get();
+        synchronized (this) {
+            flush(cache);
+            dropDeadCaches();
+        }
+    }
+
+    /**
+     * Wait until some memory is returned to the budget
+     * @param waiter Callback which is called once from the thread which has released memory
+     */
+    public void awaitRelease(Runnable waiter) {
+        budget.await(waiter);
+    }
+
+    /**
+     * Report buffers which are still taken from the pool. Should be called when all consumers of the pool
+     * are closed, so every buffer is expected to be returned
+     * @return Count of buffers which are not returned
+     */
+    public synchronized long checkLeaks() {
+        dropDeadCaches();
+
+        final long leakedCount = acquiredCount - getCachedCount();
+
+        if (leakedCount > 0) {
+            LOGGER.warn("{} buffers ({} bytes) are not returned to the pool",
+                leakedCount, leakedCount * options.getSize());
+
+            if (acquisitions != null) {
+                acquisitions.values().stream()
+                    .limit(LEAK_REPORT_LIMIT)
+                    .forEach((trace) -> LOGGER.warn("Leaked buffer", trace));
+            }
+        }
+
+        return leakedCount;
+    }
+
+    /**
+     * Check if anybody waits for memory to be released
+     * @return True if there are stalled channels
+     */
+    public boolean hasWaiters() {
+        return budget.getStalledCount() > 0;
+    }
+
+    private void countAcquired(int count) {
+        acquiredCount += count;
+        acquiredPeak = Math.max(acquiredPeak, acquiredCount);
+    }
+
+    private ByteBuffer take() {
+        int index = slabsWithAvailable.nextSetBit(0);
+        if (index < 0) {
+            index = allocateSlab();
+        }
+
+        final Slab slab = slabs.get(index);
+        final ByteBuffer bb = slab.pop();
+        if (slab.isEmpty()) {
+            slabsWithAvailable.clear(index);
+        }
+
+        availableCount--;
+
+        return bb;
+    }
+
+    private void put(ByteBuffer bb) {
+        final Slab slab = owners.get(bb);
+        if (slab == null) {
+            throw new IllegalStateException("Buffer is not from this pool");
+        }
+
+        slab.push(bb);
+        slabsWithAvailable.set(slab.index);
+        availableCount++;
+
+        // one slab of spare buffers is kept so the pool doesn't allocate and free a slab over and over
+        if (slab.isFull() && availableCount - slabBufferCount >= slabBufferCount) {
+            freeSlab(slab);
+        }
+    }
+
+    private int allocateSlab() {
+        final int size = options.getSize();
+
+        int index = slabs.indexOf(null);
+        if (index < 0) {
+            index = slabs.size();
+            slabs.add(null);
+        }
+
+        final ByteBuffer memory = NioUtils.allocaleByteBuffer(slabBufferCount * size, options.isDirect());
+        final Slab slab = new Slab(index, slabBufferCount);
+
+        for (int i = 0; i < slabBufferCount; i++) {
+            memory.limit((i + 1) * size);
+            memory.position(i * size);
+
+            ByteBuffer bb = memory.slice();
+            slab.push(bb);
+            owners.put(bb, slab);
+        }
+
+        slabs.set(index, slab);
+        slabsWithAvailable.set(index);
+
+        availableCount += slabBufferCount;
+        allocatedCount += slabBufferCount;
+
+        return index;
+    }
+
+    private void freeSlab(Slab slab) {
+        // the memory is reclaimed by GC as nothing refers to slices of the slab anymore
+        while (!slab.isEmpty()) {
+            owners.remove(slab.pop());
+        }
+
+        slabs.set(slab.index, null);
+        slabsWithAvailable.clear(slab.index);
+
+        availableCount -= slabBufferCount;
+        allocatedCount -= slabBufferCount;
+    }
+
+    private LocalCache createLocalCache() {
+        final LocalCache cache = new LocalCache(Thread.currentThread());
+
+        synchronized (this) {
+            dropDeadCaches();
+            localCaches.add(cache);
+        }
+
+        return cache;
+    }
+
+    private void flush(LocalCache cache) {
+        final int count = cache.size();
+        while (!cache.isEmpty()) {
+            put(cache.pop());
+        }
+        acquiredCount -= count;
+    }
+
+    private void dropDeadCaches() {
+        final Iterator<LocalCache> iterator = localCaches.iterator();
+        while (iterator.hasNext()) {
+            final LocalCache cache = iterator.next();
+
+            // the termination of the owner happens-before isAlive() returns false, so the cache is safe to read
+            if (!cache.owner.isAlive()) {
+                flush(cache);
+                iterator.remove();
+            }
+        }
+    }
+
+    private long getCachedCount() {
+        long count = 0;
+        for (LocalCache cache : localCaches) {
+            count += cache.size();
+        }
+
+        return count;
+    }
+
+    /**
+     * Get the memory budget the pool takes memory from
+     * @return Memory budget
+     */
+    public MemoryBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Get buffer options of the pool
+     * @return Buffer options
+     */
+    public BufferOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Get total size of slabs the pool holds now. Freed slabs are not counted
+     * @return Allocated bytes
+     */
+    public synchronized long getAllocatedBytes() {
+        return allocatedCount * options.getSize();
+    }
+
+    /**
+     * Get total size of buffers currently taken from the pool
+     * @return Acquired bytes
+     */
+    public synchronized long getAcquiredBytes() {
+        dropDeadCaches();
+
+        return (acquiredCount - getCachedCount()) * options.getSize();
+    }
+
+    /**
+     * Get the peak of total size of buffers taken from the shared part of the pool. Buffers which have been
+     * kept by thread caches are counted as well
+     * @return Peak of acquired bytes
+     */
+    public synchronized long getAcquiredPeakBytes() {
+        return acquiredPeak * options.getSize();
+    }
+
+    private static final class Slab {
+
+        private final int index;
+
+        private final ByteBuffer[] available;
+
+        private int availableCount;
+
+        private Slab(int index, int bufferCount) {
+            this.index = index;
+            this.available = new ByteBuffer[bufferCount];
+            this.availableCount = 0;
+        }
+
+        private void push(ByteBuffer bb) {
+            available[availableCount++] = bb;
+        }
+
+        private ByteBuffer pop() {
+            ByteBuffer bb = available[--availableCount];
+            available[availableCount] = null;
+            return bb;
+        }
+
+        private boolean isEmpty() {
+            return availableCount == 0;
+        }
+
+        private boolean isFull() {
+            return availableCount == available.length;
+        }
+    }
+
+    /**
+     * Buffers which are kept by a thread. Only the owner thread changes the cache while it's alive, the size
+     * is volatile so any thread could read it for statistics
+     */
+    private static final class LocalCache {
+
+        private final Thread owner;
+
+        private final ByteBuffer[] buffers;
+
+        private volatile int size;
+
+        private LocalCache(Thread owner) {
+            this.owner = owner;
+            this.buffers = new ByteBuffer[LOCAL_CACHE_SIZE];
+            this.size = 0;
+        }
+
+        private void push(ByteBuffer bb) {
+            buffers[size] = bb;
+            size = size + 1;
+        }
+
+        private ByteBuffer pop() {
+            final int index = size - 1;
+            final ByteBuffer bb = buffers[index];
+            buffers[index] = null;
+            size = index;
+            return bb;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private boolean isFull() {
+            return size == buffers.length;
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+package org.netcrusher.core.buffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Global limit of memory taken by buffer queues of all crushers sharing the same reactor. When the budget
+ * is exhausted TCP channels stop reading until some memory is released and datagrams are dropped.
+ * The budget is thread-safe.
+ */
+public class MemoryBudget {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MemoryBudget.class);
+
+    private final long limit;
+
+    private final AtomicLong used;
+
+    private final AtomicLong peak;
+
+    private final AtomicInteger stalled;
+
+    private final LongAdder droppedCount;
+
+    private final LongAdder droppedBytes;
+
+    private final Queue<Runnable> waiters;
+
+    /**
+     * Create a budget
+     * @param limit Limit in bytes or 0 if not limited (memory usage is still tracked)
+     */
+    public MemoryBudget(long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Memory budget must not be negative");
+        }
+
+        this.limit = limit;
+        this.used = new AtomicLong(0);
+        this.peak = new AtomicLong(0);
+        this.stalled = new AtomicInteger(0);
+        this.droppedCount = new LongAdder();
+        this.droppedBytes = new LongAdder();
+        this.waiters = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Take memory from the budget
+     * @param bytes Size in bytes
+     * @return False if the budget is exhausted
+     */
+    public boolean tryAcquire(long bytes) {
+        while (true) {
+            final long current = used.get();
+            final long next = current + bytes;
+
+            if (limit > 0 && next > limit) {
+                return false;
+            }
+
+            if (used.compareAndSet(current, next)) {
+                peak.accumulateAndGet(next, Math::max);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Return memory to the budget and wake up all waiters
+     * @param bytes Size in bytes
+     */
+    public void release(long bytes) {
+        used.addAndGet(-bytes);
+
+        if (!waiters.isEmpty()) {
+            wakeUp();
+        }
+    }
+
+    /**
+     * Wait for memory to be released. The waiter is called once in the thread which releases memory
+     * so it should only hand the work over to its own thread
+     * @param waiter Callback
+     */
+    public void await(Runnable waiter) {
+        stalled.incrementAndGet();
+        waiters.add(waiter);
+
+        // memory could be released before the waiter was added
+        if (limit == 0 || used.get() < limit) {
+            wakeUp();
+        }
+    }
+
+    private void wakeUp() {
+        Runnable waiter;
+        while ((waiter = waiters.poll()) != null) {
+            stalled.decrementAndGet();
+            try {
+                waiter.run();
+            } catch (RuntimeException e) {
+                // e.g. the loop of the waiting channel is already closed
+                LOGGER.debug("Memory waiter has failed", e);
+            }
+        }
+    }
+
+    /**
+     * Account a datagram dropped because the budget is exhausted
+     * @param bytes Size of the datagram
+     */
+    public void drop(long bytes) {
+        droppedCount.increment();
+        droppedBytes.add(bytes);
+    }
+
+    /**
+     * Get the limit
+     * @return Limit in bytes or 0 if not limited
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Get memory currently taken from the budget
+     * @return Size in bytes
+     */
+    public long getUsedBytes() {
+        return used.get();
+    }
+
+    /**
+     * Get the peak of memory taken from the budget
+     * @return Size in bytes
+     */
+    public long getPeakBytes() {
+        return peak.get();
+    }
+
+    /**
+     * Get count of channels which don't read as they wait for memory
+     * @return Count of channels
+     */
+    public int getStalledCount() {
+        return stalled.get();
+    }
+
+    /**
+     * Get count of datagrams dropped because the budget is exhausted
+     * @return Count of datagrams
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * Get total size of datagrams dropped because the budget is exhausted
+     * @return Size in bytes
+     */
+    public long getDroppedBytes() {
+        return droppedBytes.sum();
+    }
+}
@@ -22,6 +22,9 @@ public abstract class AbstractCrusherMain<T extends NetCrusher> {
     private static final int ERR_EXIT_CODE_INVALID_ADDRESS = 2;
     private static final int ERR_EXIT_INITIALIZATION = 3;
 
+    // command line crushers keep the periodic wakeup they always had
+    private static final int DEFAULT_TICK_MS = 10;
+
     private static final String CMD_OPEN = "OPEN";
     private static final String CMD_CLOSE = "CLOSE";
     private static final String CMD_REOPEN = "REOPEN";
@@ -56,7 +59,7 @@ public abstract class AbstractCrusherMain<T extends NetCrusher> {
             return ERR_EXIT_CODE_INVALID_ADDRESS;
         }
 
-        final long tickMs = Integer.getInteger("crusher.tick", 10);
+        final long tickMs = Integer.getInteger("crusher.tick", DEFAULT_TICK_MS);
         LOGGER.debug("Reactor tick = {} ms", tickMs);
 
         return run(bindAddress, connectAddress, tickMs);
@@ -0,0 +1,19 @@
+package org.netcrusher.core.meter;
+
+/**
+ * Distribution of recorded values (durations, counts) from the moment of creation
+ */
+public interface Histogram {
+
+    /**
+     * Request count of recorded values
+     * @return Number of values for all time
+     */
+    long getCount();
+
+    /**
+     * Take a snapshot of the distribution. Doesn't block the thread which records values
+     * @return Immutable snapshot
+     */
+    HistogramSnapshot getSnapshot();
+}
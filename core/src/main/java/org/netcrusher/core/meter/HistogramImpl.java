@@ -0,0 +1,101 @@
+package org.netcrusher.core.meter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram: each power of two is split into 8 linear buckets, so a value is reported with
+ * the relative error of 12.5% at most. Recording is wait-free and garbage-free but there must be only one
+ * writer thread (e.g. selector's thread). Any thread may take a snapshot at any time.
+ */
+public class HistogramImpl implements Histogram {
+
+    static final int SUB_BUCKET_BITS = 3;
+
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets;
+
+    private final AtomicLong count;
+
+    private final AtomicLong sum;
+
+    private final AtomicLong max;
+
+    public HistogramImpl() {
+        this.buckets = new AtomicLongArray(BUCKET_COUNT);
+        this.count = new AtomicLong(0);
+        this.sum = new AtomicLong(0);
+        this.max = new AtomicLong(0);
+    }
+
+    /**
+     * Records a value. Must be called from the same thread all the time
+     * @param value Value to record. Negative values are recorded as zero
+     */
+    public void record(long value) {
+        final long positive = Math.max(0, value);
+        final int index = bucketIndex(positive);
+
+        // single writer: ordered stores are enough and much cheaper than CAS
+        buckets.lazySet(index, buckets.get(index) + 1);
+        sum.lazySet(sum.get() + positive);
+        if (positive > max.get()) {
+            max.lazySet(positive);
+        }
+        count.lazySet(count.get() + 1);
+    }
+
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    @Override
+    public HistogramSnapshot getSnapshot() {
+        final long[] copy = new long[BUCKET_COUNT];
+
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = buckets.get(i);
+            total += copy[i];
+        }
+
+        // the writer may go on while copying, so the count is taken from the copied buckets
+        return new HistogramSnapshot(copy, total, sum.get(), max.get());
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        final int shift = index / SUB_BUCKET_COUNT - 1;
+        final int subBucket = index % SUB_BUCKET_COUNT;
+
+        return (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index + 1 >= BUCKET_COUNT) {
+            return Long.MAX_VALUE;
+        }
+
+        return bucketLowerBound(index + 1) - 1;
+    }
+
+}
@@ -0,0 +1,117 @@
+package org.netcrusher.core.meter;
+
+import java.io.Serializable;
+
+/**
+ * Immutable snapshot of a histogram
+ */
+public class HistogramSnapshot implements Serializable {
+
+    private static final double PERCENTILE_MAX = 100.0;
+
+    private static final double PERCENTILE_MEDIAN = 50.0;
+
+    private static final double PERCENTILE_TAIL = 99.0;
+
+    private static final double PERCENTILE_FAR_TAIL = 99.9;
+
+    private final long[] buckets;
+
+    private final long count;
+
+    private final long sum;
+
+    private final long max;
+
+    HistogramSnapshot(long[] buckets, long count, long sum, long max) {
+        this.buckets = buckets;
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    /**
+     * Get count of recorded values
+     * @return Counter
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get sum of recorded values
+     * @return Sum
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Get the largest recorded value
+     * @return Maximum or zero if nothing is recorded
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Get the average of recorded values
+     * @return Mean or NaN if nothing is recorded
+     */
+    public double getMean() {
+        if (count > 0) {
+            return 1.0 * sum / count;
+        } else {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Get the value at the specified percentile. The value is an upper bound of the bucket so it could be
+     * greater than the real one by 12.5% at most
+     * @param percentile Percentile from 0.0 to 100.0
+     * @return Value or zero if nothing is recorded
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > PERCENTILE_MAX) {
+            throw new IllegalArgumentException("Percentile must be in range 0..100");
+        }
+
+        if (count == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / PERCENTILE_MAX * count));
+
+        long accumulated = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            accumulated += buckets[i];
+            if (accumulated >= rank) {
+                return Math.min(max, HistogramImpl.bucketUpperBound(i));
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Get the distribution of values recorded after the previous snapshot was taken
+     * @param previous Previous snapshot of the same histogram
+     * @return Snapshot of the difference (maximum is not windowed and is taken from this snapshot)
+     */
+    public HistogramSnapshot since(HistogramSnapshot previous) {
+        final long[] difference = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            difference[i] = buckets[i] - previous.buckets[i];
+        }
+
+        return new HistogramSnapshot(difference, count - previous.count, sum - previous.sum, max);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.1f, p50=%d, p99=%d, p99.9=%d, max=%d",
+            count, getMean(), getPercentile(PERCENTILE_MEDIAN), getPercentile(PERCENTILE_TAIL),
+            getPercentile(PERCENTILE_FAR_TAIL), max);
+    }
+}
@@ -0,0 +1,39 @@
+package org.netcrusher.core.meter;
+
+import java.io.Serializable;
+
+/**
+ * Immutable copy of a rate meter: total and period statistics taken at the same moment
+ */
+public class RateMeterSnapshot implements Serializable {
+
+    private final RateMeterPeriod total;
+
+    private final RateMeterPeriod period;
+
+    public RateMeterSnapshot(RateMeter meter, boolean resetPeriod) {
+        this.total = meter.getTotal();
+        this.period = meter.getPeriod(resetPeriod);
+    }
+
+    /**
+     * Get total count and elapsed time
+     * @return Total statistics
+     */
+    public RateMeterPeriod getTotal() {
+        return total;
+    }
+
+    /**
+     * Get count and elapsed time from the last period reset
+     * @return Period statistics
+     */
+    public RateMeterPeriod getPeriod() {
+        return period;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("total: %s, period: %s", total, period);
+    }
+}
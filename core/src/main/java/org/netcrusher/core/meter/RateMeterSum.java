@@ -0,0 +1,97 @@
+package org.netcrusher.core.meter;
+
+import org.netcrusher.core.chronometer.Chronometer;
+import org.netcrusher.core.chronometer.SystemChronometer;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Meter which sums other meters on demand. Each source is updated by its own thread, so threads don't
+ * contend on a shared counter. Totals of removed sources are kept by the meter. The period is taken
+ * from the totals, so periods of sources are not reset
+ */
+public class RateMeterSum implements RateMeter {
+
+    private final Chronometer chronometer;
+
+    private final long createdMs;
+
+    private final Set<RateMeter> meters;
+
+    private final AtomicLong removedCount;
+
+    private long periodMarkerNs;
+
+    private long periodMarkerCount;
+
+    public RateMeterSum(Chronometer chronometer) {
+        this.chronometer = chronometer;
+        this.createdMs = chronometer.getEpochMs();
+        this.meters = ConcurrentHashMap.newKeySet();
+        this.removedCount = new AtomicLong(0);
+        this.periodMarkerNs = chronometer.getTickNs();
+        this.periodMarkerCount = 0;
+    }
+
+    public RateMeterSum() {
+        this(SystemChronometer.INSTANCE);
+    }
+
+    /**
+     * Start summing the meter
+     * @param meter Source meter
+     */
+    public void add(RateMeter meter) {
+        meters.add(meter);
+    }
+
+    /**
+     * Stop following the meter. Its total stays counted
+     * @param meter Source meter passed to add()
+     */
+    public void remove(RateMeter meter) {
+        if (meters.remove(meter)) {
+            removedCount.addAndGet(meter.getTotalCount());
+        }
+    }
+
+    @Override
+    public long getTotalCount() {
+        long count = removedCount.get();
+        for (RateMeter meter : meters) {
+            count += meter.getTotalCount();
+        }
+
+        return count;
+    }
+
+    @Override
+    public long getTotalElapsedMs() {
+        return Math.max(0, chronometer.getEpochMs() - createdMs);
+    }
+
+    @Override
+    public RateMeterPeriod getTotal() {
+        return new RateMeterPeriod(getTotalCount(), getTotalElapsedMs());
+    }
+
+    @Override
+    public synchronized RateMeterPeriod getPeriod(boolean reset) {
+        final long nowNs = chronometer.getTickNs();
+        final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(Math.max(0, nowNs - periodMarkerNs));
+
+        final long totalCount = getTotalCount();
+        final long count = Math.max(0, totalCount - periodMarkerCount);
+
+        if (reset) {
+            periodMarkerNs = nowNs;
+            periodMarkerCount = Math.max(periodMarkerCount, totalCount);
+        }
+
+        return new RateMeterPeriod(count, elapsedMs);
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.netcrusher.core.nio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileDescriptor;
+import java.lang.reflect.Method;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.NetworkChannel;
+
+/**
+ * Enables SO_REUSEPORT on a socket before it's bound. Java 9+ has the standard option, on Java 8 the option
+ * is set through JDK internals on Linux only. Both ways rely on reflection and fail silently, so the caller
+ * should fall back to a single socket.
+ */
+public final class NioReusePort {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NioReusePort.class);
+
+    private static final int LINUX_SOL_SOCKET = 1;
+
+    private static final int LINUX_SO_REUSEPORT = 15;
+
+    private static final SocketOption<Boolean> STANDARD_OPTION = lookupStandardOption();
+
+    private static final Method SET_INT_OPTION = lookupSetIntOption();
+
+    private NioReusePort() {
+    }
+
+    /**
+     * Set SO_REUSEPORT on the socket. Must be called before the socket is bound
+     * @param channel Socket channel
+     * @return True if the option is set
+     */
+    public static boolean enable(NetworkChannel channel) {
+        try {
+            if (STANDARD_OPTION != null) {
+                if (channel.supportedOptions().contains(STANDARD_OPTION)) {
+                    channel.setOption(STANDARD_OPTION, true);
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+
+            if (SET_INT_OPTION != null) {
+                Method getFd = channel.getClass().getMethod("getFD");
+                getFd.setAccessible(true);
+                FileDescriptor fd = (FileDescriptor) getFd.invoke(channel);
+
+                SET_INT_OPTION.invoke(null, fd, false, LINUX_SOL_SOCKET, LINUX_SO_REUSEPORT, 1, false);
+                return true;
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Fail to set SO_REUSEPORT", e);
+        }
+
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> lookupStandardOption() {
+        try {
+            return (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Method lookupSetIntOption() {
+        if (!System.getProperty("os.name", "").toLowerCase().startsWith("linux")) {
+            return null;
+        }
+
+        try {
+            Method method = Class.forName("sun.nio.ch.Net").getDeclaredMethod("setIntOption0",
+                FileDescriptor.class, boolean.class, int.class, int.class, int.class, boolean.class);
+            method.setAccessible(true);
+            return method;
+        } catch (Exception e) {
+            LOGGER.debug("SO_REUSEPORT could not be set through JDK internals", e);
+            return null;
+        }
+    }
+
+}
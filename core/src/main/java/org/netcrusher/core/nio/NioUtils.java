@@ -25,6 +25,13 @@ public final class NioUtils {
         return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
     }
 
+    public static ByteBuffer copyByteBuffer(ByteBuffer source) {
+        ByteBuffer copy = ByteBuffer.allocate(source.remaining());
+        copy.put(source.duplicate());
+        copy.flip();
+        return copy;
+    }
+
     public static void close(AbstractSelectableChannel channel) {
         if (channel != null && channel.isOpen()) {
             try {
@@ -0,0 +1,73 @@
+package org.netcrusher.core.nio;
+
+import java.io.Serializable;
+
+/**
+ * Limits the work a channel does in a single readable callback so one busy client can't monopolize
+ * the selector's loop. When the budget is exhausted the channel stops reading and gets back on the next
+ * loop iteration as the socket is still readable. Zero means no limit.
+ */
+public class ReadBudgetOptions implements Serializable {
+
+    private long count;
+
+    private long durationNs;
+
+    public ReadBudgetOptions copy() {
+        ReadBudgetOptions copy = new ReadBudgetOptions();
+
+        copy.count = this.count;
+        copy.durationNs = this.durationNs;
+
+        return copy;
+    }
+
+    public void validate() {
+        if (count < 0) {
+            throw new IllegalArgumentException("Read budget count must not be negative");
+        }
+
+        if (durationNs < 0) {
+            throw new IllegalArgumentException("Read budget duration must not be negative");
+        }
+    }
+
+    /**
+     * Count limit: bytes for TCP, datagrams for UDP
+     * @return Count or zero if not limited
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getDurationNs() {
+        return durationNs;
+    }
+
+    public void setDurationNs(long durationNs) {
+        this.durationNs = durationNs;
+    }
+
+    /**
+     * Starts a callback
+     * @return Start time for isExhausted() or zero if the duration is not limited
+     */
+    public long start() {
+        return durationNs > 0 ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Checks if the budget of the callback is exhausted
+     * @param done Amount of work done (bytes or datagrams)
+     * @param startNs Value returned by start()
+     * @return Returns 'true' if the channel should yield
+     */
+    public boolean isExhausted(long done, long startNs) {
+        return (count > 0 && done >= count) || (durationNs > 0 && System.nanoTime() - startNs >= durationNs);
+    }
+
+}
@@ -0,0 +1,18 @@
+package org.netcrusher.core.reactor;
+
+/**
+ * How a multi-loop reactor assigns new clients to its event loops
+ */
+public enum NioLoopBalancing {
+
+    /**
+     * Loops are chosen one after another
+     */
+    ROUND_ROBIN,
+
+    /**
+     * The loop with the least number of registered channels is chosen
+     */
+    LEAST_LOADED
+
+}
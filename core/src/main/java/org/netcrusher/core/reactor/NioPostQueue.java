@@ -0,0 +1,148 @@
+package org.netcrusher.core.reactor;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Multi-producer single-consumer queue of post operations: a bounded lock-free ring with a sequence per slot.
+ * An operation which doesn't fit into the ring is refused by offer() and the producer decides whether to wait
+ * or to give up. Operations which must not be lost go through offerOverflowing(): a burst that doesn't fit
+ * into the ring is kept by the unbounded overflow queue. Once the overflow queue is in use all producers go
+ * there or are refused until it's drained, so operations of the same producer are never reordered.
+ * Only selector's thread may call poll() and isEmpty().
+ */
+class NioPostQueue {
+
+    private final int mask;
+
+    private final AtomicReferenceArray<NioSelectorPostOp> ring;
+
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong tail;
+
+    private final Queue<NioSelectorPostOp> overflow;
+
+    private final AtomicInteger overflowSize;
+
+    private final AtomicLong overflowCount;
+
+    private long head;
+
+    NioPostQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        int ringCapacity = 1;
+        while (ringCapacity < capacity) {
+            ringCapacity <<= 1;
+        }
+
+        this.mask = ringCapacity - 1;
+        this.ring = new AtomicReferenceArray<>(ringCapacity);
+        this.sequences = new AtomicLongArray(ringCapacity);
+        for (int i = 0; i < ringCapacity; i++) {
+            this.sequences.set(i, i);
+        }
+
+        this.tail = new AtomicLong(0);
+        this.head = 0;
+
+        this.overflow = new ConcurrentLinkedQueue<>();
+        this.overflowSize = new AtomicInteger(0);
+        this.overflowCount = new AtomicLong(0);
+    }
+
+    /**
+     * Put the operation into the ring
+     * @return False if the ring is full or the overflow queue is not drained yet
+     */
+    boolean offer(NioSelectorPostOp operation) {
+        if (overflowSize.get() == 0 && offerRing(operation)) {
+            return true;
+        } else {
+            overflowCount.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Put the operation into the ring or into the overflow queue if the ring is full. Never refuses
+     */
+    void offerOverflowing(NioSelectorPostOp operation) {
+        if (overflowSize.get() > 0 || !offerRing(operation)) {
+            overflowSize.incrementAndGet();
+            overflowCount.incrementAndGet();
+            overflow.add(operation);
+        }
+    }
+
+    NioSelectorPostOp poll() {
+        NioSelectorPostOp operation = pollRing();
+        if (operation != null) {
+            return operation;
+        }
+
+        operation = overflow.poll();
+        if (operation != null) {
+            overflowSize.decrementAndGet();
+        }
+
+        return operation;
+    }
+
+    boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1 && overflowSize.get() == 0;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    private boolean offerRing(NioSelectorPostOp operation) {
+        long position = tail.get();
+        while (true) {
+            final int index = (int) (position & mask);
+            final long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    ring.lazySet(index, operation);
+                    // publishes the slot for the consumer
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // the ring is full
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    private NioSelectorPostOp pollRing() {
+        final int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            // empty or the producer hasn't published the slot yet
+            return null;
+        }
+
+        NioSelectorPostOp operation = ring.get(index);
+        ring.lazySet(index, null);
+        sequences.set(index, head + mask + 1);
+        head++;
+
+        return operation;
+    }
+}
@@ -1,21 +1,38 @@
 package org.netcrusher.core.reactor;
 
+import org.netcrusher.core.buffer.MemoryBudget;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class NioReactor implements Closeable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NioReactor.class);
 
-    private static final long DEFAULT_TICK_MS = 20;
+    private static final String SELECTOR_THREAD_NAME = "NetCrusher selector event loop";
 
-    private final NioSelector selector;
+    private static final String BOSS_THREAD_NAME = "NetCrusher selector boss loop";
+
+    private final List<NioSelector> selectors;
+
+    private final List<NioSelector> workerSelectors;
+
+    private final NioSelector bossSelector;
 
     private final NioScheduler scheduler;
 
+    private final NioLoopBalancing loopBalancing;
+
+    private final AtomicInteger loopCounter;
+
+    private final MemoryBudget memoryBudget;
+
     private volatile boolean open;
 
     /**
@@ -23,22 +40,72 @@ public class NioReactor implements Closeable {
      * @throws IOException Exception on error
      */
     public NioReactor() throws IOException {
-        this(DEFAULT_TICK_MS);
+        this(new NioReactorOptions());
     }
 
     /**
      * Create NIO reactor with specific settings. The same reactor can be shared across multiple crushers.
-     * @param tickMs Selector's timeout granularity in milliseconds. Determines throttling precision.
-     *               Default value is 50 milliseconds.
+     * @param tickMs The longest period in milliseconds the selector sleeps without I/O events. Scheduled
+     *               operations are run on their deadlines regardless of this value. Default value is 0 which
+     *               means the selector sleeps until the next I/O event or scheduled operation.
      * @throws IOException Exception on error
      */
     public NioReactor(long tickMs) throws IOException {
-        this.selector = new NioSelector(tickMs);
+        this(tickOptions(tickMs));
+    }
+
+    /**
+     * Create NIO reactor with specific settings. The same reactor can be shared across multiple crushers.
+     * @param options Reactor options
+     * @throws IOException Exception on error
+     * @see NioReactorBuilder
+     */
+    public NioReactor(NioReactorOptions options) throws IOException {
+        if (options == null) {
+            throw new IllegalArgumentException("Options are not set");
+        }
+
+        options.validate();
+
+        final int loopCount = options.getLoopCount();
+
+        final List<NioSelector> selectors = new ArrayList<>(loopCount + 1);
+        try {
+            for (int i = 0; i < loopCount; i++) {
+                String threadName = loopCount > 1 ? SELECTOR_THREAD_NAME + " #" + i : SELECTOR_THREAD_NAME;
+                selectors.add(new NioSelector(threadName, options));
+            }
+
+            // the boss loop goes last so it's closed first
+            if (options.isBossLoop()) {
+                selectors.add(new NioSelector(BOSS_THREAD_NAME, options));
+            }
+        } catch (IOException | RuntimeException e) {
+            selectors.forEach(NioSelector::close);
+            throw e;
+        }
+
+        this.selectors = Collections.unmodifiableList(selectors);
+        this.workerSelectors = this.selectors.subList(0, loopCount);
+        this.bossSelector = this.selectors.get(selectors.size() - 1);
         this.scheduler = new NioScheduler();
+        this.loopBalancing = options.getLoopBalancing();
+        this.loopCounter = new AtomicInteger(0);
+        this.memoryBudget = new MemoryBudget(options.getMemoryBudget());
 
         this.open = true;
 
-        LOGGER.debug("Reactor has been created with tick={}ms", tickMs);
+        LOGGER.debug("Reactor has been created with tick={}ms, timer resolution={}ns and {} loop(s){}",
+            new Object[] {
+                options.getTickMs(), options.getTimerResolutionNs(), loopCount,
+                options.isBossLoop() ? " plus the boss loop" : ""
+            });
+    }
+
+    private static NioReactorOptions tickOptions(long tickMs) {
+        NioReactorOptions options = new NioReactorOptions();
+        options.setTickMs(tickMs);
+        return options;
     }
 
     /**
@@ -47,7 +114,11 @@ public class NioReactor implements Closeable {
     @Override
     public synchronized void close() {
         if (open) {
-            selector.close();
+            // worker loops are closed first as they may still post operations to the primary loop
+            for (int i = selectors.size() - 1; i >= 0; i--) {
+                selectors.get(i).close();
+            }
+
             scheduler.close();
 
             open = false;
@@ -65,11 +136,98 @@ public class NioReactor implements Closeable {
     }
 
     /**
-     * Get selector controller (used for internal purpose)
+     * Get the primary selector controller (used for internal purpose). Control operations of crushers
+     * and inner datagram sockets live on the primary loop. The primary loop is always a worker loop
      * @return Selector controller
      */
     public NioSelector getSelector() {
-        return selector;
+        return selectors.get(0);
+    }
+
+    /**
+     * Get the selector controller which accepts and connects TCP clients (used for internal purpose).
+     * Without the boss loop it's the primary selector
+     * @return Selector controller
+     */
+    public NioSelector getBossSelector() {
+        return bossSelector;
+    }
+
+    /**
+     * Get all selector controllers, the primary one is the first and the boss one is the last
+     * (used for internal purpose)
+     * @return Unmodifiable list of selector controllers
+     */
+    public List<NioSelector> getSelectors() {
+        return selectors;
+    }
+
+    /**
+     * Get selector controllers which clients are pinned to (used for internal purpose). Without the boss
+     * loop these are all the selectors
+     * @return Unmodifiable list of selector controllers
+     */
+    public List<NioSelector> getWorkerSelectors() {
+        return workerSelectors;
+    }
+
+    /**
+     * Choose the selector for a new client (used for internal purpose). The client should stay
+     * on the chosen selector for its whole lifetime
+     * @return Selector controller
+     * @see NioLoopBalancing
+     */
+    public NioSelector nextSelector() {
+        final int count = workerSelectors.size();
+        if (count == 1) {
+            return workerSelectors.get(0);
+        }
+
+        if (loopBalancing == NioLoopBalancing.LEAST_LOADED) {
+            NioSelector chosen = workerSelectors.get(0);
+            int chosenLoad = chosen.getLoad();
+
+            for (int i = 1; i < count; i++) {
+                NioSelector selector = workerSelectors.get(i);
+                int load = selector.getLoad();
+                if (load < chosenLoad) {
+                    chosen = selector;
+                    chosenLoad = load;
+                }
+            }
+
+            return chosen;
+        } else {
+            return workerSelectors.get(Math.floorMod(loopCounter.getAndIncrement(), count));
+        }
+    }
+
+    /**
+     * Get counters of all selector event loops, the primary one is the first and the boss one is the last
+     * @return List of counter snapshots
+     */
+    public List<NioSelectorStats> getSelectorStats() {
+        List<NioSelectorStats> stats = new ArrayList<>(selectors.size());
+        for (NioSelector selector : selectors) {
+            stats.add(selector.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Get the number of selector event loops including the boss loop
+     * @return Loop count
+     */
+    public int getLoopCount() {
+        return selectors.size();
+    }
+
+    /**
+     * Get the memory budget shared by buffer queues of all crushers on this reactor
+     * @return Memory budget with usage gauges
+     */
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
     }
 
     /**
@@ -0,0 +1,158 @@
+package org.netcrusher.core.reactor;
+
+import java.io.IOException;
+
+/**
+ * Builder for NioReactor instance
+ */
+public final class NioReactorBuilder {
+
+    private final NioReactorOptions options;
+
+    private NioReactorBuilder() {
+        this.options = new NioReactorOptions();
+    }
+
+    /**
+     * Creates a new builder
+     * @return A new builder instance
+     */
+    public static NioReactorBuilder builder() {
+        return new NioReactorBuilder();
+    }
+
+    /**
+     * Set the longest period the selector sleeps without I/O events. Zero (default) means the selector
+     * sleeps until the next I/O event or scheduled operation
+     * @param tickMs Tick in milliseconds
+     * @return This builder instance to chain with other methods
+     */
+    public NioReactorBuilder withTickMs(long tickMs) {
+        this.options.setTickMs(tickMs);
+        return this;
+    }
+
+    /**
+     * Set how many selector event loops (threads) the reactor runs. Each new TCP pair or datagram client
+     * is pinned to one of the loops for its whole lifetime
+     * @param loopCount Count of event loops
+     * @return This builder instance to chain with other methods
+     */
+    public NioReactorBuilder withLoopCount(int loopCount) {
+        this.options.setLoopCount(loopCount);
+        return this;
+    }
+
+    /**
+     * Run a dedicated boss loop for accepting TCP connections and connecting to the remote side.
+     * Established clients are handed to the worker loops (their count is set with withLoopCount()),
+     * so a connection storm doesn't stall the data transfer. Crusher control operations and datagram
+     * sockets stay on the primary worker loop. Disabled by default
+     * @param bossLoop Set true to run the boss loop in addition to the worker loops
+     * @return This builder instance to chain with other methods
+     */
+    public NioReactorBuilder withBossLoop(boolean bossLoop) {
+        this.options.setBossLoop(bossLoop);
+        return this;
+    }
+
+    /**
+     * Set the limit of memory taken by buffer queues of all crushers on this reactor. When the limit is reached
+     * TCP clients stop reading until memory is released and datagrams are dropped
+     * @param memoryBudget Limit in bytes or 0 if not limited (default)
+     * @return This builder instance to chain with other methods
+     */
+    public NioReactorBuilder withMemoryBudget(long memoryBudget) {
+        this.options.setMemoryBudget(memoryBudget);
+        return this;
+    }
+
+    /**
+     * Set how new clients are assigned to event loops
+     * @param loopBalancing Balancing method
+     * @return This builder instance to chain with other methods
+     */
+    public NioReactorBuilder withLoopBalancing(NioLoopBalancing loopBalancing) {
+        this.options.setLoopBalancing(loopBalancing);
+        return this;
+    }
+
+    /**
+     * Set the resolution of the timing wheel used for scheduled operations (throttling, delays, timeouts).
+     * Scheduled operations are never run earlier than requested but may be late up to this value
+     * @param timerResolutionNs Resolution in nanoseconds
+     * @return This builder instance to chain with other methods
+     */
+    public NioReactorBuilder withTimerResolutionNs(long timerResolutionNs) {
+        this.options.setTimerResolutionNs(timerResolutionNs);
+        return this;
+    }
+
+    /**
+     * Set the capacity of the bounded lock-free queue for operations submitted to the selector
+     * by other threads. When it's full execute() and submit() wait for the selector to drain it.
+     * Work event loops hand over to each other is never refused and overflows into an unbounded queue,
+     * while datagrams handed over to a loop with the full queue are dropped
+     * @param postQueueCapacity Capacity (rounded up to a power of two)
+     * @return This builder instance to chain with other methods
+     */
+    public NioReactorBuilder withPostQueueCapacity(int postQueueCapacity) {
+        this.options.setPostQueueCapacity(postQueueCapacity);
+        return this;
+    }
+
+    /**
+     * Enable busy-poll mode: before blocking the selector's thread polls for I/O events without blocking
+     * the specified number of times. Trades a CPU core for lower latency. Disabled (0) by default
+     * @param busyPollSpins Count of non-blocking polls in a tight loop
+     * @return This builder instance to chain with other methods
+     */
+    public NioReactorBuilder withBusyPollSpins(int busyPollSpins) {
+        this.options.setBusyPollSpins(busyPollSpins);
+        return this;
+    }
+
+    /**
+     * Set how many non-blocking polls with Thread.yield() between them are made after the spin phase
+     * of busy-poll mode before the selector's thread blocks. Disabled (0) by default
+     * @param busyPollYields Count of non-blocking polls with yielding
+     * @return This builder instance to chain with other methods
+     */
+    public NioReactorBuilder withBusyPollYields(int busyPollYields) {
+        this.options.setBusyPollYields(busyPollYields);
+        return this;
+    }
+
+    /**
+     * Limit the duration of spin and yield phases of busy-poll mode. Zero (default) means no limit.
+     * The limit requires spins or yields to be set as well
+     * @param busyPollMaxNs Maximum duration in nanoseconds
+     * @return This builder instance to chain with other methods
+     */
+    public NioReactorBuilder withBusyPollMaxNs(long busyPollMaxNs) {
+        this.options.setBusyPollMaxNs(busyPollMaxNs);
+        return this;
+    }
+
+    /**
+     * Replace the HashSet of selected keys of JDK selector with an array-backed set so the event loop walks
+     * selected keys without iterators and hashing. If the JDK selector doesn't allow that (e.g. on Java 9+
+     * without --add-opens java.base/sun.nio.ch=ALL-UNNAMED) the regular set is used. Enabled by default
+     * @param selectedKeySetOptimized Set false to always use the regular set
+     * @return This builder instance to chain with other methods
+     */
+    public NioReactorBuilder withSelectedKeySetOptimized(boolean selectedKeySetOptimized) {
+        this.options.setSelectedKeySetOptimized(selectedKeySetOptimized);
+        return this;
+    }
+
+    /**
+     * Builds a new NioReactor instance
+     * @return NioReactor instance
+     * @throws IOException Exception on error
+     */
+    public NioReactor build() throws IOException {
+        return new NioReactor(options);
+    }
+
+}
@@ -0,0 +1,194 @@
+package org.netcrusher.core.reactor;
+
+import java.util.concurrent.TimeUnit;
+
+public class NioReactorOptions {
+
+    private static final long DEFAULT_TICK_MS = 0;
+
+    private static final int DEFAULT_LOOP_COUNT = 1;
+
+    private static final long DEFAULT_TIMER_RESOLUTION_NS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final int DEFAULT_POST_QUEUE_CAPACITY = 1024;
+
+    private static final int MAX_POST_QUEUE_CAPACITY = Integer.highestOneBit(Integer.MAX_VALUE);
+
+    private static final int DEFAULT_BUSY_POLL_SPINS = 0;
+
+    private static final int DEFAULT_BUSY_POLL_YIELDS = 0;
+
+    private static final long DEFAULT_BUSY_POLL_MAX_NS = 0;
+
+    private long tickMs;
+
+    private int loopCount;
+
+    private NioLoopBalancing loopBalancing;
+
+    private long timerResolutionNs;
+
+    private int postQueueCapacity;
+
+    private int busyPollSpins;
+
+    private int busyPollYields;
+
+    private long busyPollMaxNs;
+
+    private boolean selectedKeySetOptimized;
+
+    private boolean bossLoop;
+
+    private long memoryBudget;
+
+    public NioReactorOptions() {
+        this.tickMs = DEFAULT_TICK_MS;
+        this.loopCount = DEFAULT_LOOP_COUNT;
+        this.loopBalancing = NioLoopBalancing.ROUND_ROBIN;
+        this.timerResolutionNs = DEFAULT_TIMER_RESOLUTION_NS;
+        this.postQueueCapacity = DEFAULT_POST_QUEUE_CAPACITY;
+        this.busyPollSpins = DEFAULT_BUSY_POLL_SPINS;
+        this.busyPollYields = DEFAULT_BUSY_POLL_YIELDS;
+        this.busyPollMaxNs = DEFAULT_BUSY_POLL_MAX_NS;
+        this.selectedKeySetOptimized = true;
+        this.bossLoop = false;
+        this.memoryBudget = 0;
+    }
+
+    public void validate() {
+        if (tickMs < 0) {
+            throw new IllegalArgumentException("Tick period must not be negative");
+        }
+
+        if (loopCount <= 0) {
+            throw new IllegalArgumentException("Loop count must be positive");
+        }
+
+        if (loopBalancing == null) {
+            throw new IllegalArgumentException("Loop balancing is not set");
+        }
+
+        if (timerResolutionNs <= 0) {
+            throw new IllegalArgumentException("Timer resolution must be positive");
+        }
+
+        if (postQueueCapacity <= 0 || postQueueCapacity > MAX_POST_QUEUE_CAPACITY) {
+            throw new IllegalArgumentException("Post queue capacity must be positive and not more than "
+                + MAX_POST_QUEUE_CAPACITY);
+        }
+
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("Memory budget must not be negative");
+        }
+
+        validateBusyPoll();
+    }
+
+    private void validateBusyPoll() {
+        if (busyPollSpins < 0) {
+            throw new IllegalArgumentException("Busy poll spin count must not be negative");
+        }
+
+        if (busyPollYields < 0) {
+            throw new IllegalArgumentException("Busy poll yield count must not be negative");
+        }
+
+        if (busyPollMaxNs < 0) {
+            throw new IllegalArgumentException("Busy poll duration must not be negative");
+        }
+
+        // the duration only limits spin and yield phases, alone it would be silently ignored
+        if (busyPollMaxNs > 0 && busyPollSpins == 0 && busyPollYields == 0) {
+            throw new IllegalArgumentException("Busy poll duration is set but neither spins nor yields are");
+        }
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    public void setTickMs(long tickMs) {
+        this.tickMs = tickMs;
+    }
+
+    public int getLoopCount() {
+        return loopCount;
+    }
+
+    public void setLoopCount(int loopCount) {
+        this.loopCount = loopCount;
+    }
+
+    public NioLoopBalancing getLoopBalancing() {
+        return loopBalancing;
+    }
+
+    public void setLoopBalancing(NioLoopBalancing loopBalancing) {
+        this.loopBalancing = loopBalancing;
+    }
+
+    public long getTimerResolutionNs() {
+        return timerResolutionNs;
+    }
+
+    public void setTimerResolutionNs(long timerResolutionNs) {
+        this.timerResolutionNs = timerResolutionNs;
+    }
+
+    public int getPostQueueCapacity() {
+        return postQueueCapacity;
+    }
+
+    public void setPostQueueCapacity(int postQueueCapacity) {
+        this.postQueueCapacity = postQueueCapacity;
+    }
+
+    public int getBusyPollSpins() {
+        return busyPollSpins;
+    }
+
+    public void setBusyPollSpins(int busyPollSpins) {
+        this.busyPollSpins = busyPollSpins;
+    }
+
+    public int getBusyPollYields() {
+        return busyPollYields;
+    }
+
+    public void setBusyPollYields(int busyPollYields) {
+        this.busyPollYields = busyPollYields;
+    }
+
+    public long getBusyPollMaxNs() {
+        return busyPollMaxNs;
+    }
+
+    public void setBusyPollMaxNs(long busyPollMaxNs) {
+        this.busyPollMaxNs = busyPollMaxNs;
+    }
+
+    public boolean isSelectedKeySetOptimized() {
+        return selectedKeySetOptimized;
+    }
+
+    public void setSelectedKeySetOptimized(boolean selectedKeySetOptimized) {
+        this.selectedKeySetOptimized = selectedKeySetOptimized;
+    }
+
+    public boolean isBossLoop() {
+        return bossLoop;
+    }
+
+    public void setBossLoop(boolean bossLoop) {
+        this.bossLoop = bossLoop;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+}
@@ -0,0 +1,131 @@
+package org.netcrusher.core.reactor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Array-backed replacement of the selected key set of JDK selector. The JDK selector only adds keys to the set
+ * while the selector's thread walks the array by index and resets it, so there are no iterators and no hashing
+ * on the hot path. Installed with reflection into sun.nio.ch.SelectorImpl, see install().
+ */
+final class NioSelectedKeySet extends AbstractSet<SelectionKey> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NioSelectedKeySet.class);
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final String SELECTOR_IMPL_CLASS = "sun.nio.ch.SelectorImpl";
+
+    private SelectionKey[] keys;
+
+    private int size;
+
+    private NioSelectedKeySet() {
+        this.keys = new SelectionKey[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Replaces the selected key set of the selector
+     * @param selector JDK selector which has not been used yet
+     * @return Installed key set or null if the selector implementation doesn't allow that
+     */
+    static NioSelectedKeySet install(Selector selector) {
+        final NioSelectedKeySet keySet = new NioSelectedKeySet();
+
+        try {
+            Class<?> selectorImplClass = Class.forName(SELECTOR_IMPL_CLASS, false,
+                ClassLoader.getSystemClassLoader());
+            if (!selectorImplClass.isAssignableFrom(selector.getClass())) {
+                LOGGER.debug("Selector {} is not a subclass of {}", selector.getClass(), SELECTOR_IMPL_CLASS);
+                return null;
+            }
+
+            Field selectedKeysField = selectorImplClass.getDeclaredField("selectedKeys");
+            Field publicSelectedKeysField = selectorImplClass.getDeclaredField("publicSelectedKeys");
+
+            selectedKeysField.setAccessible(true);
+            publicSelectedKeysField.setAccessible(true);
+
+            selectedKeysField.set(selector, keySet);
+            publicSelectedKeysField.set(selector, keySet);
+        } catch (ClassNotFoundException | NoSuchFieldException | IllegalAccessException | RuntimeException e) {
+            // RuntimeException covers SecurityException and InaccessibleObjectException of Java 9+
+            LOGGER.debug("Fail to install array-backed selected key set: {}", e.toString());
+            return null;
+        }
+
+        return keySet;
+    }
+
+    @Override
+    public boolean add(SelectionKey selectionKey) {
+        if (selectionKey == null) {
+            return false;
+        }
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+
+        keys[size++] = selectionKey;
+
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return false;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        // the selector checks the set only to merge ready ops which is not needed as the set is reset every time
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<SelectionKey> iterator() {
+        return new Iterator<SelectionKey>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public SelectionKey next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return keys[index++];
+            }
+        };
+    }
+
+    SelectionKey get(int index) {
+        SelectionKey selectionKey = keys[index];
+        keys[index] = null;
+        return selectionKey;
+    }
+
+    void reset() {
+        // keys are released one by one with get()
+        size = 0;
+    }
+
+}
@@ -10,52 +10,84 @@ import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
-import java.util.Comparator;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
-import java.util.PriorityQueue;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class NioSelector {
 
+    /**
+     * Timer id which is never returned by schedule()
+     */
+    public static final long NO_TIMER = -1;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(NioSelector.class);
 
     private static final long THREAD_TERMINATION_TIMEOUT_MS = 5000;
 
-    private static final Comparator<NioSelectorScheduledOp> SCHEDULE_COMPARATOR =
-        (o1, o2) -> Long.compare(o1.getScheduledNs(), o2.getScheduledNs());
+    private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
 
     private final Thread thread;
 
     private final Selector selector;
 
-    private final Queue<NioSelectorPostOp> postOperationQueue;
+    private final NioSelectedKeySet selectedKeySet;
+
+    private final NioPostQueue postOperationQueue;
+
+    private final Queue<NioSelectorPostOp> localOperationQueue;
 
-    private final Queue<NioSelectorScheduledOp> scheduledOperationQueue;
+    private final AtomicBoolean wakeupPending;
+
+    private final NioSelectorMetrics metrics;
+
+    private final NioTimerWheel timerWheel;
 
     private final long tickMs;
 
+    private final int busyPollSpins;
+
+    private final int busyPollYields;
+
+    private final long busyPollMaxNs;
+
     private volatile boolean open;
 
-    NioSelector(long tickMs) throws IOException {
-        if (tickMs <= 0) {
-            throw new IllegalArgumentException("Tick period must be positive");
-        }
+    NioSelector(String threadName, NioReactorOptions options) throws IOException {
+        options.validate();
 
         this.selector = Selector.open();
-        this.postOperationQueue = new ConcurrentLinkedQueue<>();
-        this.scheduledOperationQueue = new PriorityQueue<>(SCHEDULE_COMPARATOR);
+        this.selectedKeySet = options.isSelectedKeySetOptimized() ? NioSelectedKeySet.install(selector) : null;
+        this.postOperationQueue = new NioPostQueue(options.getPostQueueCapacity());
+        this.localOperationQueue = new ArrayDeque<>();
+        this.wakeupPending = new AtomicBoolean(true);
+        this.metrics = new NioSelectorMetrics();
+        this.timerWheel = new NioTimerWheel(options.getTimerResolutionNs(), System.nanoTime(),
+            metrics.getTimerLatenessNs());
+
+        this.tickMs = options.getTickMs();
+        this.busyPollSpins = options.getBusyPollSpins();
+        this.busyPollYields = options.getBusyPollYields();
+        this.busyPollMaxNs = options.getBusyPollMaxNs();
+        this.open = true;
 
         this.thread = new Thread(this::loop);
-        this.thread.setName("NetCrusher selector event loop");
+        this.thread.setName(threadName);
         this.thread.setDaemon(false);
         this.thread.start();
-
-        this.tickMs = tickMs;
-        this.open = true;
     }
 
     synchronized void close() {
@@ -63,8 +95,6 @@ public class NioSelector {
             LOGGER.debug("Selector is closing");
             boolean interrupted = false;
 
-            postOperationQueue.clear();
-
             wakeup();
 
             if (thread.isAlive()) {
@@ -96,6 +126,9 @@ public class NioSelector {
             open = false;
             LOGGER.debug("Selector is closed");
 
+            // nobody should wait for operations which are never run
+            rejectPostOperations();
+
             if (interrupted) {
                 Thread.currentThread().interrupt();
             }
@@ -118,7 +151,7 @@ public class NioSelector {
     // Internal method
     public <T> T execute(Callable<T> callable) throws NetCrusherException {
         if (open) {
-            if (Thread.currentThread().equals(thread)) {
+            if (isSelectorThread()) {
                 try {
                     return callable.call();
                 } catch (Exception e) {
@@ -126,9 +159,9 @@ public class NioSelector {
                 }
             } else {
                 NioSelectorPostOp<T> postOperation = new NioSelectorPostOp<>(callable);
-                postOperationQueue.add(postOperation);
+                offerWaiting(postOperation);
 
-                selector.wakeup();
+                wakeupSelector();
 
                 try {
                     return postOperation.await();
@@ -144,27 +177,249 @@ public class NioSelector {
     }
 
     // Internal method
-    public void schedule(Runnable runnable, long delayNs) {
-        if (tickMs == 0) {
-            throw new IllegalStateException("Tick value should be set on selector");
+    public <T> CompletableFuture<T> submit(Callable<T> callable) {
+        if (open) {
+            NioSelectorPostOp<T> postOperation = new NioSelectorPostOp<>(callable);
+
+            if (isSelectorThread()) {
+                postOperation.run();
+            } else {
+                offerWaiting(postOperation);
+                wakeupSelector();
+            }
+
+            return postOperation.getFuture();
+        } else {
+            throw new IllegalStateException("Selector is closed");
+        }
+    }
+
+    // Internal method
+    public <T> List<CompletableFuture<T>> submitAll(Collection<? extends Callable<T>> callables) {
+        if (open) {
+            List<CompletableFuture<T>> futures = new ArrayList<>(callables.size());
+
+            if (isSelectorThread()) {
+                for (Callable<T> callable : callables) {
+                    NioSelectorPostOp<T> postOperation = new NioSelectorPostOp<>(callable);
+                    postOperation.run();
+                    futures.add(postOperation.getFuture());
+                }
+            } else {
+                for (Callable<T> callable : callables) {
+                    NioSelectorPostOp<T> postOperation = new NioSelectorPostOp<>(callable);
+                    offerWaiting(postOperation);
+                    futures.add(postOperation.getFuture());
+                }
+
+                // the whole batch costs a single wakeup
+                if (!futures.isEmpty()) {
+                    wakeupSelector();
+                }
+            }
+
+            return futures;
+        } else {
+            throw new IllegalStateException("Selector is closed");
+        }
+    }
+
+    /**
+     * Map items which live on different loops. Items are grouped by their loops and each loop maps its items
+     * in a single operation, so the call costs one round-trip per loop whatever the count of items is
+     * @param items Items
+     * @param selectorOf Function which returns the loop of the item
+     * @param mapper Function which is called on the loop of the item, null results are skipped
+     * @param <T> Item type
+     * @param <R> Result type
+     * @return Results of all loops
+     */
+    public static <T, R> List<R> collectAll(Collection<T> items,
+                                            Function<T, NioSelector> selectorOf,
+                                            Function<T, R> mapper)
+    {
+        final Map<NioSelector, List<T>> groups = new LinkedHashMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(selectorOf.apply(item), (key) -> new ArrayList<>()).add(item);
+        }
+
+        final List<CompletableFuture<List<R>>> futures = new ArrayList<>(groups.size());
+        for (Map.Entry<NioSelector, List<T>> entry : groups.entrySet()) {
+            final List<T> group = entry.getValue();
+
+            futures.add(entry.getKey().submit(() -> {
+                List<R> results = new ArrayList<>(group.size());
+                for (T item : group) {
+                    R result = mapper.apply(item);
+                    if (result != null) {
+                        results.add(result);
+                    }
+                }
+                return results;
+            }));
         }
-        if (!Thread.currentThread().equals(thread)) {
+
+        final List<R> results = new ArrayList<>(items.size());
+        for (CompletableFuture<List<R>> future : futures) {
+            try {
+                results.addAll(future.get());
+            } catch (InterruptedException e) {
+                throw new NetCrusherException("Reactor operation was interrupted", e);
+            } catch (ExecutionException e) {
+                throw new NetCrusherException("Selector operation has failed", e);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Run the operation on the selector thread later. Unlike execute() and submit() the call never waits
+     * for other threads and is never refused: if the post queue is full the operation is kept by the overflow
+     * queue. Event loops hand their work over to each other with this method, so the work is never lost
+     * @param runnable Operation
+     */
+    public void post(Runnable runnable) {
+        postOperation(runnable);
+    }
+
+    /**
+     * Run an action for items which live on different loops without waiting for them. Items are grouped
+     * by their loops and each loop takes its items with a single posted operation, so the calling loop
+     * is never blocked by other loops
+     * @param items Items
+     * @param selectorOf Function which returns the loop of the item
+     * @param action Action which is called on the loop of the item
+     * @param <T> Item type
+     * @return Future which is completed when all loops are done
+     */
+    public static <T> CompletableFuture<Void> postAll(Collection<T> items,
+                                                      Function<T, NioSelector> selectorOf,
+                                                      Consumer<T> action)
+    {
+        final Map<NioSelector, List<T>> groups = new LinkedHashMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(selectorOf.apply(item), (key) -> new ArrayList<>()).add(item);
+        }
+
+        final CompletableFuture<?>[] futures = new CompletableFuture<?>[groups.size()];
+        int index = 0;
+        for (Map.Entry<NioSelector, List<T>> entry : groups.entrySet()) {
+            final List<T> group = entry.getValue();
+            futures[index++] = entry.getKey().postOperation(() -> group.forEach(action));
+        }
+
+        return CompletableFuture.allOf(futures);
+    }
+
+    private CompletableFuture<Void> postOperation(Runnable runnable) {
+        if (open) {
+            NioSelectorPostOp<Void> postOperation = createPostOperation(runnable);
+
+            if (isSelectorThread()) {
+                localOperationQueue.add(postOperation);
+            } else {
+                postOperationQueue.offerOverflowing(postOperation);
+                wakeupSelector();
+            }
+
+            return postOperation.getFuture();
+        } else {
+            throw new IllegalStateException("Selector is closed");
+        }
+    }
+
+    /**
+     * Run the operation on the selector thread later if the post queue has room for it. Suits for work which
+     * could be dropped under load, like datagrams handed over from another loop
+     * @param runnable Operation
+     * @return False if the post queue is full and the operation is refused
+     */
+    public boolean tryPost(Runnable runnable) {
+        if (open) {
+            NioSelectorPostOp<Void> postOperation = createPostOperation(runnable);
+
+            if (isSelectorThread()) {
+                localOperationQueue.add(postOperation);
+                return true;
+            } else if (postOperationQueue.offer(postOperation)) {
+                wakeupSelector();
+                return true;
+            } else {
+                return false;
+            }
+        } else {
+            throw new IllegalStateException("Selector is closed");
+        }
+    }
+
+    private static NioSelectorPostOp<Void> createPostOperation(Runnable runnable) {
+        return new NioSelectorPostOp<>(() -> {
+            try {
+                runnable.run();
+            } catch (Exception e) {
+                LOGGER.error("Error while executing posted selector op", e);
+            }
+            return null;
+        });
+    }
+
+    // Internal method
+    public long schedule(Runnable runnable, long delayNs) {
+        if (!isSelectorThread()) {
             throw new IllegalStateException("Scheduling only should be made fron selector's thread");
         }
 
         long nowNs = System.nanoTime();
 
-        scheduledOperationQueue.add(new NioSelectorScheduledOp(nowNs + delayNs, runnable));
+        return timerWheel.add(nowNs + delayNs, runnable);
+    }
+
+    // Internal method
+    public boolean cancel(long timerId) {
+        if (!isSelectorThread()) {
+            throw new IllegalStateException("Cancelling only should be made fron selector's thread");
+        }
+
+        return timerWheel.cancel(timerId);
+    }
+
+    /**
+     * Get the snapshot of event loop counters
+     * @return Counters
+     */
+    public NioSelectorStats getStats() {
+        return new NioSelectorStats(metrics, postOperationQueue.getOverflowCount());
+    }
+
+    // Internal method
+    public int getLoad() {
+        return selector.keys().size();
+    }
+
+    /**
+     * Checks if the array-backed selected key set is used
+     * @return Returns 'false' if it's disabled or the JDK selector doesn't allow to install it
+     */
+    public boolean isSelectedKeySetOptimized() {
+        return selectedKeySet != null;
+    }
+
+    // Internal method
+    public boolean isSelectorThread() {
+        return Thread.currentThread().equals(thread);
     }
 
     private void loop() {
         LOGGER.debug("Selector event loop started");
 
         while (!Thread.currentThread().isInterrupted()) {
+            final long selectStartNs = System.nanoTime();
+
             // block on getting selection keys ready to act
             int count;
             try {
-                count = selector.select(tickMs);
+                count = select();
             } catch (ClosedSelectorException e) {
                 break;
             } catch (Exception e) {
@@ -172,29 +427,19 @@ public class NioSelector {
                 break;
             }
 
-            // execute all selection key callbacks
-            if (count > 0) {
-                Set<SelectionKey> keys = selector.selectedKeys();
-
-                Iterator<SelectionKey> keyIterator = keys.iterator();
-                while (keyIterator.hasNext()) {
-                    SelectionKey selectionKey = keyIterator.next();
-
-                    if (selectionKey.isValid()) {
-                        SelectionKeyCallback callback = (SelectionKeyCallback) selectionKey.attachment();
-                        try {
-                            callback.execute(selectionKey);
-                        } catch (Exception e) {
-                            LOGGER.error("Error while executing selection key callback", e);
-                        }
-                    } else {
-                        LOGGER.debug("Selection key is invalid: {}", selectionKey);
-                    }
+            final long callbackStartNs = System.nanoTime();
 
-                    keyIterator.remove();
-                }
+            // execute all selection key callbacks
+            int callbacks = 0;
+            if (selectedKeySet != null) {
+                callbacks = processSelectedKeySet();
+            } else if (count > 0) {
+                callbacks = processSelectedKeys();
             }
 
+            metrics.recordIteration(callbackStartNs - selectStartNs, System.nanoTime() - callbackStartNs,
+                callbacks);
+
             runScheduledOperations();
 
             runPostOperations();
@@ -203,14 +448,175 @@ public class NioSelector {
         LOGGER.debug("Selector event loop has finished");
     }
 
+    private int processSelectedKeySet() {
+        // the size is re-read as a callback could select more keys with wakeup()
+        int processed = 0;
+        while (processed < selectedKeySet.size()) {
+            processSelectedKey(selectedKeySet.get(processed++));
+        }
+
+        selectedKeySet.reset();
+
+        return processed;
+    }
+
+    private int processSelectedKeys() {
+        Set<SelectionKey> keys = selector.selectedKeys();
+
+        int processed = 0;
+        Iterator<SelectionKey> keyIterator = keys.iterator();
+        while (keyIterator.hasNext()) {
+            SelectionKey selectionKey = keyIterator.next();
+            processSelectedKey(selectionKey);
+            keyIterator.remove();
+            processed++;
+        }
+
+        return processed;
+    }
+
+    private static void processSelectedKey(SelectionKey selectionKey) {
+        if (selectionKey.isValid()) {
+            SelectionKeyCallback callback = (SelectionKeyCallback) selectionKey.attachment();
+            try {
+                callback.execute(selectionKey);
+            } catch (Exception e) {
+                LOGGER.error("Error while executing selection key callback", e);
+            }
+        } else {
+            LOGGER.debug("Selection key is invalid: {}", selectionKey);
+        }
+    }
+
+    private int select() throws IOException {
+        if (hasPostOperations()) {
+            return selector.selectNow();
+        }
+
+        if (busyPollSpins > 0 || busyPollYields > 0) {
+            int count = busyPoll();
+            if (count > 0) {
+                return count;
+            }
+        }
+
+        // from now on the first submitter has to wake the selector up
+        wakeupPending.set(false);
+        try {
+            // an op could be submitted just before the flag was reset
+            if (hasPostOperations()) {
+                return selector.selectNow();
+            }
+
+            final long startNs = System.nanoTime();
+            try {
+                return selectUntilDeadline();
+            } finally {
+                metrics.addParkTime(System.nanoTime() - startNs);
+            }
+        } finally {
+            wakeupPending.set(true);
+        }
+    }
+
+    private int busyPoll() throws IOException {
+        // the selector is awake all the time so submitters don't have to wake it up
+        final long startNs = System.nanoTime();
+
+        long stopAfterNs = busyPollMaxNs > 0 ? busyPollMaxNs : Long.MAX_VALUE;
+        long deadlineNs = timerWheel.getNextDeadlineNs();
+        if (deadlineNs != Long.MAX_VALUE) {
+            stopAfterNs = Math.min(stopAfterNs, Math.max(0, deadlineNs - startNs));
+        }
+
+        long nowNs = startNs;
+        int count = 0;
+        boolean stopped = false;
+        try {
+            for (int i = 0; i < busyPollSpins && !stopped; i++) {
+                count = selector.selectNow();
+                nowNs = System.nanoTime();
+                stopped = count > 0 || hasPostOperations() || nowNs - startNs >= stopAfterNs;
+            }
+        } finally {
+            metrics.addSpinTime(nowNs - startNs);
+        }
+
+        final long yieldStartNs = nowNs;
+        try {
+            for (int i = 0; i < busyPollYields && !stopped; i++) {
+                Thread.yield();
+
+                count = selector.selectNow();
+                nowNs = System.nanoTime();
+                stopped = count > 0 || hasPostOperations() || nowNs - startNs >= stopAfterNs;
+            }
+        } finally {
+            metrics.addYieldTime(nowNs - yieldStartNs);
+        }
+
+        // nothing is selected - the caller goes on with the blocking select
+        return count;
+    }
+
+    private int selectUntilDeadline() throws IOException {
+        long timeoutMs = tickMs;
+
+        long deadlineNs = timerWheel.getNextDeadlineNs();
+        if (deadlineNs != Long.MAX_VALUE) {
+            final long remainingNs = deadlineNs - System.nanoTime();
+            if (remainingNs <= 0) {
+                return selector.selectNow();
+            }
+
+            // rounded up as select() has millisecond precision, a sub-millisecond remainder must not spin
+            long delayMs = (remainingNs + NANOS_PER_MILLI - 1) / NANOS_PER_MILLI;
+
+            timeoutMs = (tickMs > 0) ? Math.min(tickMs, delayMs) : delayMs;
+        }
+
+        if (timeoutMs > 0) {
+            return selector.select(timeoutMs);
+        } else {
+            return selector.select();
+        }
+    }
+
     private void runScheduledOperations() {
+        timerWheel.runExpired(System.nanoTime());
+    }
+
+    private boolean hasPostOperations() {
+        return !localOperationQueue.isEmpty() || !postOperationQueue.isEmpty();
+    }
+
+    private void offerWaiting(NioSelectorPostOp<?> postOperation) {
+        // backpressure: the producer waits until the selector thread drains the queue
+        while (!postOperationQueue.offer(postOperation)) {
+            wakeupSelector();
+
+            if (!open) {
+                throw new IllegalStateException("Selector is closed");
+            }
+
+            Thread.yield();
+        }
+    }
+
+    private void wakeupSelector() {
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+            metrics.wakeupIssued();
+        } else {
+            metrics.wakeupAvoided();
+        }
+    }
+
+    private void rejectPostOperations() {
         while (true) {
-            NioSelectorScheduledOp scheduledOperation = scheduledOperationQueue.peek();
-            if (scheduledOperation != null && scheduledOperation.isReady()) {
-                scheduledOperation = scheduledOperationQueue.poll();
-                if (scheduledOperation != null) {
-                    scheduledOperation.run();
-                }
+            NioSelectorPostOp postOperation = pollPostOperation();
+            if (postOperation != null) {
+                postOperation.reject();
             } else {
                 break;
             }
@@ -218,14 +624,30 @@ public class NioSelector {
     }
 
     private void runPostOperations() {
+        int depth = 0;
         while (true) {
-            NioSelectorPostOp postOperation = postOperationQueue.poll();
+            NioSelectorPostOp postOperation = pollPostOperation();
             if (postOperation != null) {
+                metrics.recordPostQueueWait(System.nanoTime() - postOperation.getCreatedNs());
                 postOperation.run();
+                depth++;
             } else {
                 break;
             }
         }
+
+        if (depth > 0) {
+            metrics.recordPostQueueDepth(depth);
+        }
+    }
+
+    private NioSelectorPostOp pollPostOperation() {
+        NioSelectorPostOp postOperation = localOperationQueue.poll();
+        if (postOperation != null) {
+            return postOperation;
+        }
+
+        return postOperationQueue.poll();
     }
 
 }
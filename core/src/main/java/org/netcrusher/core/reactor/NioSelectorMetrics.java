@@ -0,0 +1,123 @@
+package org.netcrusher.core.reactor;
+
+import org.netcrusher.core.meter.HistogramImpl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters and histograms of selector's event loop. Wakeup counters are updated by any thread,
+ * everything else is updated only by selector's thread and could be read by any thread at any time.
+ */
+final class NioSelectorMetrics {
+
+    private final LongAdder wakeupsIssued;
+
+    private final LongAdder wakeupsAvoided;
+
+    private final HistogramImpl selectTimeNs;
+
+    private final HistogramImpl callbackTimeNs;
+
+    private final HistogramImpl callbacksPerIteration;
+
+    private final HistogramImpl timerLatenessNs;
+
+    private final HistogramImpl postQueueDepth;
+
+    private final HistogramImpl postQueueWaitNs;
+
+    private volatile long spinTimeNs;
+
+    private volatile long yieldTimeNs;
+
+    private volatile long parkTimeNs;
+
+    NioSelectorMetrics() {
+        this.wakeupsIssued = new LongAdder();
+        this.wakeupsAvoided = new LongAdder();
+        this.selectTimeNs = new HistogramImpl();
+        this.callbackTimeNs = new HistogramImpl();
+        this.callbacksPerIteration = new HistogramImpl();
+        this.timerLatenessNs = new HistogramImpl();
+        this.postQueueDepth = new HistogramImpl();
+        this.postQueueWaitNs = new HistogramImpl();
+    }
+
+    void wakeupIssued() {
+        wakeupsIssued.increment();
+    }
+
+    void wakeupAvoided() {
+        wakeupsAvoided.increment();
+    }
+
+    void addSpinTime(long elapsedNs) {
+        spinTimeNs += elapsedNs;
+    }
+
+    void addYieldTime(long elapsedNs) {
+        yieldTimeNs += elapsedNs;
+    }
+
+    void addParkTime(long elapsedNs) {
+        parkTimeNs += elapsedNs;
+    }
+
+    void recordIteration(long selectNs, long callbackNs, int callbacks) {
+        selectTimeNs.record(selectNs);
+        callbackTimeNs.record(callbackNs);
+        callbacksPerIteration.record(callbacks);
+    }
+
+    void recordPostQueueWait(long waitNs) {
+        postQueueWaitNs.record(waitNs);
+    }
+
+    void recordPostQueueDepth(int depth) {
+        postQueueDepth.record(depth);
+    }
+
+    HistogramImpl getTimerLatenessNs() {
+        return timerLatenessNs;
+    }
+
+    long getWakeupsIssued() {
+        return wakeupsIssued.sum();
+    }
+
+    long getWakeupsAvoided() {
+        return wakeupsAvoided.sum();
+    }
+
+    long getSpinTimeNs() {
+        return spinTimeNs;
+    }
+
+    long getYieldTimeNs() {
+        return yieldTimeNs;
+    }
+
+    long getParkTimeNs() {
+        return parkTimeNs;
+    }
+
+    HistogramImpl getSelectTimeNs() {
+        return selectTimeNs;
+    }
+
+    HistogramImpl getCallbackTimeNs() {
+        return callbackTimeNs;
+    }
+
+    HistogramImpl getCallbacksPerIteration() {
+        return callbacksPerIteration;
+    }
+
+    HistogramImpl getPostQueueDepth() {
+        return postQueueDepth;
+    }
+
+    HistogramImpl getPostQueueWaitNs() {
+        return postQueueWaitNs;
+    }
+}
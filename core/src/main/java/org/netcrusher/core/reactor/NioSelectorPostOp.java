@@ -12,9 +12,12 @@ public class NioSelectorPostOp<T> implements Runnable {
 
     private final Callable<T> delegate;
 
+    private final long createdNs;
+
     NioSelectorPostOp(Callable<T> delegate) {
         this.delegate = delegate;
         this.future = new CompletableFuture<>();
+        this.createdNs = System.nanoTime();
     }
 
     @Override
@@ -27,6 +30,18 @@ public class NioSelectorPostOp<T> implements Runnable {
         }
     }
 
+    void reject() {
+        future.completeExceptionally(new IllegalStateException("Selector is closed"));
+    }
+
+    long getCreatedNs() {
+        return createdNs;
+    }
+
+    CompletableFuture<T> getFuture() {
+        return future;
+    }
+
     T await() throws InterruptedException, ExecutionException {
         return future.get();
     }
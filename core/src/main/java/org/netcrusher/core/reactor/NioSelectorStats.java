@@ -0,0 +1,157 @@
+package org.netcrusher.core.reactor;
+
+import org.netcrusher.core.meter.HistogramSnapshot;
+
+import java.io.Serializable;
+
+/**
+ * Snapshot of selector's event loop counters
+ */
+public class NioSelectorStats implements Serializable {
+
+    private final long wakeupsIssued;
+
+    private final long wakeupsAvoided;
+
+    private final long postQueueOverflows;
+
+    private final long spinTimeNs;
+
+    private final long yieldTimeNs;
+
+    private final long parkTimeNs;
+
+    private final HistogramSnapshot selectTimeNs;
+
+    private final HistogramSnapshot callbackTimeNs;
+
+    private final HistogramSnapshot callbacksPerIteration;
+
+    private final HistogramSnapshot timerLatenessNs;
+
+    private final HistogramSnapshot postQueueDepth;
+
+    private final HistogramSnapshot postQueueWaitNs;
+
+    NioSelectorStats(NioSelectorMetrics metrics, long postQueueOverflows) {
+        this.wakeupsIssued = metrics.getWakeupsIssued();
+        this.wakeupsAvoided = metrics.getWakeupsAvoided();
+        this.postQueueOverflows = postQueueOverflows;
+        this.spinTimeNs = metrics.getSpinTimeNs();
+        this.yieldTimeNs = metrics.getYieldTimeNs();
+        this.parkTimeNs = metrics.getParkTimeNs();
+        this.selectTimeNs = metrics.getSelectTimeNs().getSnapshot();
+        this.callbackTimeNs = metrics.getCallbackTimeNs().getSnapshot();
+        this.callbacksPerIteration = metrics.getCallbacksPerIteration().getSnapshot();
+        this.timerLatenessNs = metrics.getTimerLatenessNs().getSnapshot();
+        this.postQueueDepth = metrics.getPostQueueDepth().getSnapshot();
+        this.postQueueWaitNs = metrics.getPostQueueWaitNs().getSnapshot();
+    }
+
+    /**
+     * How many times the sleeping selector was woken up by other threads
+     * @return Count of wakeups
+     */
+    public long getWakeupsIssued() {
+        return wakeupsIssued;
+    }
+
+    /**
+     * How many wakeups were not made as the selector was already awake or going to wake up
+     * @return Count of avoided wakeups
+     */
+    public long getWakeupsAvoided() {
+        return wakeupsAvoided;
+    }
+
+    /**
+     * How many times an operation didn't fit into the bounded post queue. A waiting producer is counted on
+     * every retry, a posted operation is put into the overflow queue, a datagram hand-over is refused
+     * @return Count of overflows
+     */
+    public long getPostQueueOverflows() {
+        return postQueueOverflows;
+    }
+
+    /**
+     * Time spent in the spin phase of busy-poll mode
+     * @return Time in nanoseconds
+     */
+    public long getSpinTimeNs() {
+        return spinTimeNs;
+    }
+
+    /**
+     * Time spent in the yield phase of busy-poll mode
+     * @return Time in nanoseconds
+     */
+    public long getYieldTimeNs() {
+        return yieldTimeNs;
+    }
+
+    /**
+     * Time spent blocked in select()
+     * @return Time in nanoseconds
+     */
+    public long getParkTimeNs() {
+        return parkTimeNs;
+    }
+
+    /**
+     * Time of each select() call of the event loop including busy polling. The sum is the time the loop
+     * waited for I/O events
+     * @return Histogram of time in nanoseconds per loop iteration
+     */
+    public HistogramSnapshot getSelectTimeNs() {
+        return selectTimeNs;
+    }
+
+    /**
+     * Time the event loop spent in I/O callbacks. The sum is the time the loop was busy with I/O
+     * @return Histogram of time in nanoseconds per loop iteration
+     */
+    public HistogramSnapshot getCallbackTimeNs() {
+        return callbackTimeNs;
+    }
+
+    /**
+     * How many I/O callbacks the event loop made on every iteration
+     * @return Histogram of callback count per loop iteration
+     */
+    public HistogramSnapshot getCallbacksPerIteration() {
+        return callbacksPerIteration;
+    }
+
+    /**
+     * How late scheduled operations were run (actual minus scheduled time)
+     * @return Histogram of lateness in nanoseconds per operation
+     */
+    public HistogramSnapshot getTimerLatenessNs() {
+        return timerLatenessNs;
+    }
+
+    /**
+     * How many post operations were waiting when the event loop drained the queue
+     * @return Histogram of queue depth per non-empty drain
+     */
+    public HistogramSnapshot getPostQueueDepth() {
+        return postQueueDepth;
+    }
+
+    /**
+     * How long post operations waited in the queue before they were run
+     * @return Histogram of wait time in nanoseconds per operation
+     */
+    public HistogramSnapshot getPostQueueWaitNs() {
+        return postQueueWaitNs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("wakeups issued=%d, wakeups avoided=%d, post queue overflows=%d, "
+                + "spin=%d ns, yield=%d ns, park=%d ns, select ns: [%s], callback ns: [%s], "
+                + "callbacks: [%s], timer lateness ns: [%s], post queue depth: [%s], post queue wait ns: [%s]",
+            wakeupsIssued, wakeupsAvoided, postQueueOverflows, spinTimeNs, yieldTimeNs, parkTimeNs,
+            selectTimeNs, callbackTimeNs, callbacksPerIteration, timerLatenessNs, postQueueDepth, postQueueWaitNs);
+    }
+}
@@ -0,0 +1,388 @@
+package org.netcrusher.core.reactor;
+
+import org.netcrusher.core.meter.HistogramImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hierarchical hashed timing wheel for selector's scheduled operations. Each of the levels has 256 slots,
+ * a slot on the first level covers one tick (resolution), a slot on the next level covers 256 slots of the
+ * previous one and so on. Insert and cancel are O(1), timer nodes are recycled. Not thread-safe - the wheel
+ * is used only from selector's thread.
+ */
+class NioTimerWheel {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NioTimerWheel.class);
+
+    private static final int LEVEL_BITS = 8;
+
+    private static final int LEVEL_SIZE = 1 << LEVEL_BITS;
+
+    private static final int LEVEL_MASK = LEVEL_SIZE - 1;
+
+    private static final int LEVEL_COUNT = 4;
+
+    private static final long MAX_TICK_DELTA = (1L << (LEVEL_BITS * LEVEL_COUNT)) - 1;
+
+    private static final int INITIAL_NODE_CAPACITY = 64;
+
+    private static final int LEVEL_FREE = -1;
+
+    private static final int LEVEL_RUNNING = -2;
+
+    private static final int INDEX_BITS = 32;
+
+    private static final long INDEX_MASK = 0xFFFFFFFFL;
+
+    private final long resolutionNs;
+
+    private final long originNs;
+
+    private final Node[][] slots;
+
+    private final int[] levelCounts;
+
+    private final HistogramImpl latenessNs;
+
+    private Node[] nodes;
+
+    private int nodeCount;
+
+    private Node freeHead;
+
+    private Node runningHead;
+
+    private long baseTick;
+
+    private int size;
+
+    NioTimerWheel(long resolutionNs, long originNs) {
+        this(resolutionNs, originNs, null);
+    }
+
+    NioTimerWheel(long resolutionNs, long originNs, HistogramImpl latenessNs) {
+        if (resolutionNs <= 0) {
+            throw new IllegalArgumentException("Timer resolution must be positive");
+        }
+
+        this.resolutionNs = resolutionNs;
+        this.originNs = originNs;
+        this.slots = new Node[LEVEL_COUNT][LEVEL_SIZE];
+        this.levelCounts = new int[LEVEL_COUNT];
+        this.latenessNs = latenessNs;
+        this.nodes = new Node[INITIAL_NODE_CAPACITY];
+        this.nodeCount = 0;
+        this.baseTick = 0;
+        this.size = 0;
+    }
+
+    /**
+     * Adds a timer
+     * @param deadlineNs Deadline in System.nanoTime() scale
+     * @param operation Operation to run on deadline
+     * @return Timer id for cancel()
+     */
+    long add(long deadlineNs, Runnable operation) {
+        Node node = allocate();
+        node.tick = toTickCeil(deadlineNs);
+        node.deadlineNs = deadlineNs;
+        node.operation = operation;
+
+        place(node);
+        size++;
+
+        return ((long) node.generation << INDEX_BITS) | node.index;
+    }
+
+    /**
+     * Cancels the timer if it has not been run yet
+     * @param timerId Timer id returned by add()
+     * @return Returns 'true' if the timer was pending and is cancelled now
+     */
+    boolean cancel(long timerId) {
+        int index = (int) (timerId & INDEX_MASK);
+        int generation = (int) (timerId >>> INDEX_BITS);
+
+        if (index < 0 || index >= nodeCount) {
+            return false;
+        }
+
+        Node node = nodes[index];
+        if (node.generation != generation || node.level == LEVEL_FREE) {
+            return false;
+        }
+
+        unlink(node);
+        release(node);
+        size--;
+
+        return true;
+    }
+
+    /**
+     * Runs all operations which deadline has come
+     * @param nowNs Current time in System.nanoTime() scale
+     * @return Count of executed operations
+     */
+    int runExpired(long nowNs) {
+        final long nowTick = toTickFloor(nowNs);
+
+        int executed = 0;
+        while (baseTick <= nowTick) {
+            if (size == 0) {
+                baseTick = nowTick + 1;
+                break;
+            }
+
+            final int index = (int) (baseTick & LEVEL_MASK);
+            if (index == 0) {
+                cascade();
+            }
+
+            final long tick = baseTick++;
+
+            // the slot is detached first so the operations may add timers to the same slot safely
+            runningHead = detach(0, index);
+            while (runningHead != null) {
+                Node node = runningHead;
+                unlink(node);
+
+                if (node.tick > tick) {
+                    // a far timer that was placed with a clamped tick
+                    place(node);
+                } else {
+                    Runnable operation = node.operation;
+                    if (latenessNs != null) {
+                        latenessNs.record(nowNs - node.deadlineNs);
+                    }
+
+                    release(node);
+                    size--;
+
+                    try {
+                        operation.run();
+                    } catch (Exception e) {
+                        LOGGER.error("Error while executing scheduled selector op", e);
+                    }
+
+                    executed++;
+                }
+            }
+
+            skipEmpty(nowTick);
+        }
+
+        return executed;
+    }
+
+    /**
+     * Returns the time the wheel should be advanced at. Could be earlier than the real deadline of the
+     * nearest timer when the timer is still on a higher level
+     * @return Time in System.nanoTime() scale or Long.MAX_VALUE if there are no timers
+     */
+    long getNextDeadlineNs() {
+        if (size == 0) {
+            return Long.MAX_VALUE;
+        }
+
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            if (levelCounts[level] > 0) {
+                final int shift = LEVEL_BITS * level;
+                final long blockTicks = 1L << shift;
+
+                // the first tick on this level when a slot is run or cascaded
+                long tick = level == 0 ? baseTick : ((baseTick + blockTicks - 1) >>> shift) << shift;
+
+                Node[] levelSlots = slots[level];
+                for (int i = 0; i < LEVEL_SIZE; i++) {
+                    if (levelSlots[(int) ((tick >>> shift) & LEVEL_MASK)] != null) {
+                        return originNs + tick * resolutionNs;
+                    }
+                    tick += blockTicks;
+                }
+            }
+        }
+
+        // all the timers are being run right now
+        return originNs + baseTick * resolutionNs;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getResolutionNs() {
+        return resolutionNs;
+    }
+
+    private void cascade() {
+        for (int level = 1; level < LEVEL_COUNT; level++) {
+            final int index = (int) ((baseTick >>> (LEVEL_BITS * level)) & LEVEL_MASK);
+
+            Node node = detach(level, index);
+            while (node != null) {
+                Node next = node.next;
+                node.prev = null;
+                node.next = null;
+                place(node);
+                node = next;
+            }
+
+            if (index != 0) {
+                break;
+            }
+        }
+    }
+
+    private void skipEmpty(long nowTick) {
+        // jumps straight to the next cascade boundary when the lower levels are empty
+        int level = 0;
+        while (level < LEVEL_COUNT && levelCounts[level] == 0) {
+            level++;
+        }
+
+        if (level > 0) {
+            final long blockTicks = 1L << (LEVEL_BITS * level);
+            final long boundaryTick = level < LEVEL_COUNT
+                ? ((baseTick + blockTicks - 1) / blockTicks) * blockTicks
+                : nowTick + 1;
+
+            baseTick = Math.max(baseTick, Math.min(boundaryTick, nowTick + 1));
+        }
+    }
+
+    private void place(Node node) {
+        long delta = node.tick - baseTick;
+        if (delta < 0) {
+            delta = 0;
+        } else if (delta > MAX_TICK_DELTA) {
+            delta = MAX_TICK_DELTA;
+        }
+
+        final long placementTick = baseTick + delta;
+
+        int level = 0;
+        while (level < LEVEL_COUNT - 1 && delta >= (1L << (LEVEL_BITS * (level + 1)))) {
+            level++;
+        }
+
+        final int index = (int) ((placementTick >>> (LEVEL_BITS * level)) & LEVEL_MASK);
+
+        Node head = slots[level][index];
+        node.level = level;
+        node.slot = index;
+        node.prev = null;
+        node.next = head;
+        if (head != null) {
+            head.prev = node;
+        }
+        slots[level][index] = node;
+
+        levelCounts[level]++;
+    }
+
+    private Node detach(int level, int index) {
+        Node head = slots[level][index];
+        slots[level][index] = null;
+
+        int count = 0;
+        for (Node node = head; node != null; node = node.next) {
+            node.level = LEVEL_RUNNING;
+            count++;
+        }
+        levelCounts[level] -= count;
+
+        return head;
+    }
+
+    private void unlink(Node node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else if (node.level == LEVEL_RUNNING) {
+            runningHead = node.next;
+        } else {
+            slots[node.level][node.slot] = node.next;
+        }
+
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        }
+
+        if (node.level >= 0) {
+            levelCounts[node.level]--;
+        }
+
+        node.prev = null;
+        node.next = null;
+    }
+
+    private Node allocate() {
+        Node node = freeHead;
+        if (node != null) {
+            freeHead = node.next;
+            node.next = null;
+        } else {
+            if (nodeCount == nodes.length) {
+                Node[] expanded = new Node[nodes.length * 2];
+                System.arraycopy(nodes, 0, expanded, 0, nodeCount);
+                nodes = expanded;
+            }
+
+            node = new Node(nodeCount);
+            nodes[nodeCount++] = node;
+        }
+
+        return node;
+    }
+
+    private void release(Node node) {
+        node.operation = null;
+        node.level = LEVEL_FREE;
+        node.generation++;
+        node.prev = null;
+        node.next = freeHead;
+        freeHead = node;
+    }
+
+    private long toTickCeil(long timeNs) {
+        long elapsedNs = timeNs - originNs;
+        if (elapsedNs <= 0) {
+            return 0;
+        }
+
+        long tick = elapsedNs / resolutionNs;
+        return (elapsedNs % resolutionNs == 0) ? tick : tick + 1;
+    }
+
+    private long toTickFloor(long timeNs) {
+        long elapsedNs = timeNs - originNs;
+        return elapsedNs <= 0 ? 0 : elapsedNs / resolutionNs;
+    }
+
+    private static final class Node {
+
+        private final int index;
+
+        private int generation;
+
+        private long tick;
+
+        private long deadlineNs;
+
+        private Runnable operation;
+
+        private int level;
+
+        private int slot;
+
+        private Node prev;
+
+        private Node next;
+
+        private Node(int index) {
+            this.index = index;
+            this.generation = 0;
+            this.level = LEVEL_FREE;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.netcrusher.core.throttle;
+
+/**
+ * <p>Throttler which paces a TCP stream byte by byte. Instead of delaying a whole buffer the channel sends
+ * only the bytes which are allowed right now, leaves the rest in the queue and comes back for the next slice.
+ * So a slow emulated link has realistic spacing between segments rather than bursts of whole buffers.</p>
+ *
+ * <p>For datagrams (and anywhere a whole buffer should be delayed) the pacing throttler works
+ * as an usual throttler with calculateDelayNs()</p>
+ */
+public interface PacingThrottler extends Throttler {
+
+    /**
+     * Calculate how many bytes could be sent right now
+     * @return Count of bytes or 0 if the next slice is not ready yet
+     */
+    long calculateAllowedBytes();
+
+    /**
+     * Calculate how long the channel should wait before the next slice
+     * @return Delay in nanoseconds
+     */
+    long calculateSliceDelayNs();
+
+    /**
+     * Register bytes which have been actually sent
+     * @param bytes Count of bytes (not greater than allowed)
+     */
+    void registerSentBytes(long bytes);
+
+}
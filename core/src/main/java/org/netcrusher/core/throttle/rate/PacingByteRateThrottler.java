@@ -0,0 +1,134 @@
+package org.netcrusher.core.throttle.rate;
+
+import org.netcrusher.core.chronometer.Chronometer;
+import org.netcrusher.core.chronometer.SystemChronometer;
+import org.netcrusher.core.throttle.PacingThrottler;
+import org.netcrusher.core.throttle.Throttler;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throttler limits byte count per period and paces the stream: bytes are released in small slices
+ * evenly spread in time. Each byte takes its own share of the period. The link accumulates credit for
+ * a short burst at most (a few slices but not less than 20 ms), so a late wakeup doesn't reduce the rate
+ * and an idle link doesn't make a long burst.
+ */
+public class PacingByteRateThrottler implements PacingThrottler {
+
+    public static final long DEFAULT_SLICE_MS = 1;
+
+    public static final int BURST_SLICES = 4;
+
+    private final double periodNsPerByte;
+
+    private final double sliceNs;
+
+    private final double burstNs;
+
+    private final Chronometer chronometer;
+
+    private final long originNs;
+
+    // the moment when all bytes registered so far are expected to be sent
+    private double markerNs;
+
+    /**
+     * Create a new throttler with the default slice of 1 millisecond
+     * @param rate How many byte are expected per period
+     * @param time Period time
+     * @param timeUnit Period time unit
+     */
+    public PacingByteRateThrottler(long rate, long time, TimeUnit timeUnit) {
+        this(rate, time, timeUnit, DEFAULT_SLICE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Create a new throttler
+     * @param rate How many byte are expected per period
+     * @param time Period time
+     * @param timeUnit Period time unit
+     * @param slice How long a single slice is. The channel is waken up once per slice at most
+     * @param sliceTimeUnit Slice time unit
+     */
+    public PacingByteRateThrottler(long rate, long time, TimeUnit timeUnit, long slice, TimeUnit sliceTimeUnit) {
+        this(rate, time, timeUnit, slice, sliceTimeUnit, SystemChronometer.INSTANCE);
+    }
+
+    protected PacingByteRateThrottler(long rate, long time, TimeUnit timeUnit, long slice, TimeUnit sliceTimeUnit,
+                                      Chronometer chronometer)
+    {
+        final long periodNs = timeUnit.toNanos(time);
+
+        if (rate < 1) {
+            throw new IllegalArgumentException("Rate value is invalid");
+        }
+
+        if (periodNs > TimeUnit.HOURS.toNanos(AbstractRateThrottler.MAX_PERIOD_HOURS)) {
+            throw new IllegalArgumentException("Period is too high");
+        }
+        if (periodNs <= 0) {
+            throw new IllegalArgumentException("Period is too small");
+        }
+
+        final long sliceNs = sliceTimeUnit.toNanos(slice);
+        if (sliceNs <= 0) {
+            throw new IllegalArgumentException("Slice is too small");
+        }
+
+        this.periodNsPerByte = 1.0 * periodNs / rate;
+
+        // a slice must allow at least one byte
+        this.sliceNs = Math.max(sliceNs, periodNsPerByte);
+        this.burstNs = Math.max(this.sliceNs * BURST_SLICES,
+            TimeUnit.MILLISECONDS.toNanos(AbstractRateThrottler.MIN_AUTOFACTOR_PERIOD_MS));
+        this.chronometer = chronometer;
+
+        // time is counted from the creation so double keeps nanosecond precision
+        this.originNs = chronometer.getTickNs();
+        this.markerNs = 0;
+    }
+
+    @Override
+    public long calculateAllowedBytes() {
+        final long nowNs = chronometer.getTickNs() - originNs;
+
+        final double creditNs = nowNs + burstNs - Math.max(markerNs, nowNs);
+
+        // credit is given by whole slices, otherwise the channel would spin on tiny writes
+        if (creditNs < sliceNs) {
+            return 0;
+        }
+
+        return (long) (creditNs / periodNsPerByte);
+    }
+
+    @Override
+    public long calculateSliceDelayNs() {
+        final long nowNs = chronometer.getTickNs() - originNs;
+
+        // wait until the whole slice is available
+        return Math.max(1, (long) Math.ceil(markerNs - burstNs + sliceNs - nowNs));
+    }
+
+    @Override
+    public void registerSentBytes(long bytes) {
+        final long nowNs = chronometer.getTickNs() - originNs;
+
+        markerNs = Math.max(markerNs, nowNs) + bytes * periodNsPerByte;
+    }
+
+    @Override
+    public long calculateDelayNs(ByteBuffer bb) {
+        final long nowNs = chronometer.getTickNs() - originNs;
+
+        markerNs = Math.max(markerNs, nowNs);
+
+        final long delayNs = Math.round(markerNs - burstNs - nowNs);
+
+        markerNs += bb.remaining() * periodNsPerByte;
+
+        return delayNs > 0 ? delayNs : Throttler.NO_DELAY_NS;
+    }
+
+}
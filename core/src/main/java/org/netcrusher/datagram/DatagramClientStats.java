@@ -0,0 +1,106 @@
+package org.netcrusher.datagram;
+
+import org.netcrusher.core.meter.RateMeterSnapshot;
+
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+
+/**
+ * Immutable statistics of a client
+ */
+public class DatagramClientStats implements Serializable {
+
+    private final InetSocketAddress clientAddress;
+
+    private final RateMeterSnapshot readBytes;
+
+    private final RateMeterSnapshot sentBytes;
+
+    private final RateMeterSnapshot readPackets;
+
+    private final RateMeterSnapshot sentPackets;
+
+    private final int queueSize;
+
+    private final long idleDurationMs;
+
+    DatagramClientStats(InetSocketAddress clientAddress,
+                        RateMeterSnapshot readBytes, RateMeterSnapshot sentBytes,
+                        RateMeterSnapshot readPackets, RateMeterSnapshot sentPackets,
+                        int queueSize, long idleDurationMs)
+    {
+        this.clientAddress = clientAddress;
+        this.readBytes = readBytes;
+        this.sentBytes = sentBytes;
+        this.readPackets = readPackets;
+        this.sentPackets = sentPackets;
+        this.queueSize = queueSize;
+        this.idleDurationMs = idleDurationMs;
+    }
+
+    /**
+     * Get client address
+     * @return Client address
+     */
+    public InetSocketAddress getClientAddress() {
+        return clientAddress;
+    }
+
+    /**
+     * Get bytes read from the target
+     * @return Meter snapshot
+     * @see DatagramCrusher#getClientByteMeters(InetSocketAddress)
+     */
+    public RateMeterSnapshot getReadBytes() {
+        return readBytes;
+    }
+
+    /**
+     * Get bytes sent to the target
+     * @return Meter snapshot
+     * @see DatagramCrusher#getClientByteMeters(InetSocketAddress)
+     */
+    public RateMeterSnapshot getSentBytes() {
+        return sentBytes;
+    }
+
+    /**
+     * Get datagrams read from the target
+     * @return Meter snapshot
+     * @see DatagramCrusher#getClientPacketMeters(InetSocketAddress)
+     */
+    public RateMeterSnapshot getReadPackets() {
+        return readPackets;
+    }
+
+    /**
+     * Get datagrams sent to the target
+     * @return Meter snapshot
+     * @see DatagramCrusher#getClientPacketMeters(InetSocketAddress)
+     */
+    public RateMeterSnapshot getSentPackets() {
+        return sentPackets;
+    }
+
+    /**
+     * Get count of datagrams which wait to be sent to the target
+     * @return Count of datagrams
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Get how long the client has not sent or received anything
+     * @return Idle duration in milliseconds
+     */
+    public long getIdleDurationMs() {
+        return idleDurationMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("client=%s, read=[%s], sent=[%s], queue=%d",
+            clientAddress, readBytes, sentBytes, queueSize);
+    }
+}
@@ -2,8 +2,11 @@ package org.netcrusher.datagram;
 
 import org.netcrusher.NetCrusher;
 import org.netcrusher.core.buffer.BufferOptions;
+import org.netcrusher.core.buffer.BufferPool;
 import org.netcrusher.core.meter.RateMeters;
+import org.netcrusher.core.nio.ReadBudgetOptions;
 import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioSelector;
 import org.netcrusher.core.state.BitState;
 import org.netcrusher.datagram.callback.DatagramClientCreation;
 import org.netcrusher.datagram.callback.DatagramClientDeletion;
@@ -14,7 +17,13 @@ import org.slf4j.LoggerFactory;
 import java.net.InetSocketAddress;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
@@ -53,6 +62,8 @@ public class DatagramCrusher implements NetCrusher {
 
     private final BufferOptions bufferOptions;
 
+    private final ReadBudgetOptions readBudgetOptions;
+
     private final DatagramFilters filters;
 
     private final DatagramClientCreation creationListener;
@@ -61,9 +72,14 @@ public class DatagramCrusher implements NetCrusher {
 
     private final boolean deferredListeners;
 
+    private final BufferPool bufferPool;
+
     private final State state;
 
-    private DatagramInner inner;
+    private final LongAdder droppedHandOvers;
+
+    // read without the primary loop by getClientStats()
+    private volatile DatagramInner inner;
 
     public DatagramCrusher(DatagramCrusherOptions options) {
         if (options == null) {
@@ -87,11 +103,22 @@ public class DatagramCrusher implements NetCrusher {
         this.bindBeforeConnectAddress = options.getBindBeforeConnectAddress();
         this.socketOptions = options.getSocketOptions().copy();
         this.bufferOptions = options.getBufferOptions().copy();
+        this.readBudgetOptions = options.getReadBudgetOptions().copy();
         this.creationListener = options.getCreationListener();
         this.deletionListener = options.getDeletionListener();
         this.deferredListeners = options.isDeferredListeners();
+        this.bufferPool = new BufferPool(bufferOptions, reactor.getMemoryBudget());
 
         this.state = new State(State.CLOSED);
+        this.droppedHandOvers = new LongAdder();
+    }
+
+    ReadBudgetOptions getReadBudgetOptions() {
+        return readBudgetOptions;
+    }
+
+    BufferPool getBufferPool() {
+        return bufferPool;
     }
 
     void notifyOuterCreated(DatagramOuter outer) {
@@ -142,6 +169,8 @@ public class DatagramCrusher implements NetCrusher {
                 this.inner.close();
                 this.inner = null;
 
+                bufferPool.checkLeaks();
+
                 state.set(State.CLOSED);
 
                 LOGGER.info("DatagramCrusher <{}>-<{}> is closed", bindAddress, connectAddress);
@@ -236,16 +265,23 @@ public class DatagramCrusher implements NetCrusher {
 
     @Override
     public RateMeters getClientByteMeters(InetSocketAddress clientAddress) {
-        return reactor.getSelector().execute(() -> {
-            if (state.not(State.CLOSED)) {
-                DatagramOuter outer = inner.getOuter(clientAddress);
-                if (outer != null) {
-                    return outer.getByteMeters();
-                }
+        return reactor.getSelector().execute(() -> doGetClientByteMeters(clientAddress));
+    }
+
+    @Override
+    public CompletableFuture<RateMeters> getClientByteMetersAsync(InetSocketAddress clientAddress) {
+        return reactor.getSelector().submit(() -> doGetClientByteMeters(clientAddress));
+    }
+
+    private RateMeters doGetClientByteMeters(InetSocketAddress clientAddress) {
+        if (state.not(State.CLOSED)) {
+            DatagramOuter outer = inner.getOuter(clientAddress);
+            if (outer != null) {
+                return outer.getByteMeters();
             }
+        }
 
-            return null;
-        });
+        return null;
     }
 
     /**
@@ -266,6 +302,29 @@ public class DatagramCrusher implements NetCrusher {
         });
     }
 
+    /**
+     * Get statistics of all clients at once. Clients are read without the primary loop and each loop takes
+     * statistics of its clients in a single operation, so the call doesn't cost a round-trip per client
+     * @param resetPeriod True if periods of all meters should be reset
+     * @return Immutable map of statistics by client address
+     */
+    public Map<InetSocketAddress, DatagramClientStats> getClientStats(boolean resetPeriod) {
+        final DatagramInner currentInner = this.inner;
+        if (currentInner == null) {
+            return Collections.emptyMap();
+        }
+
+        List<DatagramClientStats> stats = NioSelector.collectAll(currentInner.getOuters(),
+            DatagramOuter::getSelector, (outer) -> outer.getStats(resetPeriod));
+
+        Map<InetSocketAddress, DatagramClientStats> result = new LinkedHashMap<>(stats.size() * 2);
+        for (DatagramClientStats item : stats) {
+            result.put(item.getClientAddress(), item);
+        }
+
+        return Collections.unmodifiableMap(result);
+    }
+
     /**
      * Get inner socket byte meters
      * @return Rate meters or null
@@ -296,13 +355,43 @@ public class DatagramCrusher implements NetCrusher {
 
     @Override
     public boolean closeClient(InetSocketAddress clientAddress) {
-        return reactor.getSelector().execute(() -> {
+        return reactor.getSelector().execute(() -> doCloseClient(clientAddress));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> closeClientAsync(InetSocketAddress clientAddress) {
+        return reactor.getSelector().submit(() -> doCloseClient(clientAddress));
+    }
+
+    @Override
+    public int closeClients(Collection<InetSocketAddress> clientAddresses) {
+        // outers are taken away at once and then each loop closes all its outers in a single operation
+        List<DatagramOuter> removed = reactor.getSelector().execute(() -> {
             if (state.not(State.CLOSED)) {
-                return inner.closeOuter(clientAddress);
+                return clientAddresses.stream()
+                    .map(inner::removeOuter)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
             } else {
-                return false;
+                return Collections.<DatagramOuter>emptyList();
             }
         });
+
+        List<DatagramOuter> closed = NioSelector.collectAll(removed, DatagramOuter::getSelector, (outer) -> {
+            outer.close();
+            notifyOuterDeleted(outer);
+            return outer;
+        });
+
+        return closed.size();
+    }
+
+    private boolean doCloseClient(InetSocketAddress clientAddress) {
+        if (state.not(State.CLOSED)) {
+            return inner.closeOuter(clientAddress);
+        } else {
+            return false;
+        }
     }
 
     /**
@@ -321,6 +410,20 @@ public class DatagramCrusher implements NetCrusher {
         });
     }
 
+    /**
+     * Get the number of datagrams dropped because the loop they were handed over to had its post queue full.
+     * Datagrams are handed over when the inner socket and the client socket live on different loops
+     * @return Count of dropped datagrams since the crusher is created
+     * @see org.netcrusher.core.reactor.NioReactorBuilder#withPostQueueCapacity(int)
+     */
+    public long getDroppedHandOverCount() {
+        return droppedHandOvers.sum();
+    }
+
+    void handOverDropped() {
+        droppedHandOvers.increment();
+    }
+
     @Override
     public int getClientTotalCount() {
         return reactor.getSelector().execute(() -> {
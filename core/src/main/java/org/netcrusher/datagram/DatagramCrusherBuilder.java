@@ -180,6 +180,40 @@ public final class DatagramCrusherBuilder {
         return this;
     }
 
+    /**
+     * Set whether every buffer taken from the pool should remember where it was taken. Buffers which
+     * are not returned when the crusher is closed are reported with these stack traces. Useful for
+     * debugging only as every buffer acquisition becomes expensive
+     * @param leakDetection Set true to enable leak detection (disabled by default)
+     * @return This builder instance to chain with other methods
+     */
+    public DatagramCrusherBuilder withBufferLeakDetection(boolean leakDetection) {
+        this.options.getBufferOptions().setLeakDetection(leakDetection);
+        return this;
+    }
+
+    /**
+     * Set how many datagrams a socket may receive in one selector callback. When the budget is exhausted
+     * the socket yields to other sockets of the same selector and continues on the next loop iteration
+     * @param readBudgetDatagrams Count of datagrams or 0 if not limited (default)
+     * @return This builder instance to chain with other methods
+     */
+    public DatagramCrusherBuilder withReadBudgetDatagrams(long readBudgetDatagrams) {
+        this.options.getReadBudgetOptions().setCount(readBudgetDatagrams);
+        return this;
+    }
+
+    /**
+     * Set how long a socket may receive datagrams in one selector callback. When the budget is exhausted
+     * the socket yields to other sockets of the same selector and continues on the next loop iteration
+     * @param readBudgetNs Duration in nanoseconds or 0 if not limited (default)
+     * @return This builder instance to chain with other methods
+     */
+    public DatagramCrusherBuilder withReadBudgetNs(long readBudgetNs) {
+        this.options.getReadBudgetOptions().setDurationNs(readBudgetNs);
+        return this;
+    }
+
     /**
      * Set outgoing (from the inner to the outer) transform filter factory
      * @param filterFactory Filter factory
@@ -3,6 +3,7 @@ package org.netcrusher.datagram;
 import org.netcrusher.core.buffer.BufferOptions;
 import org.netcrusher.core.filter.PassFilterFactory;
 import org.netcrusher.core.filter.TransformFilterFactory;
+import org.netcrusher.core.nio.ReadBudgetOptions;
 import org.netcrusher.core.reactor.NioReactor;
 import org.netcrusher.core.throttle.Throttler;
 import org.netcrusher.core.throttle.ThrottlerFactory;
@@ -47,6 +48,8 @@ public class DatagramCrusherOptions {
 
     private BufferOptions bufferOptions;
 
+    private ReadBudgetOptions readBudgetOptions;
+
     public DatagramCrusherOptions() {
         this.socketOptions = new DatagramCrusherSocketOptions();
 
@@ -55,6 +58,8 @@ public class DatagramCrusherOptions {
         this.bufferOptions.setSize(DEFAULT_BUFFER_SIZE);
         this.bufferOptions.setDirect(true);
 
+        this.readBudgetOptions = new ReadBudgetOptions();
+
         this.deferredListeners = true;
     }
 
@@ -78,6 +83,12 @@ public class DatagramCrusherOptions {
         if (bufferOptions == null) {
             throw new IllegalArgumentException("Buffer options are not set");
         }
+
+        if (readBudgetOptions == null) {
+            throw new IllegalArgumentException("Read budget options are not set");
+        }
+
+        readBudgetOptions.validate();
     }
 
     public InetSocketAddress getBindAddress() {
@@ -199,4 +210,12 @@ public class DatagramCrusherOptions {
     public void setBufferOptions(BufferOptions bufferOptions) {
         this.bufferOptions = bufferOptions;
     }
+
+    public ReadBudgetOptions getReadBudgetOptions() {
+        return readBudgetOptions;
+    }
+
+    public void setReadBudgetOptions(ReadBudgetOptions readBudgetOptions) {
+        this.readBudgetOptions = readBudgetOptions;
+    }
 }
@@ -1,11 +1,14 @@
 package org.netcrusher.datagram;
 
 import org.netcrusher.core.buffer.BufferOptions;
+import org.netcrusher.core.buffer.BufferPool;
 import org.netcrusher.core.meter.RateMeterImpl;
 import org.netcrusher.core.meter.RateMeters;
 import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.nio.ReadBudgetOptions;
 import org.netcrusher.core.nio.SelectionKeyControl;
 import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioSelector;
 import org.netcrusher.core.state.BitState;
 import org.netcrusher.core.throttle.Throttler;
 import org.slf4j.Logger;
@@ -52,12 +55,16 @@ class DatagramInner {
 
     private final ByteBuffer bb;
 
+    private final BufferPool receivePool;
+
     private final Map<InetSocketAddress, DatagramOuter> outers;
 
     private final DatagramQueue incoming;
 
     private final BufferOptions bufferOptions;
 
+    private final ReadBudgetOptions readBudget;
+
     private final State state;
 
     DatagramInner(
@@ -78,8 +85,9 @@ class DatagramInner {
         this.connectAddress = connectAddress;
         this.bindBeforeConnectAddress = bindBeforeConnectAddress;
         this.outers = new ConcurrentHashMap<>(DEFAULT_OUTER_CAPACITY);
-        this.incoming = new DatagramQueue(bufferOptions);
+        this.incoming = new DatagramQueue(crusher.getBufferPool());
         this.bufferOptions = bufferOptions;
+        this.readBudget = crusher.getReadBudgetOptions();
         this.meters = new Meters();
 
         this.channel = DatagramChannel.open(socketOptions.getProtocolFamily());
@@ -88,7 +96,11 @@ class DatagramInner {
         this.channel.configureBlocking(false);
         bufferOptions.checkDatagramSocket(channel.socket());
 
-        this.bb = NioUtils.allocaleByteBuffer(channel.socket().getReceiveBufferSize(), bufferOptions.isDirect());
+        // receive buffers of outers are reused instead of being allocated for each new client
+        final BufferOptions receiveOptions = bufferOptions.copy();
+        receiveOptions.setSize(channel.socket().getReceiveBufferSize());
+        this.receivePool = new BufferPool(receiveOptions);
+        this.bb = receivePool.acquire();
 
         SelectionKey selectionKey = reactor.getSelector().register(channel, 0, this::callback);
         this.selectionKeyControl = new SelectionKeyControl(selectionKey);
@@ -107,6 +119,7 @@ class DatagramInner {
 
                 if (!incoming.isEmpty()) {
                     LOGGER.warn("On closing inner has {} incoming datagrams", incoming.size());
+                    incoming.reset();
                 }
 
                 NioUtils.close(channel);
@@ -120,6 +133,9 @@ class DatagramInner {
                     crusher.notifyOuterDeleted(outer);
                 }
 
+                receivePool.release(bb);
+                receivePool.checkLeaks();
+
                 reactor.getSelector().wakeup();
 
                 state.set(State.CLOSED);
@@ -271,6 +287,9 @@ class DatagramInner {
     }
 
     private void handleReadableEvent() throws IOException {
+        final long startNs = readBudget.start();
+        long readCount = 0;
+
         while (state.isReadable()) {
             bb.clear();
 
@@ -291,6 +310,12 @@ class DatagramInner {
 
             DatagramOuter outer = requestOuter(address);
             outer.enqueue(bb);
+
+            readCount++;
+            if (readBudget.isExhausted(readCount, startNs)) {
+                // the socket is still readable so the channel will be back on the next select
+                break;
+            }
         }
     }
 
@@ -307,6 +332,27 @@ class DatagramInner {
     }
 
     void enqueue(InetSocketAddress clientAddress, ByteBuffer bbToCopy) throws IOException {
+        final NioSelector selector = reactor.getSelector();
+
+        if (selector.isSelectorThread()) {
+            add(clientAddress, bbToCopy);
+            suggestImmediateSent();
+            suggestDeferredSent();
+        } else {
+            // the outer lives on another loop so the datagram is copied and handed over to the loop of the inner
+            final ByteBuffer bbCopy = NioUtils.copyByteBuffer(bbToCopy);
+            final boolean posted = selector.tryPost(() -> {
+                add(clientAddress, bbCopy);
+                suggestDeferredSent();
+            });
+
+            if (!posted) {
+                handOverDropped(bbCopy);
+            }
+        }
+    }
+
+    private void add(InetSocketAddress clientAddress, ByteBuffer bbToCopy) {
         final Throttler throttler = this.filters.getIncomingGlobalThrottler();
 
         final long delayNs;
@@ -317,8 +363,6 @@ class DatagramInner {
         }
 
         incoming.add(clientAddress, bbToCopy, delayNs);
-        suggestImmediateSent();
-        suggestDeferredSent();
     }
 
     private void throttleSend(long delayNs) {
@@ -355,7 +399,7 @@ class DatagramInner {
         DatagramOuter outer = outers.get(address);
 
         if (outer == null) {
-            outer = new DatagramOuter(this, reactor, socketOptions, filters, bufferOptions,
+            outer = new DatagramOuter(this, reactor.nextSelector(), socketOptions, filters, bufferOptions,
                 address, connectAddress, bindBeforeConnectAddress);
             outer.unfreeze();
 
@@ -382,6 +426,22 @@ class DatagramInner {
         }
     }
 
+    DatagramOuter removeOuter(InetSocketAddress clientAddress) {
+        return outers.remove(clientAddress);
+    }
+
+    void handOverDropped(ByteBuffer bb) {
+        LOGGER.debug("Datagram with {} bytes is dropped because the loop it's handed over to is overloaded",
+            bb.remaining());
+
+        crusher.handOverDropped();
+    }
+
+    void closeOuterDeferred(InetSocketAddress clientAddress) {
+        // the outer may live on another loop so it must not wait for the loop of the inner
+        reactor.getSelector().post(() -> closeOuter(clientAddress));
+    }
+
     int closeIdleOuters(long maxIdleDurationMs) {
         int countBefore = outers.size();
         if (countBefore > 0) {
@@ -410,6 +470,18 @@ class DatagramInner {
         return outers.get(clientAddress);
     }
 
+    ReadBudgetOptions getReadBudgetOptions() {
+        return readBudget;
+    }
+
+    BufferPool getBufferPool() {
+        return crusher.getBufferPool();
+    }
+
+    BufferPool getReceivePool() {
+        return receivePool;
+    }
+
     Collection<DatagramOuter> getOuters() {
         return outers.values();
     }
@@ -1,13 +1,16 @@
 package org.netcrusher.datagram;
 
 import org.netcrusher.core.buffer.BufferOptions;
+import org.netcrusher.core.buffer.BufferPool;
 import org.netcrusher.core.filter.PassFilter;
 import org.netcrusher.core.filter.TransformFilter;
 import org.netcrusher.core.meter.RateMeterImpl;
+import org.netcrusher.core.meter.RateMeterSnapshot;
 import org.netcrusher.core.meter.RateMeters;
 import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.nio.ReadBudgetOptions;
 import org.netcrusher.core.nio.SelectionKeyControl;
-import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioSelector;
 import org.netcrusher.core.state.BitState;
 import org.netcrusher.core.throttle.Throttler;
 import org.slf4j.Logger;
@@ -32,7 +35,7 @@ class DatagramOuter {
 
     private final DatagramInner inner;
 
-    private final NioReactor reactor;
+    private final NioSelector selector;
 
     private final InetSocketAddress clientAddress;
 
@@ -40,6 +43,8 @@ class DatagramOuter {
 
     private final DatagramQueue incoming;
 
+    private final ReadBudgetOptions readBudget;
+
     private final DatagramChannel channel;
 
     private final SelectionKeyControl selectionKeyControl;
@@ -50,13 +55,15 @@ class DatagramOuter {
 
     private final ByteBuffer bb;
 
+    private final BufferPool receivePool;
+
     private final State state;
 
     private volatile long lastOperationTimestamp;
 
     DatagramOuter(
             DatagramInner inner,
-            NioReactor reactor,
+            NioSelector selector,
             DatagramCrusherSocketOptions socketOptions,
             DatagramFilters filters,
             BufferOptions bufferOptions,
@@ -65,10 +72,11 @@ class DatagramOuter {
             InetSocketAddress bindBeforeConnectAddress) throws IOException
     {
         this.inner = inner;
-        this.reactor = reactor;
+        this.selector = selector;
         this.clientAddress = clientAddress;
         this.connectAddress = connectAddress;
-        this.incoming = new DatagramQueue(bufferOptions);
+        this.incoming = new DatagramQueue(inner.getBufferPool());
+        this.readBudget = inner.getReadBudgetOptions();
         this.lastOperationTimestamp = System.currentTimeMillis();
 
         this.meters = new Meters();
@@ -88,9 +96,16 @@ class DatagramOuter {
         // https://bugs.openjdk.java.net/browse/JDK-8013175
         // this.channel.connect(connectAddress);
 
-        this.bb = NioUtils.allocaleByteBuffer(channel.socket().getReceiveBufferSize(), bufferOptions.isDirect());
+        final int receiveBufferSize = channel.socket().getReceiveBufferSize();
+        if (receiveBufferSize <= inner.getReceivePool().getOptions().getSize()) {
+            this.receivePool = inner.getReceivePool();
+            this.bb = receivePool.acquire();
+        } else {
+            this.receivePool = null;
+            this.bb = NioUtils.allocaleByteBuffer(receiveBufferSize, bufferOptions.isDirect());
+        }
 
-        SelectionKey selectionKey = reactor.getSelector().register(channel, 0, this::callback);
+        SelectionKey selectionKey = selector.register(channel, 0, this::callback);
         this.selectionKeyControl = new SelectionKeyControl(selectionKey);
 
         this.state = new State(State.FROZEN);
@@ -101,7 +116,7 @@ class DatagramOuter {
     }
 
     void close() {
-        reactor.getSelector().execute(() -> {
+        selector.execute(() -> {
             if (state.not(State.CLOSED)) {
                 if (state.is(State.OPEN)) {
                     freeze();
@@ -109,10 +124,15 @@ class DatagramOuter {
 
                 if (!incoming.isEmpty()) {
                     LOGGER.warn("On closing outer has {} incoming datagrams", incoming.size());
+                    incoming.reset();
                 }
 
                 NioUtils.close(channel);
 
+                if (receivePool != null) {
+                    receivePool.release(bb);
+                }
+
                 state.set(State.CLOSED);
 
                 LOGGER.debug("Outer for <{}> to <{}> is closed", clientAddress, connectAddress);
@@ -126,11 +146,11 @@ class DatagramOuter {
 
     private void closeAll() {
         this.close();
-        inner.closeOuter(clientAddress);
+        inner.closeOuterDeferred(clientAddress);
     }
 
     void unfreeze() {
-        reactor.getSelector().execute(() -> {
+        selector.execute(() -> {
             if (state.is(State.FROZEN)) {
                 if (incoming.isEmpty()) {
                     selectionKeyControl.setReadsOnly();
@@ -148,7 +168,7 @@ class DatagramOuter {
     }
 
     void freeze() {
-        reactor.getSelector().execute(() -> {
+        selector.execute(() -> {
             if (state.is(State.OPEN)) {
                 if (selectionKeyControl.isValid()) {
                     selectionKeyControl.setNone();
@@ -263,6 +283,9 @@ class DatagramOuter {
     }
 
     private void handleReadableEvent() throws IOException {
+        final long startNs = readBudget.start();
+        long readCount = 0;
+
         while (state.isReadable()) {
             bb.clear();
 
@@ -292,6 +315,12 @@ class DatagramOuter {
             }
 
             lastOperationTimestamp = System.currentTimeMillis();
+
+            readCount++;
+            if (readBudget.isExhausted(readCount, startNs)) {
+                // the socket is still readable so the channel will be back on the next select
+                break;
+            }
         }
     }
 
@@ -308,6 +337,27 @@ class DatagramOuter {
     }
 
     void enqueue(ByteBuffer bbToCopy) throws IOException {
+        if (selector.isSelectorThread()) {
+            if (add(bbToCopy)) {
+                suggestImmediateSent();
+                suggestDeferredSent();
+            }
+        } else {
+            // the inner lives on another loop so the datagram is copied and handed over to the loop of this outer
+            final ByteBuffer bbCopy = NioUtils.copyByteBuffer(bbToCopy);
+            final boolean posted = selector.tryPost(() -> {
+                if (add(bbCopy)) {
+                    suggestDeferredSent();
+                }
+            });
+
+            if (!posted) {
+                inner.handOverDropped(bbCopy);
+            }
+        }
+    }
+
+    private boolean add(ByteBuffer bbToCopy) {
         final boolean passed = filter(bbToCopy, filters.outgoingPassFilter, filters.outgoingTransferFilter);
         if (passed) {
             final Throttler throttler = filters.outgoingThrottler;
@@ -320,9 +370,9 @@ class DatagramOuter {
             }
 
             incoming.add(this.connectAddress, bbToCopy, delayNs);
-            suggestImmediateSent();
-            suggestDeferredSent();
         }
+
+        return passed;
     }
 
     private boolean filter(ByteBuffer bbToCopy, PassFilter passFilter, TransformFilter transformFilter) {
@@ -352,7 +402,7 @@ class DatagramOuter {
                 this.selectionKeyControl.disableWrites();
             }
 
-            reactor.getSelector().schedule(this::unthrottleSend, delayNs);
+            selector.schedule(this::unthrottleSend, delayNs);
         }
     }
 
@@ -386,6 +436,22 @@ class DatagramOuter {
         return new RateMeters(meters.readPackets, meters.sentPackets);
     }
 
+    NioSelector getSelector() {
+        return selector;
+    }
+
+    /**
+     * Take statistics of the client. Must be called on the loop of the outer as the queue is not thread-safe
+     */
+    DatagramClientStats getStats(boolean resetPeriod) {
+        return new DatagramClientStats(clientAddress,
+            new RateMeterSnapshot(meters.readBytes, resetPeriod),
+            new RateMeterSnapshot(meters.sentBytes, resetPeriod),
+            new RateMeterSnapshot(meters.readPackets, resetPeriod),
+            new RateMeterSnapshot(meters.sentPackets, resetPeriod),
+            incoming.size(), getIdleDurationMs());
+    }
+
     private static final class State extends BitState {
 
         private static final int OPEN = bit(0);
@@ -1,7 +1,6 @@
 package org.netcrusher.datagram;
 
-import org.netcrusher.core.buffer.BufferOptions;
-import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.buffer.BufferPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,13 +18,17 @@ class DatagramQueue {
 
     private final Queue<BufferEntry> pending;
 
-    DatagramQueue(BufferOptions bufferOptions) {
-        this.entries = new ArrayDeque<>(bufferOptions.getCount());
-        this.pending = new ArrayDeque<>(bufferOptions.getCount());
+    private final BufferPool bufferPool;
 
-        for (int i = 0, limit = bufferOptions.getCount(); i < limit; i++) {
-            this.pending.add(new BufferEntry(bufferOptions.getSize(), bufferOptions.isDirect()));
-        }
+    private final int limit;
+
+    DatagramQueue(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+        this.limit = bufferPool.getOptions().getCount();
+
+        // buffers are taken from the shared pool only for queued datagrams
+        this.entries = new ArrayDeque<>(limit);
+        this.pending = new ArrayDeque<>(limit);
     }
 
     public int size() {
@@ -37,30 +40,44 @@ class DatagramQueue {
     }
 
     public boolean add(InetSocketAddress address, ByteBuffer bbToCopy, long delayNs) {
-        BufferEntry entry = pending.poll();
+        if (entries.size() >= limit) {
+            LOGGER.warn("Datagram with {} bytes is dropped because buffer queue has no any free buffers.",
+                bbToCopy.remaining());
 
-        if (entry != null) {
-            ByteBuffer entryBuffer = entry.getBuffer();
+            return false;
+        }
 
-            if (entryBuffer.remaining() < bbToCopy.remaining()) {
-                throw new IllegalStateException("Buffer capacity " + entry.getBuffer().remaining()
-                    + "  is less than datagram size " + bbToCopy.remaining()
-                    + ". Increase buffer size in builder.");
-            }
+        final ByteBuffer entryBuffer = bufferPool.acquire();
+        if (entryBuffer == null) {
+            LOGGER.debug("Datagram with {} bytes is dropped because the memory budget is exhausted",
+                bbToCopy.remaining());
 
-            entryBuffer.put(bbToCopy);
-            entryBuffer.flip();
+            bufferPool.getBudget().drop(bbToCopy.remaining());
 
-            entry.schedule(address, delayNs);
-            entries.addLast(entry);
+            return false;
+        }
 
-            return true;
-        } else {
-            LOGGER.warn("Datagram with {} bytes is dropped because buffer queue has no any free buffers.",
-                bbToCopy.remaining());
+        if (entryBuffer.remaining() < bbToCopy.remaining()) {
+            bufferPool.release(entryBuffer);
 
-            return false;
+            throw new IllegalStateException("Buffer capacity " + entryBuffer.remaining()
+                + "  is less than datagram size " + bbToCopy.remaining()
+                + ". Increase buffer size in builder.");
         }
+
+        entryBuffer.put(bbToCopy);
+        entryBuffer.flip();
+
+        BufferEntry entry = pending.poll();
+        if (entry == null) {
+            entry = new BufferEntry();
+        }
+
+        entry.buffer = entryBuffer;
+        entry.schedule(address, delayNs);
+        entries.addLast(entry);
+
+        return true;
     }
 
     public void retry(BufferEntry entry) {
@@ -72,24 +89,27 @@ class DatagramQueue {
     }
 
     public void release(BufferEntry entry) {
-        entry.getBuffer().clear();
+        bufferPool.release(entry.buffer);
+
+        entry.buffer = null;
+        entry.address = null;
         pending.add(entry);
     }
 
+    public void reset() {
+        while (!entries.isEmpty()) {
+            release(entries.pollFirst());
+        }
+    }
+
     public static final class BufferEntry {
 
-        private final ByteBuffer buffer;
+        private ByteBuffer buffer;
 
         private InetSocketAddress address;
 
         private long scheduledNs;
 
-        private BufferEntry(int capacity, boolean direct) {
-            this.buffer = NioUtils.allocaleByteBuffer(capacity, direct);
-            this.address = null;
-            this.scheduledNs = System.nanoTime();
-        }
-
         public void schedule(InetSocketAddress address, long delayNs) {
             this.address = address;
             this.scheduledNs = System.nanoTime() + delayNs;
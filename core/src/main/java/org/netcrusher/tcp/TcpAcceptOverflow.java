@@ -0,0 +1,18 @@
+package org.netcrusher.tcp;
+
+/**
+ * What happens to new clients when the crusher has reached its connection limit or accept rate
+ */
+public enum TcpAcceptOverflow {
+
+    /**
+     * Clients are not accepted and wait in the kernel backlog until the crusher is able to take them
+     */
+    BACKLOG,
+
+    /**
+     * Clients are accepted and reset at once
+     */
+    REJECT
+
+}
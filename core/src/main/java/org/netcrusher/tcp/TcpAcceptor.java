@@ -2,15 +2,19 @@ package org.netcrusher.tcp;
 
 import org.netcrusher.NetFreezer;
 import org.netcrusher.core.buffer.BufferOptions;
+import org.netcrusher.core.nio.NioReusePort;
 import org.netcrusher.core.nio.NioUtils;
 import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioSelector;
 import org.netcrusher.core.state.BitState;
+import org.netcrusher.core.throttle.Throttler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
 import java.nio.channels.CancelledKeyException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
@@ -18,13 +22,21 @@ import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.UnresolvedAddressException;
 import java.nio.channels.UnsupportedAddressTypeException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 class TcpAcceptor implements NetFreezer {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TcpAcceptor.class);
 
+    private static final ByteBuffer ACCEPT_EVENT = ByteBuffer.allocate(0);
+
     private final InetSocketAddress bindAddress;
 
     private final InetSocketAddress connectAddress;
@@ -37,10 +49,6 @@ class TcpAcceptor implements NetFreezer {
 
     private final TcpCrusher crusher;
 
-    private final ServerSocketChannel serverSocketChannel;
-
-    private final SelectionKey serverSelectionKey;
-
     private final BufferOptions bufferOptions;
 
     private final TcpFilters filters;
@@ -49,6 +57,23 @@ class TcpAcceptor implements NetFreezer {
 
     private final AtomicInteger totalAccepted;
 
+    private final int acceptBudget;
+
+    private final List<Shard> shards;
+
+    private final TcpBackends backends;
+
+    private final boolean parking;
+
+    private final int maxConnections;
+
+    private final Throttler acceptThrottler;
+
+    private final boolean acceptRejecting;
+
+    // guarded by acceptThrottler
+    private long throttledUntilNs;
+
     TcpAcceptor(
         TcpCrusher crusher,
         NioReactor reactor,
@@ -68,23 +93,90 @@ class TcpAcceptor implements NetFreezer {
         this.bufferOptions = bufferOptions;
         this.filters = filters;
         this.totalAccepted = new AtomicInteger(0);
+        this.acceptBudget = crusher.getAcceptBudget();
+        this.shards = new ArrayList<>();
+        this.backends = crusher.getBackends();
+        this.parking = crusher.getBackendHealthOptions().isParking();
+        this.maxConnections = crusher.getMaxConnections();
+        this.acceptThrottler = crusher.getAcceptThrottler();
+        this.acceptRejecting = crusher.getAcceptOverflow() == TcpAcceptOverflow.REJECT;
 
-        this.serverSocketChannel = ServerSocketChannel.open();
-        this.serverSocketChannel.configureBlocking(false);
-        this.serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        try {
+            if (crusher.isAcceptorSharding() && reactor.getWorkerSelectors().size() > 1) {
+                openShards();
+            }
 
-        if (socketOptions.getBacklog() > 0) {
-            this.serverSocketChannel.bind(bindAddress, socketOptions.getBacklog());
-        } else {
-            this.serverSocketChannel.bind(bindAddress);
+            if (shards.isEmpty()) {
+                openShard(reactor.getBossSelector(), openServerSocketChannel(bindAddress, false), false);
+            }
+        } catch (IOException | RuntimeException e) {
+            shards.forEach(Shard::close);
+            throw e;
         }
 
-        this.serverSelectionKey = reactor.getSelector()
-            .register(serverSocketChannel, 0, (selectionKey) -> this.accept());
+        if (maxConnections > 0 && !acceptRejecting) {
+            backends.setReleaseListener(this::connectionReleased);
+        }
 
         this.state = new State(State.FROZEN);
     }
 
+    private void openShards() throws IOException {
+        final List<NioSelector> selectors = reactor.getWorkerSelectors();
+
+        // every worker loop listens on its own socket, the kernel spreads incoming connections between them
+        InetSocketAddress shardAddress = bindAddress;
+        for (NioSelector selector : selectors) {
+            ServerSocketChannel serverSocketChannel = openServerSocketChannel(shardAddress, true);
+            if (serverSocketChannel == null) {
+                LOGGER.warn("SO_REUSEPORT is not supported, a single acceptor is used for <{}>", bindAddress);
+                return;
+            }
+
+            openShard(selector, serverSocketChannel, true);
+
+            // an ephemeral port is chosen by the first socket
+            shardAddress = (InetSocketAddress) serverSocketChannel.getLocalAddress();
+        }
+
+        LOGGER.debug("TcpCrusher acceptor <{}> is sharded across {} loops", bindAddress, selectors.size());
+    }
+
+    private void openShard(NioSelector selector, ServerSocketChannel serverSocketChannel, boolean pinned) {
+        try {
+            shards.add(new Shard(selector, serverSocketChannel, pinned));
+        } catch (RuntimeException e) {
+            NioUtils.close(serverSocketChannel);
+            throw e;
+        }
+    }
+
+    private ServerSocketChannel openServerSocketChannel(InetSocketAddress address, boolean reusePort)
+        throws IOException
+    {
+        final ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+        try {
+            serverSocketChannel.configureBlocking(false);
+            serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+
+            if (reusePort && !NioReusePort.enable(serverSocketChannel)) {
+                NioUtils.close(serverSocketChannel);
+                return null;
+            }
+
+            if (socketOptions.getBacklog() > 0) {
+                serverSocketChannel.bind(address, socketOptions.getBacklog());
+            } else {
+                serverSocketChannel.bind(address);
+            }
+        } catch (IOException | RuntimeException e) {
+            NioUtils.close(serverSocketChannel);
+            throw e;
+        }
+
+        return serverSocketChannel;
+    }
+
     void close() {
         reactor.getSelector().execute(() -> {
             if (state.not(State.CLOSED)) {
@@ -92,11 +184,9 @@ class TcpAcceptor implements NetFreezer {
                     freeze();
                 }
 
-                serverSelectionKey.cancel();
-
-                NioUtils.close(serverSocketChannel);
+                shards.forEach(Shard::close);
 
-                reactor.getSelector().wakeup();
+                backends.setReleaseListener(null);
 
                 state.set(State.CLOSED);
 
@@ -107,117 +197,238 @@ class TcpAcceptor implements NetFreezer {
         });
     }
 
-    private void accept() throws IOException {
-        final SocketChannel socketChannel1 = serverSocketChannel.accept();
-        socketChannel1.configureBlocking(false);
-        socketOptions.setupSocketChannel(socketChannel1);
-        bufferOptions.checkTcpSocket(socketChannel1.socket());
+    private SocketChannel openOutbound() throws IOException {
+        final SocketChannel socketChannel = SocketChannel.open();
+        socketChannel.configureBlocking(false);
+        socketOptions.setupSocketChannel(socketChannel);
+        bufferOptions.checkTcpSocket(socketChannel.socket());
+
+        if (bindBeforeConnectAddress != null) {
+            socketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            socketChannel.bind(bindBeforeConnectAddress);
+        }
 
-        LOGGER.debug("Incoming connection is accepted on <{}>", bindAddress);
+        return socketChannel;
+    }
 
-        final SocketChannel socketChannel2 = SocketChannel.open();
-        socketChannel2.configureBlocking(false);
-        socketOptions.setupSocketChannel(socketChannel2);
-        bufferOptions.checkTcpSocket(socketChannel2.socket());
+    private boolean isConnectionLimitReached() {
+        return maxConnections > 0 && backends.getActiveCount() >= maxConnections;
+    }
 
-        if (bindBeforeConnectAddress != null) {
-            socketChannel2.setOption(StandardSocketOptions.SO_REUSEADDR, true);
-            socketChannel2.bind(bindBeforeConnectAddress);
+    private void connectionReleased() {
+        // called on any thread when a pair is closed
+        if (!isConnectionLimitReached()) {
+            for (Shard shard : shards) {
+                if (shard.paused.compareAndSet(true, false)) {
+                    shard.selector.post(shard::resume);
+                }
+            }
         }
+    }
 
-        final boolean connectedImmediately;
-        try {
-            connectedImmediately = socketChannel2.connect(connectAddress);
-        } catch (UnresolvedAddressException e) {
-            LOGGER.error("Connect address <{}> is unresolved", connectAddress);
-            NioUtils.closeNoLinger(socketChannel1);
-            NioUtils.closeNoLinger(socketChannel2);
-            return;
-        } catch (UnsupportedAddressTypeException e) {
-            LOGGER.error("Connect address <{}> is unsupported", connectAddress);
-            NioUtils.closeNoLinger(socketChannel1);
-            NioUtils.closeNoLinger(socketChannel2);
+    /**
+     * Ask the accept throttler about a new connection
+     * @return How long the connection should wait in nanoseconds or 0 if it could be taken now
+     */
+    private long throttleAccept() {
+        if (acceptThrottler == null) {
+            return 0;
+        }
+
+        // shards share the throttler
+        synchronized (acceptThrottler) {
+            final long nowNs = System.nanoTime();
+            if (nowNs < throttledUntilNs) {
+                return throttledUntilNs - nowNs;
+            }
+
+            final long delayNs = acceptThrottler.calculateDelayNs(ACCEPT_EVENT);
+            if (delayNs > 0) {
+                throttledUntilNs = nowNs + delayNs;
+                return delayNs;
+            }
+
+            return 0;
+        }
+    }
+
+    private void registerFailure(TcpBackend backend) {
+        final long probeDelayNs = backend.registerFailure();
+        if (probeDelayNs > 0) {
+            LOGGER.warn("Connect address <{}> is considered down, new clients are {}",
+                backend.getAddress(), parking ? "parked" : "rejected");
+
+            reactor.getBossSelector().post(() -> scheduleProbe(backend, probeDelayNs));
+        }
+    }
+
+    private void scheduleProbe(TcpBackend backend, long delayNs) {
+        if (state.not(State.CLOSED)) {
+            reactor.getBossSelector().schedule(() -> probe(backend), delayNs);
+        }
+    }
+
+    private void probe(TcpBackend backend) {
+        if (state.is(State.CLOSED) || !backend.isDown()) {
             return;
+        }
+
+        LOGGER.debug("Probing connect address <{}>", backend.getAddress());
+
+        final SocketChannel socketChannel;
+        try {
+            socketChannel = openOutbound();
         } catch (IOException e) {
-            LOGGER.error("IOException on connection", e);
-            NioUtils.closeNoLinger(socketChannel1);
-            NioUtils.closeNoLinger(socketChannel2);
+            LOGGER.error("Fail to open a probe connection", e);
+            scheduleProbe(backend, backend.registerProbeFailure());
             return;
         }
 
-        if (connectedImmediately) {
-            appendPair(socketChannel1, socketChannel2);
+        final long timeoutTimerId;
+        if (socketOptions.getConnectionTimeoutMs() > 0) {
+            timeoutTimerId = reactor.getBossSelector().schedule(() -> {
+                if (socketChannel.isOpen() && !socketChannel.isConnected()) {
+                    probeFinished(backend, socketChannel, false);
+                }
+            }, TimeUnit.MILLISECONDS.toNanos(socketOptions.getConnectionTimeoutMs()));
         } else {
-            connectDeferred(socketChannel1, socketChannel2);
+            timeoutTimerId = NioSelector.NO_TIMER;
         }
-    }
 
-    private void connectDeferred(SocketChannel socketChannel1, SocketChannel socketChannel2) throws IOException {
-        if (socketOptions.getConnectionTimeoutMs() > 0) {
-            reactor.getSelector().schedule(() -> {
-                if (socketChannel2.isOpen() && !socketChannel2.isConnected()) {
-                    LOGGER.error("Fail to connect to <{}> in {}ms",
-                        connectAddress, socketOptions.getConnectionTimeoutMs());
+        try {
+            if (socketChannel.connect(backend.getAddress())) {
+                reactor.getBossSelector().cancel(timeoutTimerId);
+                probeFinished(backend, socketChannel, true);
+                return;
+            }
 
-                    NioUtils.closeNoLinger(socketChannel1);
-                    NioUtils.closeNoLinger(socketChannel2);
+            reactor.getBossSelector().register(socketChannel, SelectionKey.OP_CONNECT, (selectionKey) -> {
+                reactor.getBossSelector().cancel(timeoutTimerId);
+
+                boolean connected;
+                try {
+                    connected = socketChannel.finishConnect();
+                } catch (IOException e) {
+                    connected = false;
                 }
-            }, TimeUnit.MILLISECONDS.toNanos(socketOptions.getConnectionTimeoutMs()));
+
+                probeFinished(backend, socketChannel, connected);
+            });
+        } catch (Exception e) {
+            reactor.getBossSelector().cancel(timeoutTimerId);
+            probeFinished(backend, socketChannel, false);
         }
+    }
 
-        reactor.getSelector().register(socketChannel2, SelectionKey.OP_CONNECT, (selectionKey) -> {
-            boolean connected;
-            try {
-                connected = socketChannel2.finishConnect();
-            } catch (IOException e) {
-                LOGGER.error("Exception while finishing the connection to <{}>", connectAddress,  e);
-                connected = false;
+    private void probeFinished(TcpBackend backend, SocketChannel socketChannel, boolean connected) {
+        if (connected) {
+            NioUtils.close(socketChannel);
+
+            backend.registerSuccess();
+
+            LOGGER.info("Connect address <{}> is back", backend.getAddress());
+
+            for (Shard shard : shards) {
+                shard.selector.post(shard::unpark);
             }
+        } else {
+            NioUtils.closeNoLinger(socketChannel);
 
-            if (!connected) {
-                LOGGER.error("Fail to finish outgoing connection to <{}>", connectAddress);
-                NioUtils.closeNoLinger(socketChannel1);
-                NioUtils.closeNoLinger(socketChannel2);
-                return;
+            scheduleProbe(backend, backend.registerProbeFailure());
+        }
+    }
+
+    private void createPairs(NioSelector pairSelector, List<PendingPair> batch) {
+        final List<TcpPair> pairs = new ArrayList<>(batch.size());
+        for (PendingPair pending : batch) {
+            TcpPair pair = createPair(pairSelector, pending);
+            if (pair != null) {
+                pairs.add(pair);
             }
+        }
 
-            appendPair(socketChannel1, socketChannel2);
-        });
+        if (pairs.isEmpty()) {
+            return;
+        }
+
+        if (reactor.getSelector().isSelectorThread()) {
+            registerPairs(pairs);
+        } else {
+            reactor.getSelector().post(() -> registerPairs(pairs));
+        }
+    }
+
+    private void registerPairs(List<TcpPair> pairs) {
+        for (TcpPair pair : pairs) {
+            if (state.is(State.CLOSED)) {
+                LOGGER.debug("Acceptor is closed while the pair was created");
+                pair.close();
+                continue;
+            }
+
+            if (state.is(State.FROZEN)) {
+                pair.freeze();
+            }
+
+            crusher.notifyPairCreated(pair);
+        }
     }
 
-    private void appendPair(SocketChannel socketChannel1, SocketChannel socketChannel2) {
+    private TcpPair createPair(NioSelector pairSelector, PendingPair pending) {
         try {
-            totalAccepted.incrementAndGet();
+            InetSocketAddress clientAddress = (InetSocketAddress) pending.socketChannel1.getRemoteAddress();
+
+            // the pair may live on another loop so it must not wait for the primary loop
+            Runnable pairShutdown = () -> reactor.getSelector().post(() -> crusher.closeClient(clientAddress));
 
-            InetSocketAddress clientAddress = (InetSocketAddress) socketChannel1.getRemoteAddress();
-            Runnable pairShutdown = () -> crusher.closeClient(clientAddress);
+            TcpPair pair = new TcpPair(pairSelector, filters, pending.socketChannel1, pending.socketChannel2,
+                crusher.getBufferPool(), crusher.getReadBudgetOptions(), pending.backend, pairShutdown);
+
+            if (pending.greeting != null) {
+                pair.prefillFromTarget(pending.greeting);
+            }
 
-            TcpPair pair = new TcpPair(reactor, filters, socketChannel1, socketChannel2, bufferOptions, pairShutdown);
             pair.unfreeze();
 
-            crusher.notifyPairCreated(pair);
+            TcpQueueSweeper sweeper = crusher.getQueueSweeper(pairSelector);
+            if (sweeper != null) {
+                sweeper.add(pair);
+            }
+
+            return pair;
         } catch (ClosedChannelException | CancelledKeyException e) {
             LOGGER.debug("One of the channels is already closed", e);
-            NioUtils.closeNoLinger(socketChannel1);
-            NioUtils.closeNoLinger(socketChannel2);
+            pending.abort();
         } catch (IOException e) {
             LOGGER.error("Fail to create TcpCrusher TCP pair", e);
-            NioUtils.closeNoLinger(socketChannel1);
-            NioUtils.closeNoLinger(socketChannel2);
+            pending.abort();
         }
+
+        return null;
     }
 
     int getTotalAccepted() {
         return totalAccepted.get();
     }
 
+    int getShardCount() {
+        return shards.size();
+    }
+
+    int getOutboundPoolIdleCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            count += shard.getOutboundPoolIdleCount();
+        }
+
+        return count;
+    }
+
     @Override
     public void freeze() {
         reactor.getSelector().execute(() -> {
             if (state.is(State.OPEN)) {
-                if (serverSelectionKey.isValid()) {
-                    serverSelectionKey.interestOps(0);
-                }
+                shards.forEach(Shard::freeze);
 
                 state.set(State.FROZEN);
 
@@ -234,7 +445,7 @@ class TcpAcceptor implements NetFreezer {
     public void unfreeze() {
         reactor.getSelector().execute(() -> {
             if (state.is(State.FROZEN)) {
-                serverSelectionKey.interestOps(SelectionKey.OP_ACCEPT);
+                shards.forEach(Shard::unfreeze);
 
                 state.set(State.OPEN);
 
@@ -252,6 +463,445 @@ class TcpAcceptor implements NetFreezer {
         return state.isAnyOf(State.FROZEN | State.CLOSED);
     }
 
+    /**
+     * Listening socket with its own event loop. Without sharding there is a single shard on the primary loop
+     * which spreads pairs between worker loops. A sharded one keeps pairs on its own loop.
+     */
+    private final class Shard {
+
+        private final NioSelector selector;
+
+        private final ServerSocketChannel serverSocketChannel;
+
+        private final SelectionKey serverSelectionKey;
+
+        private final boolean pinned;
+
+        // established pairs which wait to be handed over to worker loops, accessed from the shard loop only
+        private final Map<NioSelector, List<PendingPair>> pendingPairs;
+
+        private final TcpOutboundPool outboundPool;
+
+        // clients which wait for a target to be back with their acquired targets, accessed from the shard loop only
+        private final Map<SocketChannel, TcpBackend> parked;
+
+        // accepting is paused as the connection limit is reached
+        private final AtomicBoolean paused;
+
+        // the client accepted over the accept rate, accessed from the shard loop only
+        private SocketChannel delayed;
+
+        // accessed from the shard loop only
+        private boolean frozen;
+
+        private Shard(NioSelector selector, ServerSocketChannel serverSocketChannel, boolean pinned) {
+            this.selector = selector;
+            this.serverSocketChannel = serverSocketChannel;
+            this.pinned = pinned;
+            this.pendingPairs = new HashMap<>();
+            this.parked = new LinkedHashMap<>();
+            this.paused = new AtomicBoolean(false);
+            this.frozen = true;
+
+            if (crusher.getOutboundPoolSize() > 0) {
+                this.outboundPool = new TcpOutboundPool(selector, connectAddress,
+                    TcpAcceptor.this::openOutbound, socketOptions.getConnectionTimeoutMs(),
+                    crusher.getOutboundPoolSize(), crusher.getBufferPool().getOptions().getSize());
+            } else {
+                this.outboundPool = null;
+            }
+
+            this.serverSelectionKey = selector.register(serverSocketChannel, 0, (selectionKey) -> this.accept());
+        }
+
+        private void close() {
+            selector.execute(() -> {
+                serverSelectionKey.cancel();
+
+                if (outboundPool != null) {
+                    outboundPool.close();
+                }
+
+                for (Map.Entry<SocketChannel, TcpBackend> entry : parked.entrySet()) {
+                    NioUtils.closeNoLinger(entry.getKey());
+                    entry.getValue().release();
+                }
+                parked.clear();
+
+                if (delayed != null) {
+                    NioUtils.closeNoLinger(delayed);
+                    delayed = null;
+                }
+
+                NioUtils.close(serverSocketChannel);
+
+                selector.wakeup();
+
+                return true;
+            });
+        }
+
+        private void freeze() {
+            selector.execute(() -> {
+                frozen = true;
+
+                if (serverSelectionKey.isValid()) {
+                    serverSelectionKey.interestOps(0);
+                }
+
+                return true;
+            });
+        }
+
+        private void unfreeze() {
+            selector.execute(() -> {
+                frozen = false;
+
+                resume();
+
+                if (outboundPool != null) {
+                    outboundPool.open();
+                }
+
+                return true;
+            });
+        }
+
+        private int getOutboundPoolIdleCount() {
+            if (outboundPool != null) {
+                return selector.execute(outboundPool::getIdleCount);
+            } else {
+                return 0;
+            }
+        }
+
+        private NioSelector nextPairSelector() {
+            return pinned ? selector : reactor.nextSelector();
+        }
+
+        private void resume() {
+            if (!frozen && delayed == null && serverSelectionKey.isValid()) {
+                serverSelectionKey.interestOps(SelectionKey.OP_ACCEPT);
+            }
+        }
+
+        private void accept() throws IOException {
+            // the backlog is drained in a burst so a connection storm doesn't take a select() call per connection
+            try {
+                for (int i = 0; i < acceptBudget; i++) {
+                    if (isConnectionLimitReached() && !acceptRejecting) {
+                        pause();
+                        break;
+                    }
+
+                    final SocketChannel socketChannel1 = serverSocketChannel.accept();
+                    if (socketChannel1 == null) {
+                        break;
+                    }
+
+                    if (!acceptThrottled(socketChannel1)) {
+                        accept(socketChannel1);
+                    } else if (delayed != null) {
+                        break;
+                    }
+                }
+            } finally {
+                handOverPairs();
+            }
+        }
+
+        private void pause() {
+            // clients wait in the kernel backlog until a pair is released
+            serverSelectionKey.interestOps(0);
+            paused.set(true);
+
+            // a pair could be released before the flag is set
+            if (!isConnectionLimitReached() && paused.compareAndSet(true, false)) {
+                resume();
+            }
+        }
+
+        private boolean acceptThrottled(SocketChannel socketChannel1) {
+            if (acceptRejecting && isConnectionLimitReached()) {
+                LOGGER.debug("Client is rejected as the connection limit {} is reached", maxConnections);
+                NioUtils.closeNoLinger(socketChannel1);
+                return true;
+            }
+
+            final long delayNs = throttleAccept();
+            if (delayNs <= 0) {
+                return false;
+            }
+
+            if (acceptRejecting) {
+                LOGGER.debug("Client is rejected as the accept rate is exceeded");
+                NioUtils.closeNoLinger(socketChannel1);
+            } else {
+                // the client waits for the delay, next clients wait in the kernel backlog
+                delayed = socketChannel1;
+                serverSelectionKey.interestOps(0);
+                selector.schedule(() -> acceptDelayed(socketChannel1), delayNs);
+            }
+
+            return true;
+        }
+
+        private void acceptDelayed(SocketChannel socketChannel1) {
+            if (delayed != socketChannel1) {
+                return;
+            }
+
+            delayed = null;
+
+            try {
+                accept(socketChannel1);
+            } catch (IOException e) {
+                LOGGER.error("Fail to accept delayed client", e);
+                NioUtils.closeNoLinger(socketChannel1);
+            } finally {
+                handOverPairs();
+            }
+
+            resume();
+        }
+
+        private void accept(SocketChannel socketChannel1) throws IOException {
+            socketChannel1.configureBlocking(false);
+            socketOptions.setupSocketChannel(socketChannel1);
+            bufferOptions.checkTcpSocket(socketChannel1.socket());
+
+            LOGGER.debug("Incoming connection is accepted on <{}>", bindAddress);
+
+            connect(socketChannel1);
+        }
+
+        private void connect(SocketChannel socketChannel1) throws IOException {
+            final TcpBackend backend = backends.acquire((InetSocketAddress) socketChannel1.getRemoteAddress());
+
+            if (backend.isDown()) {
+                // all targets are down so the client doesn't wait for the connection timeout
+                if (parking) {
+                    // the parked client keeps its slot for the connection limit
+                    park(socketChannel1, backend);
+                } else {
+                    backend.release();
+                    LOGGER.debug("Client is rejected as connect address <{}> is down", backend.getAddress());
+                    NioUtils.closeNoLinger(socketChannel1);
+                }
+
+                return;
+            }
+
+            if (outboundPool != null && connectPooled(socketChannel1, backend)) {
+                return;
+            }
+
+            final SocketChannel socketChannel2;
+            try {
+                socketChannel2 = openOutbound();
+            } catch (IOException e) {
+                NioUtils.closeNoLinger(socketChannel1);
+                backend.release();
+                throw e;
+            }
+
+            final PendingPair pending = new PendingPair(socketChannel1, socketChannel2, backend);
+            final InetSocketAddress targetAddress = backend.getAddress();
+
+            final boolean connectedImmediately;
+            try {
+                connectedImmediately = socketChannel2.connect(targetAddress);
+            } catch (UnresolvedAddressException e) {
+                LOGGER.error("Connect address <{}> is unresolved", targetAddress);
+                pending.abort();
+                registerFailure(backend);
+                return;
+            } catch (UnsupportedAddressTypeException e) {
+                LOGGER.error("Connect address <{}> is unsupported", targetAddress);
+                pending.abort();
+                registerFailure(backend);
+                return;
+            } catch (IOException e) {
+                LOGGER.error("IOException on connection", e);
+                pending.abort();
+                registerFailure(backend);
+                return;
+            }
+
+            final NioSelector pairSelector = nextPairSelector();
+
+            if (connectedImmediately) {
+                backend.registerSuccess();
+                appendPair(pairSelector, pending);
+            } else {
+                connectDeferred(pairSelector, pending);
+            }
+        }
+
+        private boolean connectPooled(SocketChannel socketChannel1, TcpBackend backend) {
+            final TcpOutboundPool.Connection pooled = outboundPool.poll();
+            if (pooled == null) {
+                return false;
+            }
+
+            final NioSelector pairSelector = nextPairSelector();
+            if (pairSelector != selector) {
+                // the pair will register the channel on its own selector
+                pooled.getSelectionKey().cancel();
+            }
+
+            final PendingPair pending = new PendingPair(socketChannel1, pooled.getSocketChannel(), backend);
+            pending.greeting = pooled.getGreeting();
+
+            appendPair(pairSelector, pending);
+            return true;
+        }
+
+        private void connectDeferred(NioSelector pairSelector, PendingPair pending) {
+            final SocketChannel socketChannel2 = pending.socketChannel2;
+            final InetSocketAddress targetAddress = pending.backend.getAddress();
+
+            final long timeoutTimerId;
+            if (socketOptions.getConnectionTimeoutMs() > 0) {
+                timeoutTimerId = selector.schedule(() -> {
+                    if (socketChannel2.isOpen() && !socketChannel2.isConnected()) {
+                        LOGGER.error("Fail to connect to <{}> in {}ms",
+                            targetAddress, socketOptions.getConnectionTimeoutMs());
+
+                        pending.abort();
+                        registerFailure(pending.backend);
+                    }
+                }, TimeUnit.MILLISECONDS.toNanos(socketOptions.getConnectionTimeoutMs()));
+            } else {
+                timeoutTimerId = NioSelector.NO_TIMER;
+            }
+
+            selector.register(socketChannel2, SelectionKey.OP_CONNECT, (selectionKey) -> {
+                selector.cancel(timeoutTimerId);
+
+                boolean connected;
+                try {
+                    connected = socketChannel2.finishConnect();
+                } catch (IOException e) {
+                    LOGGER.error("Exception while finishing the connection to <{}>", targetAddress,  e);
+                    connected = false;
+                }
+
+                if (!connected) {
+                    LOGGER.error("Fail to finish outgoing connection to <{}>", targetAddress);
+                    pending.abort();
+                    registerFailure(pending.backend);
+                    return;
+                }
+
+                pending.backend.registerSuccess();
+
+                if (pairSelector != selector) {
+                    // the pair will register the channel on its own selector
+                    selectionKey.cancel();
+                }
+
+                appendPair(pairSelector, pending);
+                handOverPairs();
+            });
+        }
+
+        private void park(SocketChannel socketChannel1, TcpBackend backend) {
+            parked.put(socketChannel1, backend);
+
+            if (socketOptions.getConnectionTimeoutMs() > 0) {
+                selector.schedule(() -> {
+                    final TcpBackend parkedBackend = parked.remove(socketChannel1);
+                    if (parkedBackend != null) {
+                        LOGGER.debug("Parked client is closed as no connect address is back in {}ms",
+                            socketOptions.getConnectionTimeoutMs());
+                        NioUtils.closeNoLinger(socketChannel1);
+                        parkedBackend.release();
+                    }
+                }, TimeUnit.MILLISECONDS.toNanos(socketOptions.getConnectionTimeoutMs()));
+            }
+        }
+
+        private void unpark() {
+            if (parked.isEmpty()) {
+                return;
+            }
+
+            final Map<SocketChannel, TcpBackend> clients = new LinkedHashMap<>(parked);
+            parked.clear();
+
+            try {
+                for (Map.Entry<SocketChannel, TcpBackend> entry : clients.entrySet()) {
+                    final SocketChannel socketChannel1 = entry.getKey();
+
+                    // the target is chosen again
+                    entry.getValue().release();
+
+                    if (socketChannel1.isOpen()) {
+                        try {
+                            connect(socketChannel1);
+                        } catch (IOException e) {
+                            LOGGER.error("Fail to connect parked client", e);
+                            NioUtils.closeNoLinger(socketChannel1);
+                        }
+                    }
+                }
+            } finally {
+                handOverPairs();
+            }
+        }
+
+        private void appendPair(NioSelector pairSelector, PendingPair pending) {
+            totalAccepted.incrementAndGet();
+
+            pendingPairs.computeIfAbsent(pairSelector, (key) -> new ArrayList<>()).add(pending);
+        }
+
+        private void handOverPairs() {
+            if (pendingPairs.isEmpty()) {
+                return;
+            }
+
+            // established pairs are handed to their loops with a single task per loop,
+            // the accepting loop doesn't wait for other loops
+            for (Map.Entry<NioSelector, List<PendingPair>> entry : pendingPairs.entrySet()) {
+                final NioSelector pairSelector = entry.getKey();
+                final List<PendingPair> batch = entry.getValue();
+
+                if (pairSelector == selector) {
+                    createPairs(pairSelector, batch);
+                } else {
+                    pairSelector.post(() -> createPairs(pairSelector, batch));
+                }
+            }
+
+            pendingPairs.clear();
+        }
+    }
+
+    private static final class PendingPair {
+
+        private final SocketChannel socketChannel1;
+
+        private final SocketChannel socketChannel2;
+
+        private final TcpBackend backend;
+
+        private ByteBuffer greeting;
+
+        private PendingPair(SocketChannel socketChannel1, SocketChannel socketChannel2, TcpBackend backend) {
+            this.socketChannel1 = socketChannel1;
+            this.socketChannel2 = socketChannel2;
+            this.backend = backend;
+        }
+
+        private void abort() {
+            NioUtils.closeNoLinger(socketChannel1);
+            NioUtils.closeNoLinger(socketChannel2);
+            backend.release();
+        }
+    }
+
     private static final class State extends BitState {
 
         private static final int OPEN = bit(0);
@@ -0,0 +1,138 @@
+package org.netcrusher.tcp;
+
+import org.netcrusher.core.meter.RateMeterSum;
+import org.netcrusher.core.meter.RateMeters;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connect address with counters shared by all pairs connected to it. Pairs live on different loops
+ * so all counters are thread-safe, and byte meters of pairs are summed only when they are requested.
+ * The target also tracks connect failures and is considered down after a number of consecutive
+ * failures until a probe succeeds.
+ */
+class TcpBackend {
+
+    private final InetSocketAddress address;
+
+    private final TcpBackends owner;
+
+    private final TcpBackendHealthOptions healthOptions;
+
+    private final AtomicInteger activeCount;
+
+    private final RateMeterSum readBytes;
+
+    private final RateMeterSum sentBytes;
+
+    private int failureCount;
+
+    private long backoffNs;
+
+    private volatile boolean down;
+
+    TcpBackend(InetSocketAddress address, TcpBackends owner, TcpBackendHealthOptions healthOptions) {
+        this.address = address;
+        this.owner = owner;
+        this.healthOptions = healthOptions;
+        this.activeCount = new AtomicInteger(0);
+        this.readBytes = new RateMeterSum();
+        this.sentBytes = new RateMeterSum();
+    }
+
+    InetSocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Count a new connection. Called when the target is chosen, so connections which are still
+     * connecting are counted as well
+     */
+    void acquire() {
+        activeCount.incrementAndGet();
+        owner.acquired();
+    }
+
+    /**
+     * Count a closed or failed connection. Must be called once for each acquire()
+     */
+    void release() {
+        activeCount.decrementAndGet();
+        owner.released();
+    }
+
+    int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * Check if the target is considered down after connect failures
+     * @return True if new clients should not be connected to the target
+     */
+    boolean isDown() {
+        return down;
+    }
+
+    /**
+     * Register a successful connect. Brings the target back
+     */
+    synchronized void registerSuccess() {
+        failureCount = 0;
+        backoffNs = 0;
+        down = false;
+    }
+
+    /**
+     * Register a failed connect
+     * @return Delay before the first probe in nanoseconds if the target has just been considered down, otherwise 0
+     */
+    synchronized long registerFailure() {
+        if (!healthOptions.isEnabled() || down) {
+            return 0;
+        }
+
+        failureCount++;
+
+        if (failureCount >= healthOptions.getFailureThreshold()) {
+            down = true;
+            backoffNs = TimeUnit.MILLISECONDS.toNanos(healthOptions.getMinBackoffMs());
+            return backoffNs;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Register a failed probe. The backoff is doubled
+     * @return Delay before the next probe in nanoseconds
+     */
+    synchronized long registerProbeFailure() {
+        backoffNs = Math.min(backoffNs * 2, TimeUnit.MILLISECONDS.toNanos(healthOptions.getMaxBackoffMs()));
+        return backoffNs;
+    }
+
+    /**
+     * Count bytes of the pair in meters of the target
+     * @param pairMeters Meters of the pair: bytes read from the target and bytes sent to the target
+     */
+    void attachMeters(RateMeters pairMeters) {
+        readBytes.add(pairMeters.getReadMeter());
+        sentBytes.add(pairMeters.getSentMeter());
+    }
+
+    /**
+     * Stop following meters of the closed pair. Bytes of the pair stay counted
+     * @param pairMeters Meters passed to attachMeters()
+     */
+    void detachMeters(RateMeters pairMeters) {
+        readBytes.remove(pairMeters.getReadMeter());
+        sentBytes.remove(pairMeters.getSentMeter());
+    }
+
+    RateMeters getByteMeters() {
+        return new RateMeters(readBytes, sentBytes);
+    }
+
+}
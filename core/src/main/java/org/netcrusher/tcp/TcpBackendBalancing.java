@@ -0,0 +1,24 @@
+package org.netcrusher.tcp;
+
+/**
+ * How a crusher with several connect addresses chooses the target for a new client
+ */
+public enum TcpBackendBalancing {
+
+    /**
+     * Targets are chosen one after another
+     */
+    ROUND_ROBIN,
+
+    /**
+     * The target with the least number of active connections is chosen
+     */
+    LEAST_ACTIVE,
+
+    /**
+     * The target is chosen by a consistent hash of the client host, so a client host sticks to the same target
+     * while the set of targets is not changed
+     */
+    CONSISTENT_HASH
+
+}
@@ -0,0 +1,101 @@
+package org.netcrusher.tcp;
+
+import java.io.Serializable;
+
+/**
+ * Circuit breaker for connect addresses. After a number of consecutive connect failures the target is
+ * considered down: new clients are rejected at once (or parked) instead of waiting for the connection timeout.
+ * The target is probed after a backoff which is doubled on each failed probe. Zero threshold disables the breaker.
+ */
+public class TcpBackendHealthOptions implements Serializable {
+
+    public static final long DEFAULT_MIN_BACKOFF_MS = 500;
+
+    public static final long DEFAULT_MAX_BACKOFF_MS = 30_000;
+
+    private int failureThreshold;
+
+    private long minBackoffMs;
+
+    private long maxBackoffMs;
+
+    private boolean parking;
+
+    public TcpBackendHealthOptions() {
+        this.failureThreshold = 0;
+        this.minBackoffMs = DEFAULT_MIN_BACKOFF_MS;
+        this.maxBackoffMs = DEFAULT_MAX_BACKOFF_MS;
+        this.parking = false;
+    }
+
+    public TcpBackendHealthOptions copy() {
+        TcpBackendHealthOptions copy = new TcpBackendHealthOptions();
+
+        copy.failureThreshold = this.failureThreshold;
+        copy.minBackoffMs = this.minBackoffMs;
+        copy.maxBackoffMs = this.maxBackoffMs;
+        copy.parking = this.parking;
+
+        return copy;
+    }
+
+    public void validate() {
+        if (failureThreshold < 0) {
+            throw new IllegalArgumentException("Failure threshold must not be negative");
+        }
+
+        if (minBackoffMs <= 0) {
+            throw new IllegalArgumentException("Minimal backoff must be positive");
+        }
+
+        if (maxBackoffMs < minBackoffMs) {
+            throw new IllegalArgumentException("Maximal backoff must not be less than minimal backoff");
+        }
+    }
+
+    /**
+     * Count of consecutive connect failures after which the target is considered down
+     * @return Count or zero if the breaker is disabled
+     */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public long getMinBackoffMs() {
+        return minBackoffMs;
+    }
+
+    public void setMinBackoffMs(long minBackoffMs) {
+        this.minBackoffMs = minBackoffMs;
+    }
+
+    public long getMaxBackoffMs() {
+        return maxBackoffMs;
+    }
+
+    public void setMaxBackoffMs(long maxBackoffMs) {
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    /**
+     * Whether clients are parked while the target is down. Parked clients are connected when the target
+     * is back or closed after the connection timeout. Otherwise clients are reset at once
+     * @return True if clients are parked
+     */
+    public boolean isParking() {
+        return parking;
+    }
+
+    public void setParking(boolean parking) {
+        this.parking = parking;
+    }
+
+    public boolean isEnabled() {
+        return failureThreshold > 0;
+    }
+
+}
@@ -0,0 +1,223 @@
+package org.netcrusher.tcp;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Set of targets with the balancing policy. Targets are chosen from different event loops, so the class
+ * is thread-safe.
+ */
+class TcpBackends {
+
+    private static final int VIRTUAL_NODE_COUNT = 160;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final int BYTE_MASK = 0xFF;
+
+    private static final int MIX_SHIFT = 33;
+
+    private static final long MIX_MULTIPLIER1 = 0xff51afd7ed558ccdL;
+
+    private static final long MIX_MULTIPLIER2 = 0xc4ceb9fe1a85ec53L;
+
+    private final List<TcpBackend> backends;
+
+    private final TcpBackendBalancing balancing;
+
+    private final AtomicInteger counter;
+
+    private final AtomicInteger activeCount;
+
+    private volatile Runnable releaseListener;
+
+    private final long[] ringHashes;
+
+    private final TcpBackend[] ringBackends;
+
+    TcpBackends(List<InetSocketAddress> addresses, TcpBackendBalancing balancing,
+                TcpBackendHealthOptions healthOptions)
+    {
+        final List<TcpBackend> backends = new ArrayList<>(addresses.size());
+        for (InetSocketAddress address : addresses) {
+            backends.add(new TcpBackend(address, this, healthOptions));
+        }
+
+        this.backends = Collections.unmodifiableList(backends);
+        this.balancing = balancing;
+        this.counter = new AtomicInteger(0);
+        this.activeCount = new AtomicInteger(0);
+
+        if (balancing == TcpBackendBalancing.CONSISTENT_HASH) {
+            this.ringHashes = new long[backends.size() * VIRTUAL_NODE_COUNT];
+            this.ringBackends = new TcpBackend[ringHashes.length];
+            buildRing();
+        } else {
+            this.ringHashes = null;
+            this.ringBackends = null;
+        }
+    }
+
+    private void buildRing() {
+        // every target is put on the ring many times so clients are spread evenly
+        final long[][] nodes = new long[ringHashes.length][];
+        int index = 0;
+        for (int i = 0; i < backends.size(); i++) {
+            final String name = backends.get(i).getAddress().toString();
+            for (int v = 0; v < VIRTUAL_NODE_COUNT; v++) {
+                long hash = hash((name + "#" + v).getBytes(StandardCharsets.UTF_8));
+                nodes[index++] = new long[] { hash, i };
+            }
+        }
+
+        Arrays.sort(nodes, (n1, n2) -> Long.compare(n1[0], n2[0]));
+
+        for (int i = 0; i < nodes.length; i++) {
+            ringHashes[i] = nodes[i][0];
+            ringBackends[i] = backends.get((int) nodes[i][1]);
+        }
+    }
+
+    /**
+     * Choose the target for a new client and count the connection
+     * @param clientAddress Address of the client
+     * @return Chosen target, release() must be called for it when the connection is closed
+     */
+    TcpBackend acquire(InetSocketAddress clientAddress) {
+        final TcpBackend backend = choose(clientAddress);
+        backend.acquire();
+        return backend;
+    }
+
+    private TcpBackend choose(InetSocketAddress clientAddress) {
+        final int count = backends.size();
+        if (count == 1) {
+            return backends.get(0);
+        }
+
+        // targets which are down are skipped unless all of them are down
+        switch (balancing) {
+            case LEAST_ACTIVE:
+                return chooseLeastActive();
+            case CONSISTENT_HASH:
+                return chooseOnRing(clientAddress);
+            default:
+                final int start = counter.getAndIncrement();
+                for (int i = 0; i < count; i++) {
+                    TcpBackend backend = backends.get(Math.floorMod(start + i, count));
+                    if (!backend.isDown()) {
+                        return backend;
+                    }
+                }
+
+                return backends.get(Math.floorMod(start, count));
+        }
+    }
+
+    private TcpBackend chooseLeastActive() {
+        TcpBackend chosen = null;
+        int chosenCount = Integer.MAX_VALUE;
+
+        for (TcpBackend backend : backends) {
+            int activeCount = backend.getActiveCount();
+            if (!backend.isDown() && activeCount < chosenCount) {
+                chosen = backend;
+                chosenCount = activeCount;
+            }
+        }
+
+        return chosen != null ? chosen : backends.get(0);
+    }
+
+    private TcpBackend chooseOnRing(InetSocketAddress clientAddress) {
+        // the port is ignored so all connections from the same host go to the same target
+        final InetAddress host = clientAddress.getAddress();
+        final long hash = (host != null)
+            ? hash(host.getAddress())
+            : hash(clientAddress.getHostString().getBytes(StandardCharsets.UTF_8));
+
+        int index = Arrays.binarySearch(ringHashes, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+
+        // the next target clockwise takes clients of a target which is down
+        for (int i = 0; i < ringBackends.length; i++) {
+            TcpBackend backend = ringBackends[(index + i) % ringBackends.length];
+            if (!backend.isDown()) {
+                return backend;
+            }
+        }
+
+        return ringBackends[index % ringBackends.length];
+    }
+
+    private static long hash(byte[] bytes) {
+        // FNV-1a with a final avalanche step
+        long hash = FNV_OFFSET;
+        for (byte b : bytes) {
+            hash ^= b & BYTE_MASK;
+            hash *= FNV_PRIME;
+        }
+
+        hash ^= hash >>> MIX_SHIFT;
+        hash *= MIX_MULTIPLIER1;
+        hash ^= hash >>> MIX_SHIFT;
+        hash *= MIX_MULTIPLIER2;
+        hash ^= hash >>> MIX_SHIFT;
+
+        return hash;
+    }
+
+    void acquired() {
+        activeCount.incrementAndGet();
+    }
+
+    void released() {
+        activeCount.decrementAndGet();
+
+        final Runnable listener = releaseListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Count of connections to all targets including ones which are still connecting
+     * @return Count of connections
+     */
+    int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * Set a listener which is called on any thread each time a connection is released
+     * @param releaseListener Listener
+     */
+    void setReleaseListener(Runnable releaseListener) {
+        this.releaseListener = releaseListener;
+    }
+
+    List<TcpBackend> getBackends() {
+        return backends;
+    }
+
+    TcpBackend getBackend(InetSocketAddress address) {
+        for (TcpBackend backend : backends) {
+            if (backend.getAddress().equals(address)) {
+                return backend;
+            }
+        }
+
+        return null;
+    }
+
+}
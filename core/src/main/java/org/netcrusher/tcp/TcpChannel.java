@@ -3,14 +3,16 @@ package org.netcrusher.tcp;
 import org.netcrusher.core.meter.RateMeter;
 import org.netcrusher.core.meter.RateMeterImpl;
 import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.nio.ReadBudgetOptions;
 import org.netcrusher.core.nio.SelectionKeyControl;
-import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioSelector;
 import org.netcrusher.core.state.BitState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
@@ -26,7 +28,7 @@ class TcpChannel {
 
     private final String name;
 
-    private final NioReactor reactor;
+    private final NioSelector selector;
 
     private final Runnable ownerClose;
 
@@ -38,6 +40,8 @@ class TcpChannel {
 
     private final TcpQueue outgoingQueue;
 
+    private final ReadBudgetOptions readBudget;
+
     private final Meters meters;
 
     private final State state;
@@ -46,11 +50,13 @@ class TcpChannel {
 
     private TcpChannel other;
 
-    TcpChannel(String name, NioReactor reactor, Runnable ownerClose, SocketChannel channel,
-               TcpQueue incomingQueue, TcpQueue outgoingQueue) throws IOException
+    private boolean memoryAwaited;
+
+    TcpChannel(String name, NioSelector selector, Runnable ownerClose, SocketChannel channel,
+               TcpQueue incomingQueue, TcpQueue outgoingQueue, ReadBudgetOptions readBudget) throws IOException
     {
         this.name = name;
-        this.reactor = reactor;
+        this.selector = selector;
         this.ownerClose = ownerClose;
         this.channel = channel;
 
@@ -58,17 +64,18 @@ class TcpChannel {
 
         this.incomingQueue = incomingQueue;
         this.outgoingQueue = outgoingQueue;
+        this.readBudget = readBudget;
 
         this.meters = new Meters();
 
-        SelectionKey selectionKey = reactor.getSelector().register(channel, 0, this::callback);
+        SelectionKey selectionKey = selector.register(channel, 0, this::callback);
         this.selectionKeyControl = new SelectionKeyControl(selectionKey);
 
         this.state = new State(State.FROZEN);
     }
 
     void close() {
-        reactor.getSelector().execute(() -> {
+        selector.execute(() -> {
             if (state.not(State.CLOSED)) {
                 if (state.is(State.OPEN)) {
                     freeze();
@@ -102,7 +109,7 @@ class TcpChannel {
     }
 
     private void closeAllDeferred() {
-        reactor.getSelector().schedule(this::closeAll, LINGER_PERIOD_NS);
+        selector.schedule(this::closeAll, LINGER_PERIOD_NS);
     }
 
     private void closeEOF() {
@@ -192,10 +199,16 @@ class TcpChannel {
     private void handleReadableEvent() throws IOException {
         final TcpQueue queue = outgoingQueue;
 
+        final long startNs = readBudget.start();
+        long readTotal = 0;
+
         while (state.isReadable()) {
             final TcpQueueBuffers queueBuffers = queue.requestWritableBuffers();
             if (queueBuffers.isEmpty()) {
                 selectionKeyControl.disableReads();
+                if (queue.isStalled()) {
+                    awaitMemory();
+                }
                 break;
             }
 
@@ -226,11 +239,50 @@ class TcpChannel {
             meters.readBytes.update(read);
 
             other.suggestImmediateSent();
+
+            readTotal += read;
+            if (readBudget.isExhausted(readTotal, startNs)) {
+                // the socket is still readable so the channel will be back on the next select
+                break;
+            }
         }
 
         other.suggestDeferredSent();
     }
 
+    /**
+     * Put bytes which have been read from the socket before the channel is created. Must be called while frozen
+     * @param bb Bytes to put into the outgoing queue
+     * @throws IOException If the queue has no room for all the bytes
+     */
+    void prefill(ByteBuffer bb) throws IOException {
+        final int size = bb.remaining();
+
+        while (bb.hasRemaining()) {
+            final TcpQueueBuffers queueBuffers = outgoingQueue.requestWritableBuffers();
+            if (queueBuffers.isEmpty()) {
+                throw new IOException("No room for " + bb.remaining() + " prefilled bytes in channel " + name);
+            }
+
+            try {
+                final ByteBuffer[] array = queueBuffers.getArray();
+                for (int i = 0; i < queueBuffers.getCount() && bb.hasRemaining(); i++) {
+                    final ByteBuffer target = array[queueBuffers.getOffset() + i];
+
+                    final ByteBuffer chunk = bb.duplicate();
+                    chunk.limit(chunk.position() + Math.min(chunk.remaining(), target.remaining()));
+                    target.put(chunk);
+
+                    bb.position(chunk.position());
+                }
+            } finally {
+                outgoingQueue.releaseWritableBuffers();
+            }
+        }
+
+        meters.readBytes.update(size);
+    }
+
     private void processPostOperations() {
         if (!incomingQueue.hasReadable() && other.state.isReadEof()) {
             while (!postOperations.isEmpty()) {
@@ -250,6 +302,23 @@ class TcpChannel {
         }
     }
 
+    private void awaitMemory() {
+        if (!memoryAwaited) {
+            memoryAwaited = true;
+
+            LOGGER.debug("Channel {} stops reading as the memory budget is exhausted", name);
+
+            // memory could be released on any loop so reading is resumed on the loop of the channel
+            outgoingQueue.awaitMemory(() -> selector.post(this::resumeReads));
+        }
+    }
+
+    private void resumeReads() {
+        memoryAwaited = false;
+        outgoingQueue.unstall();
+        suggestDeferredRead();
+    }
+
     private void suggestDeferredRead() {
         if (outgoingQueue.hasWritable() && state.isReadable()) {
             selectionKeyControl.enableReads();
@@ -310,7 +379,7 @@ class TcpChannel {
                 this.selectionKeyControl.disableWrites();
             }
 
-            reactor.getSelector().schedule(this::unthrottleSend, delayNs);
+            selector.schedule(this::unthrottleSend, delayNs);
         }
     }
 
@@ -0,0 +1,34 @@
+package org.netcrusher.tcp;
+
+import java.io.Serializable;
+
+/**
+ * Snapshot of both buffer queues of a proxy pair
+ */
+public class TcpClientQueueStats implements Serializable {
+
+    private final TcpQueueStats incoming;
+
+    private final TcpQueueStats outgoing;
+
+    TcpClientQueueStats(TcpQueueStats incoming, TcpQueueStats outgoing) {
+        this.incoming = incoming;
+        this.outgoing = outgoing;
+    }
+
+    /**
+     * Get the queue from the outer (connected) socket to the inner (accepted) one
+     * @return Queue snapshot
+     */
+    public TcpQueueStats getIncoming() {
+        return incoming;
+    }
+
+    /**
+     * Get the queue from the inner (accepted) socket to the outer (connected) one
+     * @return Queue snapshot
+     */
+    public TcpQueueStats getOutgoing() {
+        return outgoing;
+    }
+}
@@ -0,0 +1,80 @@
+package org.netcrusher.tcp;
+
+import org.netcrusher.core.meter.RateMeterSnapshot;
+
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+
+/**
+ * Immutable statistics of a client
+ */
+public class TcpClientStats implements Serializable {
+
+    private final InetSocketAddress clientAddress;
+
+    private final InetSocketAddress connectAddress;
+
+    private final RateMeterSnapshot readBytes;
+
+    private final RateMeterSnapshot sentBytes;
+
+    private final TcpClientQueueStats queueStats;
+
+    TcpClientStats(InetSocketAddress clientAddress, InetSocketAddress connectAddress,
+                   RateMeterSnapshot readBytes, RateMeterSnapshot sentBytes, TcpClientQueueStats queueStats)
+    {
+        this.clientAddress = clientAddress;
+        this.connectAddress = connectAddress;
+        this.readBytes = readBytes;
+        this.sentBytes = sentBytes;
+        this.queueStats = queueStats;
+    }
+
+    /**
+     * Get client address
+     * @return Client address
+     */
+    public InetSocketAddress getClientAddress() {
+        return clientAddress;
+    }
+
+    /**
+     * Get the connect address the client is connected to
+     * @return Connect address
+     */
+    public InetSocketAddress getConnectAddress() {
+        return connectAddress;
+    }
+
+    /**
+     * Get bytes sent to the client
+     * @return Meter snapshot
+     * @see TcpCrusher#getClientByteMeters(InetSocketAddress)
+     */
+    public RateMeterSnapshot getReadBytes() {
+        return readBytes;
+    }
+
+    /**
+     * Get bytes sent to the target
+     * @return Meter snapshot
+     * @see TcpCrusher#getClientByteMeters(InetSocketAddress)
+     */
+    public RateMeterSnapshot getSentBytes() {
+        return sentBytes;
+    }
+
+    /**
+     * Get buffer queues of the client
+     * @return Queue snapshot
+     */
+    public TcpClientQueueStats getQueueStats() {
+        return queueStats;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("client=%s, target=%s, read=[%s], sent=[%s]",
+            clientAddress, connectAddress, readBytes, sentBytes);
+    }
+}
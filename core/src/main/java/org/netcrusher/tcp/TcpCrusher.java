@@ -1,21 +1,32 @@
 package org.netcrusher.tcp;
 
 import org.netcrusher.NetCrusher;
+import org.netcrusher.NetCrusherException;
 import org.netcrusher.NetFreezer;
 import org.netcrusher.core.buffer.BufferOptions;
+import org.netcrusher.core.buffer.BufferPool;
 import org.netcrusher.core.meter.RateMeters;
+import org.netcrusher.core.nio.ReadBudgetOptions;
 import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioSelector;
 import org.netcrusher.core.state.BitState;
+import org.netcrusher.core.throttle.Throttler;
 import org.netcrusher.tcp.callback.TcpClientCreation;
 import org.netcrusher.tcp.callback.TcpClientDeletion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 /**
@@ -56,6 +67,8 @@ public class TcpCrusher implements NetCrusher {
 
     private final Map<InetSocketAddress, TcpPair> pairs;
 
+    private final Map<NioSelector, TcpQueueSweeper> sweepers;
+
     private final TcpClientCreation creationListener;
 
     private final TcpClientDeletion deletionListener;
@@ -64,6 +77,26 @@ public class TcpCrusher implements NetCrusher {
 
     private final BufferOptions bufferOptions;
 
+    private final ReadBudgetOptions readBudgetOptions;
+
+    private final BufferPool bufferPool;
+
+    private final int acceptBudget;
+
+    private final int maxConnections;
+
+    private final Throttler acceptThrottler;
+
+    private final TcpAcceptOverflow acceptOverflow;
+
+    private final int outboundPoolSize;
+
+    private final boolean acceptorSharding;
+
+    private final TcpBackends backends;
+
+    private final TcpBackendHealthOptions backendHealthOptions;
+
     private final TcpFilters filters;
 
     private final State state;
@@ -86,18 +119,83 @@ public class TcpCrusher implements NetCrusher {
 
         this.reactor = options.getReactor();
         this.bindAddress = options.getBindAddress();
-        this.connectAddress = options.getConnectAddress();
+        final List<InetSocketAddress> connectAddresses = options.getEffectiveConnectAddresses();
+        this.connectAddress = connectAddresses.get(0);
+        this.backendHealthOptions = options.getBackendHealthOptions().copy();
+        this.backends = new TcpBackends(connectAddresses, options.getBackendBalancing(), backendHealthOptions);
         this.bindBeforeConnectAddress = options.getBindBeforeConnectAddress();
         this.socketOptions = options.getSocketOptions().copy();
         this.bufferOptions = options.getBufferOptions().copy();
+        this.readBudgetOptions = options.getReadBudgetOptions().copy();
+        this.bufferPool = new BufferPool(bufferOptions, reactor.getMemoryBudget());
+        this.acceptBudget = options.getAcceptBudget();
+        this.maxConnections = options.getMaxConnections();
+        this.acceptThrottler = (options.getAcceptThrottlerFactory() != null)
+            ? options.getAcceptThrottlerFactory().allocate(bindAddress) : null;
+        this.acceptOverflow = options.getAcceptOverflow();
+        this.outboundPoolSize = options.getOutboundPoolSize();
+        this.acceptorSharding = options.isAcceptorSharding();
         this.creationListener = options.getCreationListener();
         this.deletionListener = options.getDeletionListener();
         this.deferredListeners = options.isDeferredListeners();
 
         this.pairs = new ConcurrentHashMap<>(DEFAULT_PAIR_CAPACITY);
+        this.sweepers = new ConcurrentHashMap<>();
         this.state = new State(State.CLOSED);
     }
 
+    ReadBudgetOptions getReadBudgetOptions() {
+        return readBudgetOptions;
+    }
+
+    int getAcceptBudget() {
+        return acceptBudget;
+    }
+
+    int getMaxConnections() {
+        return maxConnections;
+    }
+
+    Throttler getAcceptThrottler() {
+        return acceptThrottler;
+    }
+
+    TcpAcceptOverflow getAcceptOverflow() {
+        return acceptOverflow;
+    }
+
+    int getOutboundPoolSize() {
+        return outboundPoolSize;
+    }
+
+    boolean isAcceptorSharding() {
+        return acceptorSharding;
+    }
+
+    TcpBackends getBackends() {
+        return backends;
+    }
+
+    TcpBackendHealthOptions getBackendHealthOptions() {
+        return backendHealthOptions;
+    }
+
+    /**
+     * Get the sweeper which trims queues of pairs on the loop
+     * @return Sweeper or null if idle queues are not trimmed
+     */
+    TcpQueueSweeper getQueueSweeper(NioSelector selector) {
+        return sweepers.get(selector);
+    }
+
+    /**
+     * Get the pool of buffers shared by all pairs of the crusher
+     * @return Buffer pool
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
     void notifyPairCreated(TcpPair pair) {
         LOGGER.debug("Pair is created for <{}>", pair.getClientAddress());
 
@@ -122,6 +220,15 @@ public class TcpCrusher implements NetCrusher {
     public void open() {
         reactor.getSelector().execute(() -> {
             if (state.is(State.CLOSED)) {
+                if (bufferOptions.getTrimIdleNs() > 0) {
+                    for (NioSelector selector : reactor.getWorkerSelectors()) {
+                        TcpQueueSweeper sweeper = new TcpQueueSweeper(selector, bufferPool,
+                            bufferOptions.getTrimIdleNs());
+                        sweepers.put(selector, sweeper);
+                        selector.post(sweeper::open);
+                    }
+                }
+
                 this.acceptor = new TcpAcceptor(this, reactor,
                     bindAddress, connectAddress, bindBeforeConnectAddress,
                     socketOptions, filters, bufferOptions);
@@ -141,26 +248,32 @@ public class TcpCrusher implements NetCrusher {
 
     @Override
     public void close() {
-        reactor.getSelector().execute(() -> {
+        CompletableFuture<Void> pairsClosed = reactor.getSelector().execute(() -> {
             if (state.not(State.CLOSED)) {
                 if (state.is(State.OPEN)) {
                     freeze();
                 }
 
-                closeAllPairs();
+                CompletableFuture<Void> closed = closePairs();
 
                 acceptor.close();
                 acceptor = null;
 
+                sweepers.forEach((selector, sweeper) -> selector.post(sweeper::close));
+                sweepers.clear();
+
                 state.set(State.CLOSED);
 
                 LOGGER.info("TcpCrusher <{}>-<{}> is closed", bindAddress, connectAddress);
 
-                return true;
+                // buffers are returned by the loops of the pairs
+                return closed.thenRun(bufferPool::checkLeaks);
             } else {
-                return false;
+                return CompletableFuture.<Void>completedFuture(null);
             }
         });
+
+        awaitPairs(pairsClosed);
     }
 
     @Override
@@ -172,20 +285,52 @@ public class TcpCrusher implements NetCrusher {
      * Close all pairs but keeps listening socket open
      */
     public void closeAllPairs() {
-        reactor.getSelector().execute(() -> {
+        CompletableFuture<Void> pairsClosed = reactor.getSelector().execute(() -> {
             if (state.not(State.CLOSED)) {
-                for (TcpPair pair : pairs.values()) {
-                    pair.close();
-                    notifyPairDeleted(pair);
-                }
-
-                pairs.clear();
-
-                return true;
+                return closePairs();
             } else {
-                return false;
+                return CompletableFuture.<Void>completedFuture(null);
             }
         });
+
+        awaitPairs(pairsClosed);
+    }
+
+    /**
+     * Close all pairs without waiting for their loops. Each loop closes its pairs with a single operation
+     * and the pairs are forgotten on the primary loop when all loops are done. Must be called on the primary loop
+     * @return Future which is completed when pairs are closed and forgotten
+     */
+    private CompletableFuture<Void> closePairs() {
+        final List<TcpPair> closing = new ArrayList<>(pairs.values());
+        if (closing.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final NioSelector primary = reactor.getSelector();
+
+        return NioSelector.postAll(closing, TcpPair::getSelector, (pair) -> {
+            if (pair.close()) {
+                notifyPairDeleted(pair);
+            }
+        }).thenCompose((ignored) -> primary.submit(() -> {
+            // pairs which are accepted in the meantime are kept
+            closing.forEach((pair) -> pairs.remove(pair.getClientAddress(), pair));
+            return null;
+        }));
+    }
+
+    private void awaitPairs(CompletableFuture<Void> pairsClosed) {
+        // the primary loop itself never waits for other loops
+        if (!reactor.getSelector().isSelectorThread()) {
+            try {
+                pairsClosed.get();
+            } catch (InterruptedException e) {
+                throw new NetCrusherException("Closing of pairs was interrupted", e);
+            } catch (ExecutionException e) {
+                throw new NetCrusherException("Fail to close pairs", e);
+            }
+        }
     }
 
     @Override
@@ -319,32 +464,116 @@ public class TcpCrusher implements NetCrusher {
 
     @Override
     public RateMeters getClientByteMeters(InetSocketAddress clientAddress) {
-        return reactor.getSelector().execute(() -> {
+        return reactor.getSelector().execute(() -> doGetClientByteMeters(clientAddress));
+    }
+
+    @Override
+    public CompletableFuture<RateMeters> getClientByteMetersAsync(InetSocketAddress clientAddress) {
+        return reactor.getSelector().submit(() -> doGetClientByteMeters(clientAddress));
+    }
+
+    private RateMeters doGetClientByteMeters(InetSocketAddress clientAddress) {
+        if (state.not(State.CLOSED)) {
+            TcpPair pair = this.pairs.get(clientAddress);
+            if (pair != null) {
+                return pair.getByteMeters();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Get statistics of all clients at once. Clients are read without the primary loop and each loop takes
+     * statistics of its clients in a single operation, so the call doesn't cost a round-trip per client
+     * @param resetPeriod True if periods of all meters should be reset
+     * @return Immutable map of statistics by client address
+     */
+    public Map<InetSocketAddress, TcpClientStats> getClientStats(boolean resetPeriod) {
+        if (state.is(State.CLOSED)) {
+            return Collections.emptyMap();
+        }
+
+        List<TcpClientStats> stats = NioSelector.collectAll(pairs.values(), TcpPair::getSelector,
+            (pair) -> pair.getStats(resetPeriod));
+
+        Map<InetSocketAddress, TcpClientStats> result = new LinkedHashMap<>(stats.size() * 2);
+        for (TcpClientStats item : stats) {
+            result.put(item.getClientAddress(), item);
+        }
+
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Get buffer queue statistics of the client
+     * @param clientAddress Client address
+     * @return Snapshot of both queues or null if the client is not found
+     */
+    public TcpClientQueueStats getClientQueueStats(InetSocketAddress clientAddress) {
+        TcpPair pair = reactor.getSelector().execute(() -> {
             if (state.not(State.CLOSED)) {
-                TcpPair pair = this.pairs.get(clientAddress);
-                if (pair != null) {
-                    return pair.getByteMeters();
-                }
+                return this.pairs.get(clientAddress);
+            } else {
+                return null;
             }
+        });
 
+        // the pair could live on another loop so its queues are read on that loop
+        if (pair != null) {
+            return pair.getQueueStats();
+        } else {
             return null;
-        });
+        }
     }
 
     @Override
     public boolean closeClient(InetSocketAddress clientAddress) {
-        return reactor.getSelector().execute(() -> {
+        return reactor.getSelector().execute(() -> doCloseClient(clientAddress));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> closeClientAsync(InetSocketAddress clientAddress) {
+        return reactor.getSelector().submit(() -> doCloseClient(clientAddress));
+    }
+
+    @Override
+    public int closeClients(Collection<InetSocketAddress> clientAddresses) {
+        // pairs are taken away at once and then each loop closes all its pairs in a single operation
+        List<TcpPair> removed = reactor.getSelector().execute(() -> {
             if (state.not(State.CLOSED)) {
-                TcpPair pair = pairs.remove(clientAddress);
-                if (pair != null) {
-                    pair.close();
+                return clientAddresses.stream()
+                    .map(pairs::remove)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            } else {
+                return Collections.<TcpPair>emptyList();
+            }
+        });
+
+        List<TcpPair> closed = NioSelector.collectAll(removed, TcpPair::getSelector, (pair) -> {
+            if (pair.close()) {
+                notifyPairDeleted(pair);
+            }
+            return pair;
+        });
+
+        return closed.size();
+    }
+
+    private boolean doCloseClient(InetSocketAddress clientAddress) {
+        if (state.not(State.CLOSED)) {
+            TcpPair pair = pairs.remove(clientAddress);
+            if (pair != null) {
+                // the pair could be closed by closeAllPairs() which forgets it later
+                if (pair.close()) {
                     notifyPairDeleted(pair);
-                    return true;
                 }
+                return true;
             }
+        }
 
-            return false;
-        });
+        return false;
     }
 
     /**
@@ -381,6 +610,76 @@ public class TcpCrusher implements NetCrusher {
         });
     }
 
+    /**
+     * Get count of established outbound connections which wait for clients in the pool
+     * @return Count of idle pooled connections
+     */
+    public int getOutboundPoolIdleCount() {
+        return reactor.getSelector().execute(() -> {
+            if (state.not(State.CLOSED)) {
+                return acceptor.getOutboundPoolIdleCount();
+            } else {
+                return 0;
+            }
+        });
+    }
+
+    /**
+     * Get all connect addresses the crusher balances clients between
+     * @return List of connect addresses
+     */
+    public List<InetSocketAddress> getConnectAddresses() {
+        return backends.getBackends().stream()
+            .map(TcpBackend::getAddress)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Get count of active connections to the connect address including ones which are still connecting
+     * @param connectAddress Connect address
+     * @return Count of connections or -1 if the address is not one of connect addresses
+     */
+    public int getBackendActiveCount(InetSocketAddress connectAddress) {
+        TcpBackend backend = backends.getBackend(connectAddress);
+        return backend != null ? backend.getActiveCount() : -1;
+    }
+
+    /**
+     * Check if the connect address is considered down after consecutive connect failures
+     * @param connectAddress Connect address
+     * @return True if new clients are not connected to the address until a probe succeeds
+     * @see TcpCrusherBuilder#withBackendFailureThreshold(int)
+     */
+    public boolean isBackendDown(InetSocketAddress connectAddress) {
+        TcpBackend backend = backends.getBackend(connectAddress);
+        return backend != null && backend.isDown();
+    }
+
+    /**
+     * Get byte meters of all pairs ever connected to the connect address. The read meter counts bytes read
+     * from the target, the sent meter counts bytes sent to the target
+     * @param connectAddress Connect address
+     * @return Byte meters or null if the address is not one of connect addresses
+     */
+    public RateMeters getBackendByteMeters(InetSocketAddress connectAddress) {
+        TcpBackend backend = backends.getBackend(connectAddress);
+        return backend != null ? backend.getByteMeters() : null;
+    }
+
+    /**
+     * Get count of listening sockets. Greater than one if the acceptor is sharded across event loops
+     * @return Count of listening sockets or 0 if the crusher is closed
+     */
+    public int getAcceptorShardCount() {
+        return reactor.getSelector().execute(() -> {
+            if (state.not(State.CLOSED)) {
+                return acceptor.getShardCount();
+            } else {
+                return 0;
+            }
+        });
+    }
+
     private static final class State extends BitState {
 
         private static final int OPEN = bit(0);
@@ -10,6 +10,8 @@ import org.netcrusher.tcp.callback.TcpClientDeletion;
 
 import java.net.InetSocketAddress;
 import java.net.StandardSocketOptions;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Builder for TcpCrusher instance
@@ -70,6 +72,64 @@ public final class TcpCrusherBuilder {
         return withConnectAddress(new InetSocketAddress(hostname, port));
     }
 
+    /**
+     * Set several connect addresses instead of a single one. Every new client is connected to one of them
+     * which is chosen according to the backend balancing
+     * @param addresses List of connect addresses
+     * @return This builder instance to chain with other methods
+     * @see #withBackendBalancing(TcpBackendBalancing)
+     */
+    public TcpCrusherBuilder withConnectAddresses(List<InetSocketAddress> addresses) {
+        this.options.setConnectAddresses(new ArrayList<>(addresses));
+        return this;
+    }
+
+    /**
+     * Set how a target is chosen for a new client if there are several connect addresses
+     * @param backendBalancing Balancing policy (round-robin by default)
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withBackendBalancing(TcpBackendBalancing backendBalancing) {
+        this.options.setBackendBalancing(backendBalancing);
+        return this;
+    }
+
+    /**
+     * Set after how many consecutive connect failures a connect address is considered down. While it's down
+     * new clients are rejected at once (or parked) instead of waiting for the connection timeout, and the address
+     * is probed with an exponential backoff. With several connect addresses clients go to addresses which are up
+     * @param failureThreshold Count of failures or 0 to disable (default)
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withBackendFailureThreshold(int failureThreshold) {
+        this.options.getBackendHealthOptions().setFailureThreshold(failureThreshold);
+        return this;
+    }
+
+    /**
+     * Set the backoff between probes of a connect address which is down. The backoff starts with the minimal
+     * value and is doubled on each failed probe up to the maximal value
+     * @param minBackoffMs Minimal backoff in milliseconds (500 by default)
+     * @param maxBackoffMs Maximal backoff in milliseconds (30000 by default)
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withBackendBackoffMs(long minBackoffMs, long maxBackoffMs) {
+        this.options.getBackendHealthOptions().setMinBackoffMs(minBackoffMs);
+        this.options.getBackendHealthOptions().setMaxBackoffMs(maxBackoffMs);
+        return this;
+    }
+
+    /**
+     * Set whether or not clients are parked while all connect addresses are down. A parked client is connected
+     * as soon as a probe succeeds or closed after the connection timeout. Otherwise clients are reset at once
+     * @param parking True to park clients (false by default)
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withBackendDownParking(boolean parking) {
+        this.options.getBackendHealthOptions().setParking(parking);
+        return this;
+    }
+
     /**
      * Set bind-before-connect address
      * @param address Inet address
@@ -130,6 +190,78 @@ public final class TcpCrusherBuilder {
         return this;
     }
 
+    /**
+     * Set how many connections could be accepted in one selector callback. During a connection storm
+     * the listening socket is drained in bursts instead of one connection per loop iteration
+     * @param acceptBudget Count of connections (64 by default)
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withAcceptBudget(int acceptBudget) {
+        this.options.setAcceptBudget(acceptBudget);
+        return this;
+    }
+
+    /**
+     * Set how many clients could be connected at once. Clients which are still connecting to the target
+     * are counted as well. Over the limit new clients are handled by the accept overflow policy
+     * @param maxConnections Count of clients (0 by default, no limit)
+     * @return This builder instance to chain with other methods
+     * @see #withAcceptOverflow(TcpAcceptOverflow)
+     */
+    public TcpCrusherBuilder withMaxConnections(int maxConnections) {
+        this.options.setMaxConnections(maxConnections);
+        return this;
+    }
+
+    /**
+     * Set throttler factory for accepted connections. The throttler is allocated once for the bind address
+     * and is called with an empty buffer for each accepted connection, so a packet rate throttler limits
+     * the count of connections per period. A delayed connection is handled by the accept overflow policy
+     * @param acceptThrottlerFactory Throttler factory
+     * @return This builder instance to chain with other methods
+     * @see org.netcrusher.core.throttle.rate.PacketRateThrottler
+     * @see #withAcceptOverflow(TcpAcceptOverflow)
+     */
+    public TcpCrusherBuilder withAcceptThrottlerFactory(ThrottlerFactory acceptThrottlerFactory) {
+        this.options.setAcceptThrottlerFactory(acceptThrottlerFactory);
+        return this;
+    }
+
+    /**
+     * Set what happens to new clients over the connection limit or the accept rate
+     * @param acceptOverflow Overflow policy (BACKLOG by default)
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withAcceptOverflow(TcpAcceptOverflow acceptOverflow) {
+        this.options.setAcceptOverflow(acceptOverflow);
+        return this;
+    }
+
+    /**
+     * Set how many outbound connections are established in advance. An accepted client takes a connection
+     * from the pool and doesn't wait for the connection to the target. The pool is refilled in background.
+     * An idle pooled connection closed by the target is dropped. Bytes the target sends first (e.g. greeting
+     * of SMTP or FTP) are kept and sent to the client that takes the connection
+     * @param outboundPoolSize Count of pooled connections (0 by default, the pool is disabled)
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withOutboundPoolSize(int outboundPoolSize) {
+        this.options.setOutboundPoolSize(outboundPoolSize);
+        return this;
+    }
+
+    /**
+     * Set whether or not every worker loop of the reactor listens on its own socket. Sockets share the same
+     * port with SO_REUSEPORT, so the kernel spreads incoming connections between loops and a client stays
+     * on the loop which has accepted it. If SO_REUSEPORT is not available a single socket is used
+     * @param acceptorSharding True to listen on a socket per loop (false by default)
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withAcceptorSharding(boolean acceptorSharding) {
+        this.options.setAcceptorSharding(acceptorSharding);
+        return this;
+    }
+
     /**
      * Set whether or not both sockets would use SO_KEEPALIVE feature
      * @param keepAlive SO_KEEPALIVE flag value
@@ -196,7 +328,8 @@ public final class TcpCrusherBuilder {
     }
 
     /**
-     * Set how many buffer instances will be in queue between two sockets in a proxy pair
+     * Set how many buffer instances could be in queue between two sockets in a proxy pair. Buffers are taken
+     * from the crusher's shared pool only while there is data in flight
      * @param bufferCount Count of buffer
      * @return This builder instance to chain with other methods
      */
@@ -225,6 +358,53 @@ public final class TcpCrusherBuilder {
         return this;
     }
 
+    /**
+     * Set how long a queue should be idle before it returns spare buffers to the pool and shrinks back.
+     * A queue starts with a couple of buffers and doubles them up to the buffer count while the peer
+     * is slower than the producer. Each event loop checks its queues once per period and then returns
+     * unused slabs of the pool
+     * @param trimIdleNs Idle period in nanoseconds or 0 to return every buffer as soon as it's drained
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withBufferTrimIdleNs(long trimIdleNs) {
+        this.options.getBufferOptions().setTrimIdleNs(trimIdleNs);
+        return this;
+    }
+
+    /**
+     * Set whether every buffer taken from the pool should remember where it was taken. Buffers which
+     * are not returned when the crusher is closed are reported with these stack traces. Useful for
+     * debugging only as every buffer acquisition becomes expensive
+     * @param leakDetection Set true to enable leak detection (disabled by default)
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withBufferLeakDetection(boolean leakDetection) {
+        this.options.getBufferOptions().setLeakDetection(leakDetection);
+        return this;
+    }
+
+    /**
+     * Set how many bytes a socket may read in one selector callback. When the budget is exhausted the socket
+     * yields to other sockets of the same selector and continues reading on the next loop iteration
+     * @param readBudgetBytes Count of bytes or 0 if not limited (default)
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withReadBudgetBytes(long readBudgetBytes) {
+        this.options.getReadBudgetOptions().setCount(readBudgetBytes);
+        return this;
+    }
+
+    /**
+     * Set how long a socket may read in one selector callback. When the budget is exhausted the socket
+     * yields to other sockets of the same selector and continues reading on the next loop iteration
+     * @param readBudgetNs Duration in nanoseconds or 0 if not limited (default)
+     * @return This builder instance to chain with other methods
+     */
+    public TcpCrusherBuilder withReadBudgetNs(long readBudgetNs) {
+        this.options.getReadBudgetOptions().setDurationNs(readBudgetNs);
+        return this;
+    }
+
     /**
      * Set outgoing (from the inner to the outer) transform filter factory
      * @param filterFactory Filter factory
@@ -2,12 +2,16 @@ package org.netcrusher.tcp;
 
 import org.netcrusher.core.buffer.BufferOptions;
 import org.netcrusher.core.filter.TransformFilterFactory;
+import org.netcrusher.core.nio.ReadBudgetOptions;
 import org.netcrusher.core.reactor.NioReactor;
 import org.netcrusher.core.throttle.ThrottlerFactory;
 import org.netcrusher.tcp.callback.TcpClientCreation;
 import org.netcrusher.tcp.callback.TcpClientDeletion;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class TcpCrusherOptions {
 
@@ -15,10 +19,20 @@ public class TcpCrusherOptions {
 
     private static final int DEFAULT_BUFFER_SIZE = 32 * 1024;
 
+    private static final long DEFAULT_BUFFER_TRIM_IDLE_NS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final int DEFAULT_ACCEPT_BUDGET = 64;
+
     private InetSocketAddress bindAddress;
 
     private InetSocketAddress connectAddress;
 
+    private List<InetSocketAddress> connectAddresses;
+
+    private TcpBackendBalancing backendBalancing;
+
+    private TcpBackendHealthOptions backendHealthOptions;
+
     private InetSocketAddress bindBeforeConnectAddress;
 
     private NioReactor reactor;
@@ -41,6 +55,20 @@ public class TcpCrusherOptions {
 
     private BufferOptions bufferOptions;
 
+    private ReadBudgetOptions readBudgetOptions;
+
+    private int acceptBudget;
+
+    private int outboundPoolSize;
+
+    private boolean acceptorSharding;
+
+    private int maxConnections;
+
+    private ThrottlerFactory acceptThrottlerFactory;
+
+    private TcpAcceptOverflow acceptOverflow;
+
     public TcpCrusherOptions() {
         this.socketOptions = new TcpCrusherSocketOptions();
 
@@ -48,6 +76,16 @@ public class TcpCrusherOptions {
         this.bufferOptions.setCount(DEFAULT_BUFFER_COUNT);
         this.bufferOptions.setSize(DEFAULT_BUFFER_SIZE);
         this.bufferOptions.setDirect(true);
+        this.bufferOptions.setTrimIdleNs(DEFAULT_BUFFER_TRIM_IDLE_NS);
+
+        this.readBudgetOptions = new ReadBudgetOptions();
+
+        this.acceptBudget = DEFAULT_ACCEPT_BUDGET;
+        this.acceptOverflow = TcpAcceptOverflow.BACKLOG;
+
+        this.connectAddresses = new ArrayList<>();
+        this.backendBalancing = TcpBackendBalancing.ROUND_ROBIN;
+        this.backendHealthOptions = new TcpBackendHealthOptions();
 
         this.deferredListeners = true;
     }
@@ -57,10 +95,6 @@ public class TcpCrusherOptions {
             throw new IllegalArgumentException("Bind address is not set");
         }
 
-        if (connectAddress == null) {
-            throw new IllegalArgumentException("Connect address is not set");
-        }
-
         if (reactor == null) {
             throw new IllegalArgumentException("Reactor is not set");
         }
@@ -69,9 +103,93 @@ public class TcpCrusherOptions {
             throw new IllegalArgumentException("Socket options are not set");
         }
 
+        validateBudgets();
+
+        validateBackends();
+
+        validateOutboundPool();
+
+        validateAcceptLimits();
+    }
+
+    private void validateAcceptLimits() {
+        if (maxConnections < 0) {
+            throw new IllegalArgumentException("Max connection count must not be negative");
+        }
+
+        if (acceptOverflow == null) {
+            throw new IllegalArgumentException("Accept overflow policy is not set");
+        }
+    }
+
+    private void validateBackends() {
+        if (connectAddresses == null || connectAddresses.isEmpty()) {
+            if (connectAddress == null) {
+                throw new IllegalArgumentException("Connect address is not set");
+            }
+        } else if (connectAddress != null) {
+            throw new IllegalArgumentException("Either a connect address or a list of connect addresses must be set");
+        } else if (connectAddresses.contains(null)) {
+            throw new IllegalArgumentException("Connect address list contains null");
+        }
+
+        if (backendBalancing == null) {
+            throw new IllegalArgumentException("Backend balancing is not set");
+        }
+
+        if (backendHealthOptions == null) {
+            throw new IllegalArgumentException("Backend health options are not set");
+        }
+
+        backendHealthOptions.validate();
+    }
+
+    /**
+     * Get all connect addresses. A single connect address is returned as a list of one item
+     * @return List of connect addresses
+     */
+    public List<InetSocketAddress> getEffectiveConnectAddresses() {
+        if (connectAddresses == null || connectAddresses.isEmpty()) {
+            List<InetSocketAddress> addresses = new ArrayList<>(1);
+            addresses.add(connectAddress);
+            return addresses;
+        } else {
+            return new ArrayList<>(connectAddresses);
+        }
+    }
+
+    private void validateBudgets() {
         if (bufferOptions == null) {
             throw new IllegalArgumentException("Buffer options are not set");
         }
+
+        if (bufferOptions.getTrimIdleNs() < 0) {
+            throw new IllegalArgumentException("Buffer trim idle period must not be negative");
+        }
+
+        if (readBudgetOptions == null) {
+            throw new IllegalArgumentException("Read budget options are not set");
+        }
+
+        readBudgetOptions.validate();
+
+        if (acceptBudget <= 0) {
+            throw new IllegalArgumentException("Accept budget must be positive");
+        }
+    }
+
+    private void validateOutboundPool() {
+        if (outboundPoolSize < 0) {
+            throw new IllegalArgumentException("Outbound pool size must not be negative");
+        }
+
+        if (outboundPoolSize > 0 && bindBeforeConnectAddress != null && bindBeforeConnectAddress.getPort() != 0) {
+            throw new IllegalArgumentException("Outbound pool could not be used with a fixed bind-before-connect port");
+        }
+
+        if (outboundPoolSize > 0 && connectAddresses != null && connectAddresses.size() > 1) {
+            throw new IllegalArgumentException("Outbound pool could not be used with several connect addresses");
+        }
     }
 
     public InetSocketAddress getBindAddress() {
@@ -90,6 +208,30 @@ public class TcpCrusherOptions {
         this.connectAddress = connectAddress;
     }
 
+    public List<InetSocketAddress> getConnectAddresses() {
+        return connectAddresses;
+    }
+
+    public void setConnectAddresses(List<InetSocketAddress> connectAddresses) {
+        this.connectAddresses = connectAddresses;
+    }
+
+    public TcpBackendBalancing getBackendBalancing() {
+        return backendBalancing;
+    }
+
+    public void setBackendBalancing(TcpBackendBalancing backendBalancing) {
+        this.backendBalancing = backendBalancing;
+    }
+
+    public TcpBackendHealthOptions getBackendHealthOptions() {
+        return backendHealthOptions;
+    }
+
+    public void setBackendHealthOptions(TcpBackendHealthOptions backendHealthOptions) {
+        this.backendHealthOptions = backendHealthOptions;
+    }
+
     public InetSocketAddress getBindBeforeConnectAddress() {
         return bindBeforeConnectAddress;
     }
@@ -178,4 +320,60 @@ public class TcpCrusherOptions {
         this.bufferOptions = bufferOptions;
     }
 
+    public ReadBudgetOptions getReadBudgetOptions() {
+        return readBudgetOptions;
+    }
+
+    public void setReadBudgetOptions(ReadBudgetOptions readBudgetOptions) {
+        this.readBudgetOptions = readBudgetOptions;
+    }
+
+    public int getAcceptBudget() {
+        return acceptBudget;
+    }
+
+    public void setAcceptBudget(int acceptBudget) {
+        this.acceptBudget = acceptBudget;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public ThrottlerFactory getAcceptThrottlerFactory() {
+        return acceptThrottlerFactory;
+    }
+
+    public void setAcceptThrottlerFactory(ThrottlerFactory acceptThrottlerFactory) {
+        this.acceptThrottlerFactory = acceptThrottlerFactory;
+    }
+
+    public TcpAcceptOverflow getAcceptOverflow() {
+        return acceptOverflow;
+    }
+
+    public void setAcceptOverflow(TcpAcceptOverflow acceptOverflow) {
+        this.acceptOverflow = acceptOverflow;
+    }
+
+    public int getOutboundPoolSize() {
+        return outboundPoolSize;
+    }
+
+    public void setOutboundPoolSize(int outboundPoolSize) {
+        this.outboundPoolSize = outboundPoolSize;
+    }
+
+    public boolean isAcceptorSharding() {
+        return acceptorSharding;
+    }
+
+    public void setAcceptorSharding(boolean acceptorSharding) {
+        this.acceptorSharding = acceptorSharding;
+    }
+
 }
@@ -0,0 +1,276 @@
+package org.netcrusher.tcp;
+
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioSelector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warm pool of outbound connections to the target. Connections are established in advance, so an accepted
+ * client is paired without waiting for a backend handshake. Idle connections are watched for readability:
+ * a connection closed by the target is dropped and replaced. Bytes the target sends first (a greeting of SMTP,
+ * FTP, etc.) are kept with the connection and handed to the pair, so the client gets them as is. When the greeting
+ * doesn't fit the limit the rest is left in the socket and the connection is not watched anymore.
+ * All methods must be called from the selector thread.
+ */
+class TcpOutboundPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TcpOutboundPool.class);
+
+    private static final long RETRY_DELAY_NS = TimeUnit.SECONDS.toNanos(1);
+
+    private final NioSelector selector;
+
+    private final InetSocketAddress connectAddress;
+
+    private final Callable<SocketChannel> opener;
+
+    private final long connectionTimeoutMs;
+
+    private final int size;
+
+    private final int greetingLimit;
+
+    private final Deque<Connection> idle;
+
+    private int connecting;
+
+    private long refillTimerId;
+
+    private boolean open;
+
+    TcpOutboundPool(
+        NioSelector selector,
+        InetSocketAddress connectAddress,
+        Callable<SocketChannel> opener,
+        long connectionTimeoutMs,
+        int size,
+        int greetingLimit)
+    {
+        this.selector = selector;
+        this.connectAddress = connectAddress;
+        this.opener = opener;
+        this.connectionTimeoutMs = connectionTimeoutMs;
+        this.size = size;
+        this.greetingLimit = greetingLimit;
+        this.idle = new ArrayDeque<>(size);
+        this.connecting = 0;
+        this.refillTimerId = NioSelector.NO_TIMER;
+        this.open = false;
+    }
+
+    void open() {
+        if (!open) {
+            open = true;
+            refill();
+        }
+    }
+
+    void close() {
+        open = false;
+
+        selector.cancel(refillTimerId);
+        refillTimerId = NioSelector.NO_TIMER;
+
+        while (!idle.isEmpty()) {
+            drop(idle.pollFirst().selectionKey);
+        }
+    }
+
+    /**
+     * Take an established connection. The key of the returned connection has no interest ops and must be either
+     * cancelled or re-registered by a new owner
+     * @return Pooled connection or null if the pool is empty
+     */
+    Connection poll() {
+        Connection connection;
+        while ((connection = idle.pollLast()) != null) {
+            final SelectionKey selectionKey = connection.selectionKey;
+            if (selectionKey.isValid() && selectionKey.channel().isOpen()) {
+                selectionKey.interestOps(0);
+                break;
+            } else {
+                drop(selectionKey);
+            }
+        }
+
+        refill();
+
+        return connection;
+    }
+
+    int getIdleCount() {
+        return idle.size();
+    }
+
+    private void refill() {
+        while (open && idle.size() + connecting < size && refillTimerId == NioSelector.NO_TIMER) {
+            if (!connect()) {
+                scheduleRefill();
+            }
+        }
+    }
+
+    private void scheduleRefill() {
+        if (open && refillTimerId == NioSelector.NO_TIMER) {
+            refillTimerId = selector.schedule(() -> {
+                refillTimerId = NioSelector.NO_TIMER;
+                refill();
+            }, RETRY_DELAY_NS);
+        }
+    }
+
+    private boolean connect() {
+        final SocketChannel socketChannel;
+        try {
+            socketChannel = opener.call();
+        } catch (Exception e) {
+            LOGGER.debug("Fail to open pooled connection to <{}>", connectAddress, e);
+            return false;
+        }
+
+        try {
+            if (socketChannel.connect(connectAddress)) {
+                addIdle(socketChannel);
+            } else {
+                connectDeferred(socketChannel);
+            }
+
+            return true;
+        } catch (Exception e) {
+            LOGGER.debug("Fail to open pooled connection to <{}>", connectAddress, e);
+            NioUtils.closeNoLinger(socketChannel);
+            return false;
+        }
+    }
+
+    private void connectDeferred(SocketChannel socketChannel) {
+        final long timeoutTimerId;
+        if (connectionTimeoutMs > 0) {
+            timeoutTimerId = selector.schedule(() -> {
+                if (socketChannel.isOpen() && !socketChannel.isConnected()) {
+                    LOGGER.debug("Fail to connect pooled connection to <{}> in {}ms",
+                        connectAddress, connectionTimeoutMs);
+
+                    NioUtils.closeNoLinger(socketChannel);
+
+                    connecting--;
+                    scheduleRefill();
+                }
+            }, TimeUnit.MILLISECONDS.toNanos(connectionTimeoutMs));
+        } else {
+            timeoutTimerId = NioSelector.NO_TIMER;
+        }
+
+        connecting++;
+
+        selector.register(socketChannel, SelectionKey.OP_CONNECT, (selectionKey) -> {
+            selector.cancel(timeoutTimerId);
+            connecting--;
+
+            boolean connected;
+            try {
+                connected = socketChannel.finishConnect();
+            } catch (IOException e) {
+                LOGGER.debug("Exception while finishing pooled connection to <{}>", connectAddress, e);
+                connected = false;
+            }
+
+            if (connected && open) {
+                addIdle(socketChannel);
+            } else {
+                NioUtils.closeNoLinger(socketChannel);
+                scheduleRefill();
+            }
+        });
+    }
+
+    private void addIdle(SocketChannel socketChannel) {
+        final Connection connection = new Connection();
+
+        connection.selectionKey = selector.register(socketChannel, SelectionKey.OP_READ,
+            (key) -> readIdle(connection));
+
+        idle.addLast(connection);
+    }
+
+    private void readIdle(Connection connection) {
+        final SelectionKey selectionKey = connection.selectionKey;
+        final SocketChannel socketChannel = (SocketChannel) selectionKey.channel();
+
+        if (connection.greeting == null) {
+            connection.greeting = ByteBuffer.allocate(greetingLimit);
+        }
+
+        int read;
+        try {
+            read = socketChannel.read(connection.greeting);
+        } catch (IOException e) {
+            LOGGER.debug("Exception while reading pooled connection to <{}>", connectAddress, e);
+            read = -1;
+        }
+
+        if (read < 0) {
+            LOGGER.debug("Pooled connection to <{}> is dropped as it's closed", connectAddress);
+
+            idle.remove(connection);
+            drop(selectionKey);
+            scheduleRefill();
+        } else if (!connection.greeting.hasRemaining()) {
+            // the rest of the greeting stays in the socket for the pair
+            LOGGER.debug("Pooled connection to <{}> got more than {} bytes first", connectAddress, greetingLimit);
+            selectionKey.interestOps(0);
+        }
+    }
+
+    private static void drop(SelectionKey selectionKey) {
+        selectionKey.cancel();
+        NioUtils.closeNoLinger((SocketChannel) selectionKey.channel());
+    }
+
+    /**
+     * Established connection with bytes the target has sent first
+     */
+    static final class Connection {
+
+        private SelectionKey selectionKey;
+
+        private ByteBuffer greeting;
+
+        private Connection() {
+        }
+
+        SelectionKey getSelectionKey() {
+            return selectionKey;
+        }
+
+        SocketChannel getSocketChannel() {
+            return (SocketChannel) selectionKey.channel();
+        }
+
+        /**
+         * Bytes the target has sent to the idle connection
+         * @return Buffer ready to be read or null if the target has sent nothing
+         */
+        ByteBuffer getGreeting() {
+            if (greeting == null || greeting.position() == 0) {
+                return null;
+            }
+
+            final ByteBuffer bb = greeting.duplicate();
+            bb.flip();
+            return bb;
+        }
+    }
+
+}
@@ -1,15 +1,18 @@
 package org.netcrusher.tcp;
 
 import org.netcrusher.NetFreezer;
-import org.netcrusher.core.buffer.BufferOptions;
+import org.netcrusher.core.buffer.BufferPool;
+import org.netcrusher.core.meter.RateMeterSnapshot;
 import org.netcrusher.core.meter.RateMeters;
-import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.nio.ReadBudgetOptions;
+import org.netcrusher.core.reactor.NioSelector;
 import org.netcrusher.core.state.BitState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 
 class TcpPair implements NetFreezer {
@@ -20,50 +23,90 @@ class TcpPair implements NetFreezer {
 
     private final TcpChannel outerChannel;
 
+    private final TcpQueue innerToOuter;
+
+    private final TcpQueue outerToInner;
+
     private final Runnable ownerClose;
 
-    private final NioReactor reactor;
+    private final NioSelector selector;
 
     private final InetSocketAddress clientAddress;
 
     private final State state;
 
+    private final TcpBackend backend;
+
     TcpPair(
-        NioReactor reactor,
+        NioSelector selector,
         TcpFilters filters,
         SocketChannel inner,
         SocketChannel outer,
-        BufferOptions bufferOptions,
+        BufferPool bufferPool,
+        ReadBudgetOptions readBudgetOptions,
+        TcpBackend backend,
         Runnable ownerClose) throws IOException
     {
         this.ownerClose = ownerClose;
-        this.reactor = reactor;
+        this.backend = backend;
+        this.selector = selector;
 
         this.clientAddress = (InetSocketAddress) inner.getRemoteAddress();
 
-        TcpQueue innerToOuter = TcpQueue.allocateQueue(clientAddress, bufferOptions,
+        this.innerToOuter = TcpQueue.allocateQueue(clientAddress, bufferPool,
             filters.getOutgoingTransformFilterFactory(), filters.getOutgoingThrottlerFactory());
-        TcpQueue outerToInner = TcpQueue.allocateQueue(clientAddress, bufferOptions,
+        this.outerToInner = TcpQueue.allocateQueue(clientAddress, bufferPool,
             filters.getIncomingTransformFilterFactory(), filters.getIncomingThrottlerFactory());
 
-        this.innerChannel = new TcpChannel("INNER", reactor, this::closeAll, inner,
-            outerToInner, innerToOuter);
-        this.outerChannel = new TcpChannel("OUTER", reactor, this::closeAll, outer,
-            innerToOuter, outerToInner);
+        this.innerChannel = new TcpChannel("INNER", selector, this::closeAll, inner,
+            outerToInner, innerToOuter, readBudgetOptions);
+        this.outerChannel = new TcpChannel("OUTER", selector, this::closeAll, outer,
+            innerToOuter, outerToInner, readBudgetOptions);
 
         this.innerChannel.setOther(outerChannel);
         this.outerChannel.setOther(innerChannel);
 
+        // sent bytes are also counted for the target: to the client means read from the target
+        this.backend.attachMeters(getByteMeters());
+
         this.state = new State(State.FROZEN);
     }
 
+    /**
+     * Put bytes the target has sent before the pair is created. Must be called before the pair is unfrozen
+     * @param greeting Bytes to send to the client
+     * @throws IOException If the queue has no room for the bytes
+     */
+    void prefillFromTarget(ByteBuffer greeting) throws IOException {
+        outerChannel.prefill(greeting);
+    }
+
+    /**
+     * Return buffers of idle queues to the pool. Must be called on the loop of the pair
+     * @return False if the pair is closed
+     */
+    boolean trimQueues() {
+        if (state.is(State.CLOSED)) {
+            return false;
+        }
+
+        innerToOuter.trim();
+        outerToInner.trim();
+
+        return true;
+    }
+
     private void closeAll() {
         this.close();
         ownerClose.run();
     }
 
-    void close() {
-        reactor.getSelector().execute(() -> {
+    /**
+     * Close the pair. Could be called from any thread
+     * @return False if the pair is already closed
+     */
+    boolean close() {
+        return selector.execute(() -> {
             if (state.not(State.CLOSED)) {
                 if (state.is(State.OPEN)) {
                     freeze();
@@ -72,6 +115,13 @@ class TcpPair implements NetFreezer {
                 innerChannel.close();
                 outerChannel.close();
 
+                // pending data is dropped and buffers go back to the shared pool
+                innerToOuter.reset();
+                outerToInner.reset();
+
+                backend.detachMeters(getByteMeters());
+                backend.release();
+
                 state.set(State.CLOSED);
 
                 LOGGER.debug("Pair for '{}' is closed", clientAddress);
@@ -85,7 +135,7 @@ class TcpPair implements NetFreezer {
 
     @Override
     public void freeze() {
-        reactor.getSelector().execute(() -> {
+        selector.execute(() -> {
             if (state.is(State.OPEN)) {
                 if (!innerChannel.isFrozen()) {
                     innerChannel.freeze();
@@ -97,6 +147,9 @@ class TcpPair implements NetFreezer {
                 state.set(State.FROZEN);
 
                 return true;
+            } else if (state.is(State.CLOSED)) {
+                // the pair could be closed by its own loop in the meantime
+                return false;
             } else {
                 throw new IllegalStateException("Pair is not open on freeze");
             }
@@ -105,7 +158,7 @@ class TcpPair implements NetFreezer {
 
     @Override
     public void unfreeze() {
-        reactor.getSelector().execute(() -> {
+        selector.execute(() -> {
             if (state.is(State.FROZEN)) {
                 if (innerChannel.isFrozen()) {
                     innerChannel.unfreeze();
@@ -117,6 +170,9 @@ class TcpPair implements NetFreezer {
                 state.set(State.OPEN);
 
                 return true;
+            } else if (state.is(State.CLOSED)) {
+                // the pair could be closed by its own loop in the meantime
+                return false;
             } else {
                 throw new IllegalStateException("Pair is not frozen on unfreeze");
             }
@@ -132,10 +188,28 @@ class TcpPair implements NetFreezer {
         return clientAddress;
     }
 
+    TcpClientQueueStats getQueueStats() {
+        return selector.execute(() -> new TcpClientQueueStats(outerToInner.getStats(), innerToOuter.getStats()));
+    }
+
     RateMeters getByteMeters() {
         return new RateMeters(innerChannel.getSentBytesMeter(), outerChannel.getSentBytesMeter());
     }
 
+    NioSelector getSelector() {
+        return selector;
+    }
+
+    /**
+     * Take statistics of the pair. Must be called on the loop of the pair as queues are not thread-safe
+     */
+    TcpClientStats getStats(boolean resetPeriod) {
+        return new TcpClientStats(clientAddress, backend.getAddress(),
+            new RateMeterSnapshot(innerChannel.getSentBytesMeter(), resetPeriod),
+            new RateMeterSnapshot(outerChannel.getSentBytesMeter(), resetPeriod),
+            new TcpClientQueueStats(outerToInner.getStats(), innerToOuter.getStats()));
+    }
+
     private static final class State extends BitState {
 
         private static final int OPEN = bit(0);
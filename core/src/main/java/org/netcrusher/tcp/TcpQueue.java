@@ -1,256 +1,646 @@
 package org.netcrusher.tcp;
 
-import org.netcrusher.core.buffer.BufferOptions;
+import org.netcrusher.core.buffer.BufferPool;
 import org.netcrusher.core.filter.TransformFilter;
 import org.netcrusher.core.filter.TransformFilterFactory;
-import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.throttle.PacingThrottler;
 import org.netcrusher.core.throttle.Throttler;
 import org.netcrusher.core.throttle.ThrottlerFactory;
 
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
-import java.util.ArrayDeque;
-import java.util.Queue;
 
 class TcpQueue {
 
-    private final Queue<BufferEntry> readable;
+    private static final int INITIAL_CAPACITY = 2;
 
-    private final Queue<BufferEntry> writable;
+    private static final int INITIAL_STAMP_CAPACITY = 16;
 
-    private final BufferEntry[] entryArray;
+    // buffers in order: readable ones starting at head, then writable ones. Every buffer is stored twice
+    // (at i and i + limit) so any run of slots is a contiguous range of the array for scatter/gather I/O
+    private final ByteBuffer[] ring;
 
-    private final ByteBuffer[] bufferArray;
+    private final ByteBuffer[] retained;
+
+    private final TcpQueueBuffers readableView;
+
+    private final TcpQueueBuffers writableView;
 
     private final TransformFilter filter;
 
     private final Throttler throttler;
 
+    private final PacingThrottler pacer;
+
+    private final BufferPool bufferPool;
+
+    private final int limit;
+
+    private final boolean retain;
+
+    private final boolean passThrough;
+
+    private int head;
+
+    private int readableCount;
+
+    private int writableCount;
+
+    private int retainedCount;
+
+    private int held;
+
+    private int capacity;
+
+    private int highWater;
+
+    private boolean active;
+
+    private boolean stalled;
+
+    private int pacedCount;
+
+    private long pacedBytes;
+
+    private ByteBuffer clipped;
+
+    private int clippedLimit;
+
+    // with a throttler every read is a chunk stamped with its own deadline: chunks are kept in order of data
+    // as a ring of (end offset in its buffer, deadline) pairs, the first ones belong to readable buffers
+    private int[] stampEnds;
+
+    private long[] stampDeadlinesNs;
+
+    private int stampHead;
+
+    private int stampCount;
+
+    private int readableStampCount;
+
+    private int stampedPosition;
+
     TcpQueue(
-            BufferOptions bufferOptions,
+            BufferPool bufferPool,
             TransformFilter filter,
             Throttler throttler)
     {
-        final int count = bufferOptions.getCount();
+        final int count = bufferPool.getOptions().getCount();
 
-        this.readable = new ArrayDeque<>(count);
-        this.writable = new ArrayDeque<>(count);
+        this.ring = new ByteBuffer[count * 2];
+        this.retained = new ByteBuffer[count];
 
-        this.bufferArray = new ByteBuffer[count];
-        this.entryArray = new BufferEntry[count];
+        this.readableView = new TcpQueueBuffers(ring);
+        this.writableView = new TcpQueueBuffers(ring);
 
         this.filter = filter;
-        this.throttler = throttler;
 
-        for (int i = 0; i < count; i++) {
-            this.writable.add(new BufferEntry(bufferOptions.getSize(), bufferOptions.isDirect()));
+        // a pacing throttler limits bytes on each write instead of delaying whole buffers
+        if (throttler instanceof PacingThrottler) {
+            this.throttler = null;
+            this.pacer = (PacingThrottler) throttler;
+        } else {
+            this.throttler = throttler;
+            this.pacer = null;
+        }
+
+        // without filter and throttler buffers are passed as is with no transformation and no timestamps
+        this.passThrough = this.filter == null && this.throttler == null && this.pacer == null;
+
+        // buffers are taken from the shared pool only when data arrives, the count limits the queue
+        this.bufferPool = bufferPool;
+        this.limit = count;
+        this.retain = bufferPool.getOptions().getTrimIdleNs() > 0;
+        this.head = 0;
+        this.readableCount = 0;
+        this.writableCount = 0;
+        this.retainedCount = 0;
+        this.held = 0;
+        this.capacity = Math.min(INITIAL_CAPACITY, count);
+        this.highWater = 0;
+        this.active = false;
+        this.stalled = false;
+
+        if (this.throttler != null) {
+            this.stampEnds = new int[INITIAL_STAMP_CAPACITY];
+            this.stampDeadlinesNs = new long[INITIAL_STAMP_CAPACITY];
         }
     }
 
     public static TcpQueue allocateQueue(
         InetSocketAddress clientAddress,
-        BufferOptions bufferOptions,
+        BufferPool bufferPool,
         TransformFilterFactory transformFilterFactory,
         ThrottlerFactory throttlerFactory)
     {
+        // NOOP instances are dropped so the queue could take the pass-through path
         final TransformFilter transformFilter;
         if (transformFilterFactory != null) {
-            transformFilter = transformFilterFactory.allocate(clientAddress);
+            transformFilter = nullIfNoop(transformFilterFactory.allocate(clientAddress), TransformFilter.NOOP);
         } else {
             transformFilter = null;
         }
 
         final Throttler throttler;
         if (throttlerFactory != null) {
-            throttler = throttlerFactory.allocate(clientAddress);
+            throttler = nullIfNoop(throttlerFactory.allocate(clientAddress), Throttler.NOOP);
         } else {
             throttler = null;
         }
 
-        return new TcpQueue(bufferOptions, transformFilter, throttler);
+        return new TcpQueue(bufferPool, transformFilter, throttler);
+    }
+
+    private static <T> T nullIfNoop(T instance, T noop) {
+        return instance != noop ? instance : null;
     }
 
     public void reset() {
-        writable.addAll(readable);
-        readable.clear();
-        writable.forEach((e) -> e.getBuffer().clear());
+        while (readableCount > 0) {
+            releaseBuffer(removeReadable());
+        }
+        while (writableCount > 0) {
+            releaseBuffer(removeWritableLast());
+        }
+        while (retainedCount > 0) {
+            releaseBuffer(retained[--retainedCount]);
+            retained[retainedCount] = null;
+        }
+
+        head = 0;
+        capacity = Math.min(INITIAL_CAPACITY, limit);
+
+        stampHead = 0;
+        stampCount = 0;
+        readableStampCount = 0;
+        stampedPosition = 0;
+    }
+
+    public void trim() {
+        if (active) {
+            // the queue has been used since the last check
+            active = false;
+        } else if (retainedCount > 0 || capacity > INITIAL_CAPACITY) {
+            while (retainedCount > 0) {
+                releaseBuffer(retained[--retainedCount]);
+                retained[retainedCount] = null;
+            }
+
+            capacity = Math.min(Math.max(INITIAL_CAPACITY, held), limit);
+        }
     }
 
     public boolean hasReadable() {
-        BufferEntry readableEntry = readable.peek();
-        if (readableEntry != null) {
-            if (readableEntry.getBuffer().hasRemaining()) {
+        if (readableCount > 0) {
+            if (ring[head].hasRemaining()) {
                 return true;
             } else {
                 throw new IllegalStateException("Illegal queue state. Possibly no release() call after request()");
             }
         }
 
-        BufferEntry writableEntry = writable.peek();
-        if (writableEntry != null && writableEntry.getBuffer().position() > 0) {
-            return true;
-        }
-
-        return false;
+        return writableCount > 0 && ring[writableHead()].position() > 0;
     }
 
     public long calculateReadableBytes() {
         long size = 0;
 
-        for (BufferEntry readableEntry : readable) {
-            size += readableEntry.getBuffer().remaining();
+        for (int i = 0; i < readableCount; i++) {
+            size += ring[head + i].remaining();
         }
 
-        BufferEntry writableEntry = writable.peek();
-        if (writableEntry != null) {
-            size += writableEntry.getBuffer().position();
+        if (writableCount > 0) {
+            size += ring[writableHead()].position();
         }
 
         return size;
     }
 
     public TcpQueueBuffers requestReadableBuffers() {
-        BufferEntry entryToSteal = writable.peek();
-        if (entryToSteal != null && entryToSteal.getBuffer().position() > 0) {
-            freeWritableBuffer();
-        }
+        active = true;
 
-        final int size = readable.size();
-        if (size == 0) {
-            return TcpQueueBuffers.EMPTY;
+        if (throttler != null) {
+            return requestThrottledBuffers();
         }
 
-        long nowNs = System.nanoTime();
-
-        readable.toArray(entryArray);
-        for (int i = 0; i < size; i++) {
-            BufferEntry entry = entryArray[i];
+        if (writableCount > 0 && ring[writableHead()].position() > 0) {
+            freeWritableBuffer();
+        }
 
-            long delayNs = entry.scheduledNs - nowNs;
-            if (delayNs > 0) {
-                return new TcpQueueBuffers(bufferArray, 0, i, delayNs);
-            } else {
-                bufferArray[i] = entry.getBuffer();
-            }
+        if (pacer != null) {
+            return requestPacedBuffers();
         }
 
-        return new TcpQueueBuffers(bufferArray, 0, size);
+        return readableView.set(head, readableCount, 0);
     }
 
     public void releaseReadableBuffers() {
-        while (!readable.isEmpty()) {
-            BufferEntry entry = readable.element();
-            if (entry.getBuffer().hasRemaining()) {
-                break;
-            } else {
-                freeReadableBuffer();
-            }
+        if (pacedCount > 0) {
+            releasePacedBuffers();
+        } else if (clipped != null) {
+            clipped.limit(clippedLimit);
+            clipped = null;
         }
-    }
 
-    private void freeReadableBuffer() {
-        BufferEntry entry = readable.remove();
+        while (readableCount > 0) {
+            ByteBuffer bb = ring[head];
 
-        entry.getBuffer().clear();
+            if (throttler != null) {
+                releaseStamps(bb);
+            }
+
+            if (bb.hasRemaining()) {
+                break;
+            }
 
-        writable.add(entry);
+            recycleBuffer(removeReadable());
+        }
     }
 
     public boolean hasWritable() {
-        BufferEntry entry = writable.peek();
-        if (entry != null) {
-            if (entry.getBuffer().hasRemaining()) {
+        if (writableCount > 0) {
+            if (ring[writableHead()].hasRemaining()) {
                 return true;
             } else {
                 throw new IllegalStateException("Illegal queue state. Possibly no release() call after request()");
             }
         }
 
-        return false;
+        return retainedCount > 0 || (held < limit && !stalled);
+    }
+
+    public boolean isStalled() {
+        return stalled;
+    }
+
+    public void awaitMemory(Runnable waiter) {
+        bufferPool.awaitRelease(waiter);
+    }
+
+    public void unstall() {
+        stalled = false;
     }
 
     public long calculateWritableBytes() {
-        long size = 0;
+        long size = (long) (limit - held + retainedCount) * bufferPool.getOptions().getSize();
 
-        for (BufferEntry entry : writable) {
-            size += entry.getBuffer().remaining();
+        final int writableHead = writableHead();
+        for (int i = 0; i < writableCount; i++) {
+            size += ring[writableHead + i].remaining();
         }
 
         return size;
     }
 
     public TcpQueueBuffers requestWritableBuffers() {
-        final int size = writable.size();
-        if (size == 0) {
-            return TcpQueueBuffers.EMPTY;
+        active = true;
+
+        while (retainedCount > 0) {
+            addWritable(retained[--retainedCount]);
+            retained[retainedCount] = null;
         }
 
-        writable.toArray(entryArray);
-        for (int i = 0; i < size; i++) {
-            BufferEntry entry = entryArray[i];
-            bufferArray[i] = entry.getBuffer();
+        if (writableCount == 0 && held < limit) {
+            if (held >= capacity) {
+                // all buffers are full so the peer is slower than the producer
+                capacity = Math.min(capacity * 2, limit);
+            }
+
+            while (held < capacity) {
+                ByteBuffer bb = acquireBuffer();
+                if (bb == null) {
+                    // the memory budget is exhausted
+                    stalled = true;
+                    break;
+                }
+
+                addWritable(bb);
+            }
         }
 
-        return new TcpQueueBuffers(bufferArray, 0, size);
+        return writableView.set(writableHead(), writableCount, 0);
     }
 
     public void releaseWritableBuffers() {
-        while (!writable.isEmpty()) {
-            BufferEntry entry = writable.element();
-            if (entry.getBuffer().hasRemaining()) {
-                break;
-            } else {
+        if (throttler != null) {
+            stampWritableBuffers();
+        } else {
+            while (writableCount > 0 && !ring[writableHead()].hasRemaining()) {
                 freeWritableBuffer();
             }
         }
+
+        // buffers which got no data are kept aside so an idle queue holds no data buffers
+        while (writableCount > 0 && ring[writableLast()].position() == 0) {
+            recycleBuffer(removeWritableLast());
+        }
     }
 
-    private void freeWritableBuffer() {
-        BufferEntry entry = writable.remove();
+    private TcpQueueBuffers requestThrottledBuffers() {
+        final long nowNs = System.nanoTime();
 
-        ByteBuffer bb = entry.getBuffer();
-        bb.flip();
+        // the partially filled buffer keeps taking reads until its first chunk is due
+        long stampedDelayNs = 0;
+        if (writableCount > 0 && ring[writableHead()].position() > 0) {
+            stampedDelayNs = stampDeadlinesNs[stampIndex(readableStampCount)] - nowNs;
+            if (stampedDelayNs <= 0) {
+                closeStampedBuffer();
+            }
+        }
+
+        int stamp = 0;
+        for (int i = 0; i < readableCount; i++) {
+            final ByteBuffer bb = ring[head + i];
+
+            int dueEnd = bb.position();
+            while (dueEnd < bb.limit()) {
+                final int index = stampIndex(stamp);
+
+                final long delayNs = stampDeadlinesNs[index] - nowNs;
+                if (delayNs > 0) {
+                    if (dueEnd == bb.position()) {
+                        return readableView.set(head, i, delayNs);
+                    }
+
+                    // the buffer is clipped to chunks which are due until the write is done
+                    clipped = bb;
+                    clippedLimit = bb.limit();
+                    bb.limit(dueEnd);
+
+                    return readableView.set(head, i + 1, 0);
+                }
+
+                dueEnd = stampEnds[index];
+                stamp++;
+            }
+        }
+
+        return readableView.set(head, readableCount, Math.max(stampedDelayNs, 0));
+    }
+
+    private void stampWritableBuffers() {
+        final long nowNs = System.nanoTime();
+
+        while (writableCount > 0) {
+            final ByteBuffer bb = ring[writableHead()];
+
+            final boolean full = !bb.hasRemaining();
+            if (bb.position() > stampedPosition) {
+                stampChunk(bb, nowNs);
+            }
+
+            if (!full) {
+                // later buffers have got no data
+                break;
+            }
+
+            closeStampedBuffer();
+        }
+    }
+
+    private void stampChunk(ByteBuffer bb, long nowNs) {
+        final ByteBuffer chunk = bb.duplicate();
+        chunk.limit(bb.position());
+        chunk.position(stampedPosition);
 
         if (filter != null) {
-            filter.transform(bb);
+            final ByteBuffer data = chunk.slice();
+            filter.transform(data);
+
+            // the filter could drop some bytes, the rest is moved to the start of the chunk
+            if (data.position() > 0) {
+                chunk.limit(chunk.capacity());
+                chunk.put(data);
+            } else {
+                chunk.position(stampedPosition + data.limit());
+            }
+
+            bb.position(chunk.position());
+
+            chunk.limit(chunk.position());
+            chunk.position(stampedPosition);
         }
 
+        if (chunk.hasRemaining()) {
+            addStamp(bb.position(), nowNs + throttler.calculateDelayNs(chunk));
+            stampedPosition = bb.position();
+        }
+    }
+
+    private void closeStampedBuffer() {
+        ByteBuffer bb = ring[writableHead()];
+        bb.flip();
+
+        stampedPosition = 0;
+
         if (bb.hasRemaining()) {
-            final long delayNs;
-            if (throttler != null) {
-                delayNs = throttler.calculateDelayNs(bb);
-            } else {
-                delayNs = Throttler.NO_DELAY_NS;
+            readableCount++;
+            writableCount--;
+            readableStampCount = stampCount;
+        } else {
+            recycleBuffer(removeWritableHead());
+        }
+    }
+
+    private void addStamp(int end, long deadlineNs) {
+        if (stampCount == stampEnds.length) {
+            final int[] ends = new int[stampCount * 2];
+            final long[] deadlinesNs = new long[stampCount * 2];
+            for (int i = 0; i < stampCount; i++) {
+                ends[i] = stampEnds[stampIndex(i)];
+                deadlinesNs[i] = stampDeadlinesNs[stampIndex(i)];
             }
 
-            entry.schedule(delayNs);
+            stampEnds = ends;
+            stampDeadlinesNs = deadlinesNs;
+            stampHead = 0;
+        }
+
+        final int index = stampIndex(stampCount++);
+        stampEnds[index] = end;
+        stampDeadlinesNs[index] = deadlineNs;
+    }
+
+    private void releaseStamps(ByteBuffer bb) {
+        // chunks of the buffer which have been written completely, the last chunk ends at the limit
+        while (readableStampCount > 0) {
+            final int end = stampEnds[stampHead];
+            if (end > bb.position()) {
+                break;
+            }
+
+            stampHead = stampIndex(1);
+            stampCount--;
+            readableStampCount--;
+
+            if (end == bb.limit()) {
+                break;
+            }
+        }
+    }
 
-            readable.add(entry);
+    private int stampIndex(int stamp) {
+        return (stampHead + stamp) & (stampEnds.length - 1);
+    }
+
+    private TcpQueueBuffers requestPacedBuffers() {
+        if (readableCount == 0) {
+            return readableView.set(head, 0, 0);
+        }
+
+        final long allowed = pacer.calculateAllowedBytes();
+        if (allowed <= 0) {
+            return readableView.set(head, 0, pacer.calculateSliceDelayNs());
+        }
+
+        // the buffer which crosses the allowed size is clipped until the write is done
+        long offered = 0;
+        int count = 0;
+        while (count < readableCount && offered < allowed) {
+            ByteBuffer bb = ring[head + count++];
+
+            final long rest = allowed - offered;
+            if (bb.remaining() > rest) {
+                clipped = bb;
+                clippedLimit = bb.limit();
+                bb.limit(bb.position() + (int) rest);
+            }
+
+            offered += bb.remaining();
+        }
+
+        pacedCount = count;
+        pacedBytes = offered;
+
+        return readableView.set(head, count, 0);
+    }
+
+    private void releasePacedBuffers() {
+        long remaining = 0;
+        for (int i = 0; i < pacedCount; i++) {
+            remaining += ring[head + i].remaining();
+        }
+
+        if (clipped != null) {
+            clipped.limit(clippedLimit);
+            clipped = null;
+        }
+
+        pacer.registerSentBytes(pacedBytes - remaining);
+
+        pacedCount = 0;
+        pacedBytes = 0;
+    }
+
+    private void freeWritableBuffer() {
+        ByteBuffer bb = ring[writableHead()];
+        bb.flip();
+
+        if (passThrough) {
+            readableCount++;
+            writableCount--;
+            return;
+        }
+
+        if (filter != null) {
+            filter.transform(bb);
+        }
+
+        if (bb.hasRemaining()) {
+            // the first writable buffer becomes the last readable one in place
+            readableCount++;
+            writableCount--;
         } else {
-            bb.clear();
-            writable.add(entry);
+            recycleBuffer(removeWritableHead());
         }
     }
 
-    private static final class BufferEntry {
+    private int writableHead() {
+        return (head + readableCount) % limit;
+    }
+
+    private int writableLast() {
+        return (head + readableCount + writableCount - 1) % limit;
+    }
 
-        private final ByteBuffer buffer;
+    private void setSlot(int slot, ByteBuffer bb) {
+        ring[slot] = bb;
+        ring[slot + limit] = bb;
+    }
 
-        private long scheduledNs;
+    private void addWritable(ByteBuffer bb) {
+        setSlot((head + readableCount + writableCount) % limit, bb);
+        writableCount++;
+    }
 
-        private BufferEntry(int capacity, boolean direct) {
-            this.buffer = NioUtils.allocaleByteBuffer(capacity, direct);
-            this.scheduledNs = System.nanoTime();
+    private ByteBuffer removeReadable() {
+        ByteBuffer bb = ring[head];
+        setSlot(head, null);
+
+        head = (head + 1) % limit;
+        readableCount--;
+
+        return bb;
+    }
+
+    private ByteBuffer removeWritableLast() {
+        final int slot = writableLast();
+
+        ByteBuffer bb = ring[slot];
+        setSlot(slot, null);
+
+        writableCount--;
+
+        return bb;
+    }
+
+    private ByteBuffer removeWritableHead() {
+        final int slot = writableHead();
+
+        ByteBuffer bb = ring[slot];
+
+        // rare case when the filter has dropped the whole buffer: shift the rest of writable buffers
+        for (int i = 0; i < writableCount - 1; i++) {
+            setSlot((slot + i) % limit, ring[slot + i + 1]);
         }
 
-        private void schedule(long delayNs) {
-            this.scheduledNs = System.nanoTime() + delayNs;
+        setSlot((slot + writableCount - 1) % limit, null);
+        writableCount--;
+
+        return bb;
+    }
+
+    private ByteBuffer acquireBuffer() {
+        ByteBuffer bb = bufferPool.acquire();
+        if (bb != null) {
+            held++;
+            highWater = Math.max(highWater, held);
         }
 
-        private ByteBuffer getBuffer() {
-            return buffer;
+        return bb;
+    }
+
+    private void recycleBuffer(ByteBuffer bb) {
+        // spare buffers are not kept while other channels wait for memory
+        if (retain && !bufferPool.hasWaiters()) {
+            bb.clear();
+            retained[retainedCount++] = bb;
+        } else {
+            releaseBuffer(bb);
         }
+    }
+
+    private void releaseBuffer(ByteBuffer bb) {
+        bufferPool.release(bb);
+        held--;
+    }
+
+    boolean isPassThrough() {
+        return passThrough;
+    }
 
+    TcpQueueStats getStats() {
+        return new TcpQueueStats(held, capacity, highWater, limit, bufferPool.getOptions().getSize());
     }
 
 }
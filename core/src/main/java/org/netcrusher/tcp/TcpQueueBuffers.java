@@ -2,27 +2,28 @@ package org.netcrusher.tcp;
 
 import java.nio.ByteBuffer;
 
+/**
+ * Reusable view of a range of queue buffers to pass to scattering read or gathering write
+ */
 class TcpQueueBuffers {
 
-    public static final TcpQueueBuffers EMPTY = new TcpQueueBuffers(null, -1, 0, 0);
-
     private final ByteBuffer[] array;
 
-    private final int offset;
+    private int offset;
 
-    private final int count;
+    private int count;
 
-    private final long delayNs;
+    private long delayNs;
 
-    TcpQueueBuffers(ByteBuffer[] array, int offset, int count, long delayNs) {
+    TcpQueueBuffers(ByteBuffer[] array) {
         this.array = array;
+    }
+
+    TcpQueueBuffers set(int offset, int count, long delayNs) {
         this.offset = offset;
         this.count = count;
         this.delayNs = delayNs;
-    }
-
-    TcpQueueBuffers(ByteBuffer[] array, int offset, int count) {
-        this(array, offset, count, 0);
+        return this;
     }
 
     public ByteBuffer[] getArray() {
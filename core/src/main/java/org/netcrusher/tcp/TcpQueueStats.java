@@ -0,0 +1,74 @@
+package org.netcrusher.tcp;
+
+import java.io.Serializable;
+
+/**
+ * Snapshot of a buffer queue between two sockets in a proxy pair
+ */
+public class TcpQueueStats implements Serializable {
+
+    private final int bufferCount;
+
+    private final int capacity;
+
+    private final int highWaterBufferCount;
+
+    private final int bufferLimit;
+
+    private final int bufferSize;
+
+    TcpQueueStats(int bufferCount, int capacity, int highWaterBufferCount, int bufferLimit, int bufferSize) {
+        this.bufferCount = bufferCount;
+        this.capacity = capacity;
+        this.highWaterBufferCount = highWaterBufferCount;
+        this.bufferLimit = bufferLimit;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Get count of buffers the queue holds now (with data or spare)
+     * @return Count of buffers
+     */
+    public int getBufferCount() {
+        return bufferCount;
+    }
+
+    /**
+     * Get count of buffers the queue has grown to. The capacity doubles while the peer is slower than
+     * the producer and shrinks back when the queue is idle
+     * @return Count of buffers
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the largest count of buffers the queue has ever held
+     * @return Count of buffers
+     */
+    public int getHighWaterBufferCount() {
+        return highWaterBufferCount;
+    }
+
+    /**
+     * Get the largest size of buffers the queue has ever held
+     * @return Size in bytes
+     */
+    public long getHighWaterBytes() {
+        return (long) highWaterBufferCount * bufferSize;
+    }
+
+    /**
+     * Get the maximum count of buffers in the queue
+     * @return Count of buffers as set by buffer options
+     */
+    public int getBufferLimit() {
+        return bufferLimit;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("buffers=%d, capacity=%d, high-water=%d, limit=%d",
+            bufferCount, capacity, highWaterBufferCount, bufferLimit);
+    }
+}
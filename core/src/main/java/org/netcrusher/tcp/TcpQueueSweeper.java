@@ -0,0 +1,79 @@
+package org.netcrusher.tcp;
+
+import org.netcrusher.core.buffer.BufferPool;
+import org.netcrusher.core.reactor.NioSelector;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Trims queues of all pairs of one event loop with a single periodic task instead of a timer per pair.
+ * After queues are trimmed the loop hands its cached buffers back to the pool, so slabs which are not used
+ * anymore are freed. Closed pairs are forgotten on the next sweep.
+ * All methods must be called from the selector thread.
+ */
+class TcpQueueSweeper {
+
+    private final NioSelector selector;
+
+    private final BufferPool bufferPool;
+
+    private final long periodNs;
+
+    private final Set<TcpPair> pairs;
+
+    private long timerId;
+
+    private boolean open;
+
+    TcpQueueSweeper(NioSelector selector, BufferPool bufferPool, long periodNs) {
+        this.selector = selector;
+        this.bufferPool = bufferPool;
+        this.periodNs = periodNs;
+        this.pairs = new HashSet<>();
+        this.timerId = NioSelector.NO_TIMER;
+        this.open = false;
+    }
+
+    void open() {
+        if (!open) {
+            open = true;
+            timerId = selector.schedule(this::sweep, periodNs);
+        }
+    }
+
+    void close() {
+        open = false;
+
+        selector.cancel(timerId);
+        timerId = NioSelector.NO_TIMER;
+
+        pairs.clear();
+
+        // the loop may not use the pool anymore so its cached buffers are returned
+        bufferPool.trim();
+    }
+
+    void add(TcpPair pair) {
+        pairs.add(pair);
+    }
+
+    private void sweep() {
+        if (!open) {
+            return;
+        }
+
+        Iterator<TcpPair> iterator = pairs.iterator();
+        while (iterator.hasNext()) {
+            if (!iterator.next().trimQueues()) {
+                iterator.remove();
+            }
+        }
+
+        bufferPool.trim();
+
+        timerId = selector.schedule(this::sweep, periodNs);
+    }
+
+}
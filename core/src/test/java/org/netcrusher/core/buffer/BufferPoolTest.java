@@ -0,0 +1,224 @@
+package org.netcrusher.core.buffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class BufferPoolTest {
+
+    private static final int SIZE = 4096;
+
+    private static final int SLAB_SIZE = 1024 * 1024;
+
+    @Test
+    public void testAcquireRelease() throws Exception {
+        BufferOptions options = new BufferOptions();
+        options.setCount(4);
+        options.setSize(SIZE);
+        options.setDirect(true);
+
+        BufferPool pool = new BufferPool(options);
+        Assert.assertEquals(0, pool.getAllocatedBytes());
+
+        ByteBuffer bb = pool.acquire();
+        Assert.assertTrue(bb.isDirect());
+        Assert.assertEquals(SIZE, bb.capacity());
+        Assert.assertEquals(SIZE, bb.remaining());
+        Assert.assertEquals(SIZE, pool.getAcquiredBytes());
+
+        long allocated = pool.getAllocatedBytes();
+        Assert.assertTrue(allocated >= SIZE);
+
+        bb.put((byte) 1);
+        pool.release(bb);
+        Assert.assertEquals(0, pool.getAcquiredBytes());
+
+        // released buffer is reused and cleared
+        ByteBuffer reused = pool.acquire();
+        Assert.assertSame(bb, reused);
+        Assert.assertEquals(0, reused.position());
+        Assert.assertEquals(allocated, pool.getAllocatedBytes());
+    }
+
+    @Test
+    public void testGrowth() throws Exception {
+        BufferOptions options = new BufferOptions();
+        options.setCount(4);
+        options.setSize(SIZE);
+        options.setDirect(false);
+
+        BufferPool pool = new BufferPool(options);
+
+        final int count = 1000;
+
+        List<ByteBuffer> buffers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ByteBuffer bb = pool.acquire();
+            bb.putInt(0, i);
+            buffers.add(bb);
+        }
+
+        Assert.assertEquals((long) count * SIZE, pool.getAcquiredBytes());
+        Assert.assertTrue(pool.getAllocatedBytes() >= (long) count * SIZE);
+
+        // slices of the same slab don't overlap
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(i, buffers.get(i).getInt(0));
+        }
+
+        buffers.forEach(pool::release);
+
+        Assert.assertEquals(0, pool.getAcquiredBytes());
+        Assert.assertEquals((long) count * SIZE, pool.getAcquiredPeakBytes());
+    }
+
+    @Test
+    public void testLeakDetection() throws Exception {
+        BufferOptions options = new BufferOptions();
+        options.setCount(4);
+        options.setSize(SIZE);
+        options.setDirect(true);
+        options.setLeakDetection(true);
+
+        BufferPool pool = new BufferPool(options);
+
+        ByteBuffer bb1 = pool.acquire();
+        ByteBuffer bb2 = pool.acquire();
+        Assert.assertEquals(2, pool.checkLeaks());
+
+        pool.release(bb1);
+        Assert.assertEquals(1, pool.checkLeaks());
+
+        try {
+            pool.release(bb1);
+            Assert.fail("Double release is not detected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        pool.release(bb2);
+        Assert.assertEquals(0, pool.checkLeaks());
+    }
+
+    @Test
+    public void testSlabRelease() throws Exception {
+        BufferOptions options = new BufferOptions();
+        options.setCount(4);
+        options.setSize(SIZE);
+        options.setDirect(true);
+
+        BufferPool pool = new BufferPool(options);
+
+        final int count = 10 * SLAB_SIZE / SIZE;
+
+        List<ByteBuffer> buffers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            buffers.add(pool.acquire());
+        }
+        Assert.assertEquals((long) count * SIZE, pool.getAllocatedBytes());
+
+        buffers.forEach(pool::release);
+        pool.trim();
+
+        // only one slab of spare buffers is kept
+        Assert.assertEquals(0, pool.getAcquiredBytes());
+        Assert.assertEquals(SLAB_SIZE, pool.getAllocatedBytes());
+        Assert.assertEquals((long) count * SIZE, pool.getAcquiredPeakBytes());
+
+        // the pool grows again
+        buffers.clear();
+        for (int i = 0; i < count; i++) {
+            buffers.add(pool.acquire());
+        }
+        Assert.assertEquals((long) count * SIZE, pool.getAllocatedBytes());
+        buffers.forEach(pool::release);
+    }
+
+    @Test
+    public void testThreadCache() throws Exception {
+        BufferOptions options = new BufferOptions();
+        options.setCount(4);
+        options.setSize(SIZE);
+        options.setDirect(false);
+
+        BufferPool pool = new BufferPool(options);
+
+        final int count = 100;
+
+        List<ByteBuffer> buffers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            buffers.add(pool.acquire());
+        }
+        Assert.assertEquals((long) count * SIZE, pool.getAcquiredBytes());
+
+        // buffers could be released by another thread
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> buffers.forEach(pool::release)).get();
+            Assert.assertEquals(0, pool.getAcquiredBytes());
+            Assert.assertEquals(0, pool.checkLeaks());
+
+            executor.submit(pool::trim).get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        pool.trim();
+
+        Assert.assertEquals(0, pool.getAcquiredBytes());
+        Assert.assertEquals(0, pool.checkLeaks());
+        Assert.assertEquals(SLAB_SIZE, pool.getAllocatedBytes());
+    }
+
+    @Test
+    public void testDeadThreadCache() throws Exception {
+        BufferOptions options = new BufferOptions();
+        options.setCount(4);
+        options.setSize(SIZE);
+        options.setDirect(false);
+
+        BufferPool pool = new BufferPool(options);
+
+        final int count = 2 * SLAB_SIZE / SIZE;
+
+        // the thread keeps the last released buffers in its cache, so the upper slab is not free
+        CountDownLatch used = new CountDownLatch(1);
+        CountDownLatch exit = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            List<ByteBuffer> buffers = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                buffers.add(pool.acquire());
+            }
+            buffers.forEach(pool::release);
+
+            used.countDown();
+            try {
+                exit.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+
+        Assert.assertTrue(used.await(5, TimeUnit.SECONDS));
+        pool.trim();
+        Assert.assertEquals(0, pool.getAcquiredBytes());
+        Assert.assertEquals(2 * SLAB_SIZE, pool.getAllocatedBytes());
+
+        // the cache of the terminated thread is dropped and its buffers are returned
+        exit.countDown();
+        thread.join();
+
+        pool.trim();
+        Assert.assertEquals(0, pool.getAcquiredBytes());
+        Assert.assertEquals(0, pool.checkLeaks());
+        Assert.assertEquals(SLAB_SIZE, pool.getAllocatedBytes());
+    }
+}
@@ -0,0 +1,76 @@
+package org.netcrusher.core.buffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MemoryBudgetTest {
+
+    @Test
+    public void testLimit() throws Exception {
+        MemoryBudget budget = new MemoryBudget(100);
+
+        Assert.assertTrue(budget.tryAcquire(60));
+        Assert.assertFalse(budget.tryAcquire(60));
+        Assert.assertTrue(budget.tryAcquire(40));
+        Assert.assertEquals(100, budget.getUsedBytes());
+
+        budget.release(100);
+        Assert.assertEquals(0, budget.getUsedBytes());
+        Assert.assertEquals(100, budget.getPeakBytes());
+    }
+
+    @Test
+    public void testUnlimited() throws Exception {
+        MemoryBudget budget = new MemoryBudget(0);
+
+        Assert.assertTrue(budget.tryAcquire(Integer.MAX_VALUE));
+        Assert.assertTrue(budget.tryAcquire(Integer.MAX_VALUE));
+        Assert.assertEquals(2L * Integer.MAX_VALUE, budget.getUsedBytes());
+    }
+
+    @Test
+    public void testAwait() throws Exception {
+        MemoryBudget budget = new MemoryBudget(100);
+        AtomicInteger woken = new AtomicInteger(0);
+
+        Assert.assertTrue(budget.tryAcquire(100));
+
+        budget.await(woken::incrementAndGet);
+        budget.await(woken::incrementAndGet);
+        Assert.assertEquals(0, woken.get());
+        Assert.assertEquals(2, budget.getStalledCount());
+
+        budget.release(10);
+        Assert.assertEquals(2, woken.get());
+        Assert.assertEquals(0, budget.getStalledCount());
+
+        // memory is available so the waiter is called at once
+        budget.await(woken::incrementAndGet);
+        Assert.assertEquals(3, woken.get());
+        Assert.assertEquals(0, budget.getStalledCount());
+    }
+
+    @Test
+    public void testPool() throws Exception {
+        BufferOptions options = new BufferOptions();
+        options.setCount(4);
+        options.setSize(1024);
+
+        MemoryBudget budget = new MemoryBudget(2048);
+        BufferPool pool = new BufferPool(options, budget);
+
+        ByteBuffer bb1 = pool.acquire();
+        ByteBuffer bb2 = pool.acquire();
+        Assert.assertNotNull(bb1);
+        Assert.assertNotNull(bb2);
+        Assert.assertNull(pool.acquire());
+        Assert.assertEquals(2048, budget.getUsedBytes());
+
+        pool.release(bb1);
+        Assert.assertEquals(1024, budget.getUsedBytes());
+        Assert.assertNotNull(pool.acquire());
+    }
+}
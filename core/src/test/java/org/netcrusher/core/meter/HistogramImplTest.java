@@ -0,0 +1,78 @@
+package org.netcrusher.core.meter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HistogramImplTest {
+
+    @Test
+    public void testBuckets() throws Exception {
+        int previous = -1;
+        for (long value = 0; value < 100_000; value++) {
+            int index = HistogramImpl.bucketIndex(value);
+            Assert.assertTrue(index == previous || index == previous + 1);
+            Assert.assertTrue(HistogramImpl.bucketLowerBound(index) <= value);
+            Assert.assertTrue(HistogramImpl.bucketUpperBound(index) >= value);
+            previous = index;
+        }
+
+        int last = HistogramImpl.bucketIndex(Long.MAX_VALUE);
+        Assert.assertEquals(HistogramImpl.BUCKET_COUNT - 1, last);
+        Assert.assertEquals(Long.MAX_VALUE, HistogramImpl.bucketUpperBound(last));
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        HistogramSnapshot snapshot = new HistogramImpl().getSnapshot();
+
+        Assert.assertEquals(0, snapshot.getCount());
+        Assert.assertEquals(0, snapshot.getPercentile(99.0));
+        Assert.assertTrue(Double.isNaN(snapshot.getMean()));
+    }
+
+    @Test
+    public void testPercentiles() throws Exception {
+        HistogramImpl histogram = new HistogramImpl();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-5);
+
+        HistogramSnapshot snapshot = histogram.getSnapshot();
+
+        Assert.assertEquals(1001, snapshot.getCount());
+        Assert.assertEquals(500500, snapshot.getSum());
+        Assert.assertEquals(1000, snapshot.getMax());
+        Assert.assertEquals(500.0, snapshot.getMean(), 1.0);
+
+        Assert.assertEquals(0, snapshot.getPercentile(0.0));
+        assertApproximately(500, snapshot.getPercentile(50.0));
+        assertApproximately(990, snapshot.getPercentile(99.0));
+        Assert.assertEquals(1000, snapshot.getPercentile(100.0));
+    }
+
+    @Test
+    public void testSince() throws Exception {
+        HistogramImpl histogram = new HistogramImpl();
+        histogram.record(10);
+        HistogramSnapshot first = histogram.getSnapshot();
+
+        histogram.record(1_000_000);
+        histogram.record(1_000_000);
+        HistogramSnapshot difference = histogram.getSnapshot().since(first);
+
+        Assert.assertEquals(2, difference.getCount());
+        Assert.assertEquals(2_000_000, difference.getSum());
+        assertApproximately(1_000_000, difference.getPercentile(50.0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalPercentile() throws Exception {
+        new HistogramImpl().getSnapshot().getPercentile(101.0);
+    }
+
+    private static void assertApproximately(long expected, long actual) {
+        Assert.assertTrue(actual >= expected);
+        Assert.assertTrue(actual <= expected + expected / HistogramImpl.SUB_BUCKET_COUNT);
+    }
+}
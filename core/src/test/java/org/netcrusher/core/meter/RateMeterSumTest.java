@@ -0,0 +1,51 @@
+package org.netcrusher.core.meter;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.netcrusher.core.chronometer.MockChronometer;
+
+import java.util.concurrent.TimeUnit;
+
+public class RateMeterSumTest {
+
+    @Test
+    public void test() throws Exception {
+        MockChronometer mockChronometer = new MockChronometer();
+
+        RateMeterImpl meter1 = new RateMeterImpl(mockChronometer);
+        RateMeterImpl meter2 = new RateMeterImpl(mockChronometer);
+
+        RateMeterSum rateMeter = new RateMeterSum(mockChronometer);
+        rateMeter.add(meter1);
+        rateMeter.add(meter2);
+
+        meter1.update(100);
+        meter2.update(200);
+
+        mockChronometer.add(1, TimeUnit.SECONDS);
+
+        Assert.assertEquals(300, rateMeter.getTotalCount());
+        Assert.assertEquals(1000, rateMeter.getTotalElapsedMs());
+
+        RateMeterPeriod period = rateMeter.getPeriod(true);
+        Assert.assertEquals(300, period.getCount());
+        Assert.assertEquals(1000, period.getElapsedMs());
+
+        // the total of a removed meter stays counted
+        rateMeter.remove(meter1);
+        meter1.update(1000);
+        meter2.update(50);
+
+        mockChronometer.add(1, TimeUnit.SECONDS);
+
+        Assert.assertEquals(350, rateMeter.getTotalCount());
+
+        period = rateMeter.getPeriod(false);
+        Assert.assertEquals(50, period.getCount());
+        Assert.assertEquals(1000, period.getElapsedMs());
+
+        // periods of sources are not reset by the sum
+        Assert.assertEquals(1100, meter1.getPeriod(false).getCount());
+        Assert.assertEquals(250, meter2.getPeriod(false).getCount());
+    }
+}
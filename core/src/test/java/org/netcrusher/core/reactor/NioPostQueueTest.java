@@ -0,0 +1,126 @@
+package org.netcrusher.core.reactor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+
+public class NioPostQueueTest {
+
+    private static final int PRODUCERS = 4;
+
+    private static final int OPERATIONS = 100_000;
+
+    @Test
+    public void testSingleThread() throws Exception {
+        NioPostQueue queue = new NioPostQueue(3);
+        Assert.assertEquals(4, queue.capacity());
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll());
+
+        List<NioSelectorPostOp<Integer>> operations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final int value = i;
+            NioSelectorPostOp<Integer> operation = new NioSelectorPostOp<>(() -> value);
+            if (queue.offer(operation)) {
+                operations.add(operation);
+            }
+        }
+
+        // the queue never grows over its capacity
+        Assert.assertFalse(queue.isEmpty());
+        Assert.assertEquals(4, operations.size());
+        Assert.assertEquals(6, queue.getOverflowCount());
+
+        for (NioSelectorPostOp<Integer> operation : operations) {
+            Assert.assertSame(operation, queue.poll());
+        }
+
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll());
+    }
+
+    @Test
+    public void testOverflow() throws Exception {
+        NioPostQueue queue = new NioPostQueue(4);
+
+        List<NioSelectorPostOp<Integer>> operations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final int value = i;
+            NioSelectorPostOp<Integer> operation = new NioSelectorPostOp<>(() -> value);
+            queue.offerOverflowing(operation);
+            operations.add(operation);
+        }
+
+        // the ring is refused until the overflow queue is drained, so the order is kept
+        Assert.assertEquals(6, queue.getOverflowCount());
+        Assert.assertFalse(queue.offer(new NioSelectorPostOp<>(() -> -1)));
+
+        for (NioSelectorPostOp<Integer> operation : operations) {
+            Assert.assertSame(operation, queue.poll());
+        }
+
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertTrue(queue.offer(new NioSelectorPostOp<>(() -> -1)));
+    }
+
+    @Test
+    public void testMultipleProducers() throws Exception {
+        // the small capacity makes producers wait for the consumer from time to time
+        NioPostQueue queue = new NioPostQueue(16);
+
+        CyclicBarrier barrier = new CyclicBarrier(PRODUCERS);
+
+        List<Thread> producers = new ArrayList<>(PRODUCERS);
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int producer = p;
+            producers.add(new Thread(() -> {
+                try {
+                    barrier.await();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+
+                for (int i = 0; i < OPERATIONS; i++) {
+                    final long value = ((long) producer << 32) | i;
+                    NioSelectorPostOp<Long> operation = new NioSelectorPostOp<>(() -> value);
+                    while (!queue.offer(operation)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+
+        producers.forEach(Thread::start);
+
+        int[] expected = new int[PRODUCERS];
+        int received = 0;
+        while (received < PRODUCERS * OPERATIONS) {
+            NioSelectorPostOp operation = queue.poll();
+            if (operation == null) {
+                Thread.yield();
+                continue;
+            }
+
+            operation.run();
+            long value = (Long) operation.await();
+
+            int producer = (int) (value >>> 32);
+            int index = (int) value;
+
+            // operations of the same producer are never reordered
+            Assert.assertEquals(expected[producer], index);
+            expected[producer]++;
+
+            received++;
+        }
+
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        Assert.assertTrue(queue.isEmpty());
+    }
+}
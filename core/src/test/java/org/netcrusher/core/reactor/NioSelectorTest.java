@@ -0,0 +1,516 @@
+package org.netcrusher.core.reactor;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class NioSelectorTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NioSelectorTest.class);
+
+    private static final int ROUNDS = 50;
+
+    private static final long DELAY_NS = TimeUnit.MICROSECONDS.toNanos(300);
+
+    private static final long LATENESS_ALLOWED_NS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private static final long ITERATIONS_ALLOWED = 10;
+
+    private static final int PIPE_BUFFER_SIZE = 64 * 1024;
+
+    private static final long WARMUP_MS = 1_000;
+
+    private static final long MEASURE_MS = 1_000;
+
+    private static final long ALLOCATION_ALLOWED_BYTES = 1024;
+
+    private static final int POST_QUEUE_CAPACITY = 16;
+
+    private static final int FALLBACK_PIPE_COUNT = 4;
+
+    private NioReactor reactor;
+
+    @Before
+    public void setUp() throws Exception {
+        reactor = new NioReactor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (reactor != null) {
+            reactor.close();
+        }
+    }
+
+    @Test
+    public void testScheduleDeadline() throws Exception {
+        NioSelector selector = reactor.getSelector();
+
+        long totalLatenessNs = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            CountDownLatch latch = new CountDownLatch(1);
+            AtomicLong scheduledNs = new AtomicLong();
+            AtomicLong executedNs = new AtomicLong();
+
+            selector.execute(() -> {
+                scheduledNs.set(System.nanoTime());
+                selector.schedule(() -> {
+                    executedNs.set(System.nanoTime());
+                    latch.countDown();
+                }, DELAY_NS);
+                return true;
+            });
+
+            Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+
+            long elapsedNs = executedNs.get() - scheduledNs.get();
+            Assert.assertTrue(elapsedNs >= DELAY_NS);
+
+            totalLatenessNs += elapsedNs - DELAY_NS;
+        }
+
+        // with a fixed select() timeout the operation waits for the whole tick
+        Assert.assertTrue(totalLatenessNs / ROUNDS < LATENESS_ALLOWED_NS);
+    }
+
+    @Test
+    public void testNoSpinBeforeDeadline() throws Exception {
+        NioSelector selector = reactor.getSelector();
+
+        final long iterationsBefore = selector.getStats().getSelectTimeNs().getCount();
+
+        CountDownLatch latch = new CountDownLatch(1);
+        selector.execute(() -> selector.schedule(latch::countDown, TimeUnit.MILLISECONDS.toNanos(20)));
+
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+
+        // the loop sleeps until the deadline instead of calling selectNow() for the sub-millisecond remainder
+        final long iterations = selector.getStats().getSelectTimeNs().getCount() - iterationsBefore;
+        Assert.assertTrue("Iterations: " + iterations, iterations < ITERATIONS_ALLOWED);
+    }
+
+    @Test
+    public void testPostWhileIdle() throws Exception {
+        NioSelector selector = reactor.getSelector();
+
+        // the selector sleeps without timeout now so the post must wake it up
+        Thread.sleep(100);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        selector.post(latch::countDown);
+
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testPostFromSelectorThread() throws Exception {
+        NioSelector selector = reactor.getSelector();
+
+        CountDownLatch latch = new CountDownLatch(1);
+        selector.execute(() -> {
+            selector.post(latch::countDown);
+            return true;
+        });
+
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSubmit() throws Exception {
+        NioSelector selector = reactor.getSelector();
+
+        CompletableFuture<Boolean> future = selector.submit(selector::isSelectorThread);
+        Assert.assertTrue(future.get(1, TimeUnit.SECONDS));
+
+        CompletableFuture<Object> failed = selector.submit(() -> {
+            throw new IllegalStateException("Expected");
+        });
+
+        try {
+            failed.get(1, TimeUnit.SECONDS);
+            Assert.fail("Exception is expected");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testSubmitAll() throws Exception {
+        NioSelector selector = reactor.getSelector();
+
+        final int count = 1000;
+
+        List<Integer> executed = new ArrayList<>(count);
+        List<Callable<Integer>> callables = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int value = i;
+            callables.add(() -> {
+                executed.add(value);
+                return value;
+            });
+        }
+
+        List<CompletableFuture<Integer>> futures = selector.submitAll(callables);
+        Assert.assertEquals(count, futures.size());
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[count])).get(1, TimeUnit.SECONDS);
+
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(i, (int) futures.get(i).get());
+        }
+
+        // the batch is executed in the submission order
+        Assert.assertEquals(count, selector.submit(executed::size).get(1, TimeUnit.SECONDS).intValue());
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(i, (int) executed.get(i));
+        }
+    }
+
+    @Test
+    public void testSubmitOnClose() throws Exception {
+        NioSelector selector = reactor.getSelector();
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        selector.post(() -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        Assert.assertTrue(blocked.await(1, TimeUnit.SECONDS));
+
+        // the op is queued while the selector thread is busy: it must be either run or rejected on close
+        CompletableFuture<Boolean> pending = selector.submit(() -> true);
+
+        release.countDown();
+        reactor.close();
+
+        try {
+            Assert.assertTrue(pending.get(1, TimeUnit.SECONDS));
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testWakeupCoalescing() throws Exception {
+        NioSelector selector = reactor.getSelector();
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        selector.post(() -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        Assert.assertTrue(blocked.await(1, TimeUnit.SECONDS));
+
+        NioSelectorStats before = selector.getStats();
+
+        // the selector thread is awake so nobody has to wake it up
+        final int count = 100;
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            futures.add(selector.submit(() -> true));
+        }
+
+        NioSelectorStats during = selector.getStats();
+        Assert.assertEquals(before.getWakeupsIssued(), during.getWakeupsIssued());
+        Assert.assertEquals(before.getWakeupsAvoided() + count, during.getWakeupsAvoided());
+
+        release.countDown();
+
+        for (CompletableFuture<Boolean> future : futures) {
+            Assert.assertTrue(future.get(1, TimeUnit.SECONDS));
+        }
+
+        // now the selector sleeps again
+        Thread.sleep(100);
+        Assert.assertTrue(selector.submit(() -> true).get(1, TimeUnit.SECONDS));
+
+        NioSelectorStats after = selector.getStats();
+        Assert.assertEquals(during.getWakeupsIssued() + 1, after.getWakeupsIssued());
+        Assert.assertEquals(0, after.getPostQueueOverflows());
+    }
+
+    @Test
+    public void testLoopHistograms() throws Exception {
+        NioSelector selector = reactor.getSelector();
+
+        CountDownLatch latch = new CountDownLatch(ROUNDS);
+        for (int i = 0; i < ROUNDS; i++) {
+            selector.post(() -> selector.schedule(latch::countDown, DELAY_NS));
+        }
+
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+
+        NioSelectorStats stats = reactor.getSelectorStats().get(0);
+        LOGGER.info("Selector stats: {}", stats);
+
+        Assert.assertTrue(stats.getSelectTimeNs().getCount() > 0);
+        Assert.assertEquals(stats.getSelectTimeNs().getCount(), stats.getCallbackTimeNs().getCount());
+        Assert.assertEquals(stats.getSelectTimeNs().getCount(), stats.getCallbacksPerIteration().getCount());
+
+        // no sockets at all
+        Assert.assertEquals(0, stats.getCallbacksPerIteration().getMax());
+
+        Assert.assertEquals(ROUNDS, stats.getTimerLatenessNs().getCount());
+        Assert.assertTrue(stats.getTimerLatenessNs().getPercentile(50.0) < LATENESS_ALLOWED_NS);
+
+        Assert.assertTrue(stats.getPostQueueWaitNs().getCount() >= ROUNDS);
+        Assert.assertTrue(stats.getPostQueueDepth().getCount() > 0);
+        Assert.assertTrue(stats.getPostQueueDepth().getSum() >= ROUNDS);
+    }
+
+    @Test
+    public void testBusyPoll() throws Exception {
+        NioReactor busyReactor = NioReactorBuilder.builder()
+            .withBusyPollSpins(1_000)
+            .withBusyPollYields(1_000)
+            .withBusyPollMaxNs(TimeUnit.MILLISECONDS.toNanos(1))
+            .build();
+        try {
+            NioSelector selector = busyReactor.getSelector();
+
+            for (int i = 0; i < ROUNDS; i++) {
+                Assert.assertTrue(selector.submit(() -> true).get(1, TimeUnit.SECONDS));
+            }
+
+            // let the selector go through all the phases
+            Thread.sleep(100);
+            Assert.assertTrue(selector.submit(() -> true).get(1, TimeUnit.SECONDS));
+
+            NioSelectorStats stats = selector.getStats();
+            Assert.assertTrue(stats.getSpinTimeNs() > 0);
+            Assert.assertTrue(stats.getYieldTimeNs() >= 0);
+            Assert.assertTrue(stats.getParkTimeNs() > 0);
+
+            // the whole busy poll is limited so the selector has been parked most of the time
+            Assert.assertTrue(stats.getSpinTimeNs() + stats.getYieldTimeNs() < stats.getParkTimeNs());
+        } finally {
+            busyReactor.close();
+        }
+    }
+
+    @Test
+    public void testBusyPollOptions() throws Exception {
+        NioReactorOptions options = new NioReactorOptions();
+        options.validate();
+
+        options.setBusyPollSpins(-1);
+        try {
+            options.validate();
+            Assert.fail("Exception is expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        // the duration alone doesn't enable busy-poll mode
+        options.setBusyPollSpins(0);
+        options.setBusyPollMaxNs(TimeUnit.MILLISECONDS.toNanos(1));
+        try {
+            options.validate();
+            Assert.fail("Exception is expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        options.setBusyPollYields(1);
+        options.validate();
+    }
+
+    @Test
+    public void testSelectedKeySetAllocation() throws Exception {
+        NioSelector selector = reactor.getSelector();
+        Assume.assumeTrue("Selected key set can't be installed", selector.isSelectedKeySetOptimized());
+
+        long allocated = measureLoopAllocation(selector);
+        LOGGER.info("Selector thread allocated {} bytes with optimized selected key set", allocated);
+
+        Assert.assertTrue(allocated < ALLOCATION_ALLOWED_BYTES);
+    }
+
+    @Test
+    public void testSelectedKeySetFallback() throws Exception {
+        NioReactor plainReactor = NioReactorBuilder.builder()
+            .withSelectedKeySetOptimized(false)
+            .build();
+        try {
+            NioSelector selector = plainReactor.getSelector();
+            Assert.assertFalse(selector.isSelectedKeySetOptimized());
+
+            // keys selected at once go through the regular key set of the selector
+            List<Pipe> pipes = new ArrayList<>(FALLBACK_PIPE_COUNT);
+            List<Semaphore> dispatched = new ArrayList<>(FALLBACK_PIPE_COUNT);
+            for (int i = 0; i < FALLBACK_PIPE_COUNT; i++) {
+                Pipe pipe = Pipe.open();
+                pipe.source().configureBlocking(false);
+                pipes.add(pipe);
+
+                Semaphore semaphore = new Semaphore(0);
+                dispatched.add(semaphore);
+
+                ByteBuffer readBuffer = ByteBuffer.allocate(PIPE_BUFFER_SIZE);
+                selector.register(pipe.source(), SelectionKey.OP_READ, (key) -> {
+                    readBuffer.clear();
+                    semaphore.release(pipe.source().read(readBuffer));
+                });
+            }
+
+            try {
+                for (int round = 0; round < ROUNDS; round++) {
+                    for (Pipe pipe : pipes) {
+                        pipe.sink().write(ByteBuffer.allocate(1));
+                    }
+
+                    for (Semaphore semaphore : dispatched) {
+                        Assert.assertTrue(semaphore.tryAcquire(1, TimeUnit.SECONDS));
+                    }
+                }
+            } finally {
+                for (Pipe pipe : pipes) {
+                    pipe.sink().close();
+                    pipe.source().close();
+                }
+            }
+        } finally {
+            plainReactor.close();
+        }
+    }
+
+    private static long measureLoopAllocation(NioSelector selector) throws Exception {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+        long threadId = selector.submit(() -> Thread.currentThread().getId()).get(1, TimeUnit.SECONDS);
+
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+
+        ByteBuffer readBuffer = ByteBuffer.allocateDirect(PIPE_BUFFER_SIZE);
+        AtomicLong received = new AtomicLong();
+        SelectionKey selectionKey = selector.register(pipe.source(), SelectionKey.OP_READ, (key) -> {
+            readBuffer.clear();
+            received.addAndGet(pipe.source().read(readBuffer));
+        });
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            ByteBuffer writeBuffer = ByteBuffer.allocateDirect(PIPE_BUFFER_SIZE / 4);
+            try {
+                while (writing.get()) {
+                    writeBuffer.clear();
+                    pipe.sink().write(writeBuffer);
+                }
+            } catch (IOException e) {
+                LOGGER.error("Fail to write into pipe", e);
+            }
+        });
+        writer.start();
+
+        try {
+            Thread.sleep(WARMUP_MS);
+
+            // the selector thread does nothing but runs the pipe callback from now on
+            long allocatedBefore = allocationBean.getThreadAllocatedBytes(threadId);
+            long receivedBefore = received.get();
+            Thread.sleep(MEASURE_MS);
+            long allocatedAfter = allocationBean.getThreadAllocatedBytes(threadId);
+            long receivedAfter = received.get();
+
+            Assert.assertTrue(receivedAfter > receivedBefore);
+
+            return allocatedAfter - allocatedBefore;
+        } finally {
+            writing.set(false);
+            writer.join();
+
+            selector.execute(() -> {
+                selectionKey.cancel();
+                return true;
+            });
+
+            pipe.sink().close();
+            pipe.source().close();
+        }
+    }
+
+    @Test
+    public void testPostQueueBound() throws Exception {
+        NioReactor bounded = NioReactorBuilder.builder()
+            .withPostQueueCapacity(POST_QUEUE_CAPACITY)
+            .build();
+        try {
+            NioSelector selector = bounded.getSelector();
+
+            // the selector thread is busy so nothing is drained
+            CountDownLatch blocked = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            selector.post(() -> {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            Assert.assertTrue(blocked.await(1, TimeUnit.SECONDS));
+
+            AtomicLong executed = new AtomicLong();
+            int posted = 0;
+            while (selector.tryPost(executed::incrementAndGet)) {
+                posted++;
+            }
+            Assert.assertEquals(POST_QUEUE_CAPACITY, posted);
+
+            // post() is never refused, the operation goes to the overflow queue
+            selector.post(executed::incrementAndGet);
+            Assert.assertFalse(selector.tryPost(executed::incrementAndGet));
+
+            // execute() waits for room instead of being rejected
+            CompletableFuture<Long> waiting = CompletableFuture.supplyAsync(() -> selector.execute(executed::get));
+            Thread.sleep(100);
+            Assert.assertFalse(waiting.isDone());
+
+            release.countDown();
+
+            Assert.assertEquals(POST_QUEUE_CAPACITY + 1, waiting.get(1, TimeUnit.SECONDS).longValue());
+            Assert.assertTrue(selector.getStats().getPostQueueOverflows() > 0);
+        } finally {
+            bounded.close();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.netcrusher.core.reactor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing wheel vs the former PriorityQueue of scheduled operations with 10k/100k/1M pending timers.
+ * Each invocation schedules one timer and expires (or cancels) one, so the count of pending timers is steady.
+ * Run main() with the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NioTimerWheelBenchmark {
+
+    private static final long RESOLUTION_NS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final Runnable NOOP = () -> { };
+
+    @Param({ "10000", "100000", "1000000" })
+    private int pending;
+
+    private long nowNs;
+
+    private NioTimerWheel wheel;
+
+    private long[] wheelIds;
+
+    private PriorityQueue<HeapOp> heap;
+
+    private HeapOp[] heapOps;
+
+    private int cursor;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        nowNs = 0;
+        cursor = 0;
+
+        wheel = new NioTimerWheel(RESOLUTION_NS, nowNs);
+        wheelIds = new long[pending];
+
+        heap = new PriorityQueue<>(pending, (o1, o2) -> Long.compare(o1.scheduledNs, o2.scheduledNs));
+        heapOps = new HeapOp[pending];
+
+        for (int i = 0; i < pending; i++) {
+            long deadlineNs = nowNs + (i + 1) * RESOLUTION_NS;
+
+            wheelIds[i] = wheel.add(deadlineNs, NOOP);
+
+            heapOps[i] = new HeapOp(deadlineNs, NOOP);
+            heap.add(heapOps[i]);
+        }
+    }
+
+    @Benchmark
+    public int wheelScheduleExpire() {
+        wheel.add(nowNs + (pending + 1) * RESOLUTION_NS, NOOP);
+        nowNs += RESOLUTION_NS;
+        return wheel.runExpired(nowNs);
+    }
+
+    @Benchmark
+    public int heapScheduleExpire() {
+        heap.add(new HeapOp(nowNs + (pending + 1) * RESOLUTION_NS, NOOP));
+        nowNs += RESOLUTION_NS;
+
+        int executed = 0;
+        while (!heap.isEmpty() && heap.peek().scheduledNs <= nowNs) {
+            heap.poll().operation.run();
+            executed++;
+        }
+
+        return executed;
+    }
+
+    @Benchmark
+    public boolean wheelScheduleCancel() {
+        int index = cursor++ % pending;
+
+        boolean cancelled = wheel.cancel(wheelIds[index]);
+        wheelIds[index] = wheel.add(nowNs + (index + 1) * RESOLUTION_NS, NOOP);
+
+        return cancelled;
+    }
+
+    @Benchmark
+    public boolean heapScheduleCancel() {
+        int index = cursor++ % pending;
+
+        boolean cancelled = heap.remove(heapOps[index]);
+        heapOps[index] = new HeapOp(nowNs + (index + 1) * RESOLUTION_NS, NOOP);
+        heap.add(heapOps[index]);
+
+        return cancelled;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include(NioTimerWheelBenchmark.class.getSimpleName())
+            .build();
+
+        new Runner(options).run();
+    }
+
+    private static final class HeapOp {
+
+        private final long scheduledNs;
+
+        private final Runnable operation;
+
+        private HeapOp(long scheduledNs, Runnable operation) {
+            this.scheduledNs = scheduledNs;
+            this.operation = operation;
+        }
+    }
+}
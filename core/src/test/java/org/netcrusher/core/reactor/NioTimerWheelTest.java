@@ -0,0 +1,154 @@
+package org.netcrusher.core.reactor;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+public class NioTimerWheelTest {
+
+    private static final long RESOLUTION_NS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final long ORIGIN_NS = 1_000_000_000L;
+
+    private NioTimerWheel wheel;
+
+    private List<Long> fired;
+
+    private long nowNs;
+
+    @Before
+    public void setUp() throws Exception {
+        wheel = new NioTimerWheel(RESOLUTION_NS, ORIGIN_NS);
+        fired = new ArrayList<>();
+        nowNs = ORIGIN_NS;
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        Assert.assertEquals(0, wheel.size());
+        Assert.assertEquals(Long.MAX_VALUE, wheel.getNextDeadlineNs());
+        Assert.assertEquals(0, wheel.runExpired(nowNs + TimeUnit.HOURS.toNanos(1)));
+    }
+
+    @Test
+    public void testNeverEarly() throws Exception {
+        Random random = new Random(1);
+
+        final int count = 10_000;
+        for (int i = 0; i < count; i++) {
+            // spread over all the levels
+            long delayNs = (long) (Math.pow(random.nextDouble(), 4) * TimeUnit.MINUTES.toNanos(30));
+            long deadlineNs = nowNs + delayNs;
+            wheel.add(deadlineNs, () -> {
+                Assert.assertTrue(nowNs >= deadlineNs);
+                Assert.assertTrue(nowNs - deadlineNs < RESOLUTION_NS);
+                fired.add(nowNs);
+            });
+        }
+
+        Assert.assertEquals(count, wheel.size());
+
+        while (wheel.size() > 0) {
+            long nextNs = wheel.getNextDeadlineNs();
+            Assert.assertTrue(nextNs >= nowNs);
+            nowNs = nextNs;
+            wheel.runExpired(nowNs);
+        }
+
+        Assert.assertEquals(count, fired.size());
+        for (int i = 1; i < count; i++) {
+            Assert.assertTrue(fired.get(i - 1) <= fired.get(i));
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        long id1 = wheel.add(nowNs + TimeUnit.MILLISECONDS.toNanos(1), () -> fired.add(1L));
+        long id2 = wheel.add(nowNs + TimeUnit.SECONDS.toNanos(10), () -> fired.add(2L));
+        long id3 = wheel.add(nowNs + TimeUnit.MILLISECONDS.toNanos(2), () -> fired.add(3L));
+
+        Assert.assertTrue(wheel.cancel(id1));
+        Assert.assertFalse(wheel.cancel(id1));
+        Assert.assertTrue(wheel.cancel(id2));
+        Assert.assertEquals(1, wheel.size());
+
+        // the node of the first timer is recycled but the old id must not cancel it
+        long id4 = wheel.add(nowNs + TimeUnit.MILLISECONDS.toNanos(3), () -> fired.add(4L));
+        Assert.assertFalse(wheel.cancel(id1));
+        Assert.assertFalse(wheel.cancel(-1));
+
+        Assert.assertEquals(2, wheel.runExpired(nowNs + TimeUnit.SECONDS.toNanos(20)));
+        Assert.assertEquals(0, wheel.size());
+        Assert.assertFalse(wheel.cancel(id3));
+        Assert.assertFalse(wheel.cancel(id4));
+
+        Assert.assertEquals(2, fired.size());
+        Assert.assertEquals(3L, (long) fired.get(0));
+        Assert.assertEquals(4L, (long) fired.get(1));
+    }
+
+    @Test
+    public void testCancelFromOperation() throws Exception {
+        long deadlineNs = nowNs + TimeUnit.MILLISECONDS.toNanos(1);
+
+        long[] ids = new long[2];
+        ids[0] = wheel.add(deadlineNs, () -> {
+            fired.add(1L);
+            Assert.assertTrue(wheel.cancel(ids[1]));
+        });
+        ids[1] = wheel.add(deadlineNs, () -> {
+            fired.add(2L);
+            Assert.assertTrue(wheel.cancel(ids[0]));
+        });
+
+        // both are in the same slot: the one which runs first cancels the other
+        Assert.assertEquals(1, wheel.runExpired(deadlineNs));
+        Assert.assertEquals(0, wheel.size());
+        Assert.assertEquals(1, fired.size());
+    }
+
+    @Test
+    public void testRescheduleFromOperation() throws Exception {
+        Runnable[] operation = new Runnable[1];
+        operation[0] = () -> {
+            fired.add(nowNs);
+            if (fired.size() < 10) {
+                // already expired deadline
+                wheel.add(ORIGIN_NS, operation[0]);
+            }
+        };
+
+        wheel.add(nowNs, operation[0]);
+
+        // zero delay operations are run once per tick only
+        nowNs += RESOLUTION_NS * 3;
+        Assert.assertEquals(4, wheel.runExpired(nowNs));
+
+        nowNs += TimeUnit.SECONDS.toNanos(1);
+        Assert.assertEquals(6, wheel.runExpired(nowNs));
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testFarFuture() throws Exception {
+        // beyond the range of all levels
+        long deadlineNs = nowNs + TimeUnit.DAYS.toNanos(30);
+        wheel.add(deadlineNs, () -> fired.add(deadlineNs));
+
+        int rounds = 0;
+        while (wheel.size() > 0) {
+            nowNs = wheel.getNextDeadlineNs();
+            wheel.runExpired(nowNs);
+            rounds++;
+        }
+
+        Assert.assertEquals(1, fired.size());
+        Assert.assertTrue(nowNs >= deadlineNs);
+        Assert.assertTrue(rounds < 1_000);
+    }
+}
@@ -0,0 +1,114 @@
+package org.netcrusher.core.throttle.rate;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.chronometer.MockChronometer;
+import org.netcrusher.core.throttle.Throttler;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+public class PacingByteRateThrottlerTest {
+
+    private static final long RATE_PER_SEC = 1_000_000;
+
+    private static final long SLICE_MS = 1;
+
+    private static final long SLICE_BYTES = RATE_PER_SEC / 1000 * SLICE_MS;
+
+    private static final long BURST_BYTES = RATE_PER_SEC / 1000 * AbstractRateThrottler.MIN_AUTOFACTOR_PERIOD_MS;
+
+    private MockChronometer mockChronometer;
+
+    private PacingByteRateThrottler throttler;
+
+    @Before
+    public void setUp() throws Exception {
+        this.mockChronometer = new MockChronometer();
+
+        this.throttler = new PacingByteRateThrottler(RATE_PER_SEC, 1, TimeUnit.SECONDS,
+            SLICE_MS, TimeUnit.MILLISECONDS, mockChronometer);
+    }
+
+    @Test
+    public void testSlices() throws Exception {
+        // an idle link gives a short burst only
+        mockChronometer.add(1, TimeUnit.SECONDS);
+        Assert.assertEquals(BURST_BYTES, throttler.calculateAllowedBytes());
+
+        throttler.registerSentBytes(BURST_BYTES);
+        Assert.assertEquals(0, throttler.calculateAllowedBytes());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(SLICE_MS), throttler.calculateSliceDelayNs());
+
+        // nothing is allowed until a whole slice is available
+        mockChronometer.add(SLICE_MS * 500, TimeUnit.MICROSECONDS);
+        Assert.assertEquals(0, throttler.calculateAllowedBytes());
+        Assert.assertEquals(TimeUnit.MICROSECONDS.toNanos(SLICE_MS * 500), throttler.calculateSliceDelayNs());
+
+        mockChronometer.add(SLICE_MS * 500, TimeUnit.MICROSECONDS);
+        Assert.assertEquals(SLICE_BYTES, throttler.calculateAllowedBytes());
+
+        // unsent bytes are not charged
+        throttler.registerSentBytes(SLICE_BYTES / 4);
+        mockChronometer.add(SLICE_MS * 250, TimeUnit.MICROSECONDS);
+        Assert.assertEquals(SLICE_BYTES, throttler.calculateAllowedBytes());
+
+        // a late wakeup gets the missed credit
+        mockChronometer.add(SLICE_MS * 2, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(SLICE_BYTES * 3, throttler.calculateAllowedBytes());
+    }
+
+    @Test
+    public void testBulk() throws Exception {
+        long totalSent = 0;
+        long totalElapsedNs = 0;
+
+        Random random = new Random(1);
+
+        for (int i = 0; i < 10_000; i++) {
+            long allowed = throttler.calculateAllowedBytes();
+            if (allowed > 0) {
+                // the socket may accept less than allowed
+                long sent = 1 + random.nextInt((int) allowed);
+                throttler.registerSentBytes(sent);
+                totalSent += sent;
+            } else {
+                long delayNs = throttler.calculateSliceDelayNs();
+                Assert.assertTrue(delayNs > 0);
+                mockChronometer.add(delayNs, TimeUnit.NANOSECONDS);
+                totalElapsedNs += delayNs;
+            }
+        }
+
+        double ratePerSec = 1.0 * TimeUnit.SECONDS.toNanos(1) * totalSent / totalElapsedNs;
+        Assert.assertEquals(RATE_PER_SEC, ratePerSec, 0.01 * RATE_PER_SEC);
+    }
+
+    @Test
+    public void testSmallRate() throws Exception {
+        // 1 byte per 10 seconds: a slice is extended to a whole byte
+        PacingByteRateThrottler slow = new PacingByteRateThrottler(1, 10, TimeUnit.SECONDS,
+            SLICE_MS, TimeUnit.MILLISECONDS, mockChronometer);
+
+        Assert.assertEquals(PacingByteRateThrottler.BURST_SLICES, slow.calculateAllowedBytes());
+        slow.registerSentBytes(PacingByteRateThrottler.BURST_SLICES);
+
+        Assert.assertEquals(0, slow.calculateAllowedBytes());
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(10), slow.calculateSliceDelayNs());
+    }
+
+    @Test
+    public void testDelay() throws Exception {
+        ByteBuffer bb = ByteBuffer.allocate((int) SLICE_BYTES);
+
+        // the burst goes with no delay
+        for (int i = 0; i <= BURST_BYTES / SLICE_BYTES; i++) {
+            Assert.assertEquals(Throttler.NO_DELAY_NS, throttler.calculateDelayNs(bb));
+        }
+
+        // the next one waits for one slice to be sent
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(SLICE_MS), throttler.calculateDelayNs(bb));
+    }
+}
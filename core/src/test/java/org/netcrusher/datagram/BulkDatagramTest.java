@@ -58,6 +58,7 @@ public class BulkDatagramTest {
             .withOutgoingPassFilterFactory((addr) -> PassFilter.NOOP)
             .withIncomingGlobalThrottler(Throttler.NOOP)
             .withOutgoingThrottlerFactory((addr) -> Throttler.NOOP)
+            .withBufferLeakDetection(true)
             .withCreationListener((addr) -> LOGGER.info("Client is created <{}>", addr))
             .withDeletionListener((addr, byteMeters, packetMeters) -> LOGGER.info("Client is deleted <{}>", addr))
             .buildAndOpen();
@@ -68,6 +69,7 @@ public class BulkDatagramTest {
         if (crusher != null) {
             crusher.close();
             Assert.assertFalse(crusher.isOpen());
+            Assert.assertEquals(0, crusher.getBufferPool().checkLeaks());
         }
 
         if (reactor != null) {
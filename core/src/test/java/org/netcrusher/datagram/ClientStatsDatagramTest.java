@@ -0,0 +1,142 @@
+package org.netcrusher.datagram;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioLoopBalancing;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioReactorBuilder;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class ClientStatsDatagramTest {
+
+    private static final int PORT_CRUSHER = 10110;
+
+    private static final int PORT_SERVER = 10111;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int LOOP_COUNT = 3;
+
+    private static final int CLIENT_COUNT = 4;
+
+    private static final int DATAGRAM_SIZE = 100;
+
+    private static final int DATAGRAM_COUNT = 3;
+
+    private static final long WAIT_MS = 5_000;
+
+    private NioReactor reactor;
+
+    private DatagramCrusher crusher;
+
+    private DatagramChannel server;
+
+    private List<DatagramChannel> clients;
+
+    @Before
+    public void setUp() throws Exception {
+        server = DatagramChannel.open();
+        server.bind(new InetSocketAddress(HOSTNAME, PORT_SERVER));
+
+        reactor = NioReactorBuilder.builder()
+            .withLoopCount(LOOP_COUNT)
+            .withLoopBalancing(NioLoopBalancing.ROUND_ROBIN)
+            .build();
+
+        crusher = DatagramCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .buildAndOpen();
+
+        clients = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (DatagramChannel client : clients) {
+            NioUtils.close(client);
+        }
+
+        if (crusher != null) {
+            crusher.close();
+            Assert.assertFalse(crusher.isOpen());
+        }
+
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void test() throws Exception {
+        final InetSocketAddress crusherAddress = new InetSocketAddress(HOSTNAME, PORT_CRUSHER);
+
+        for (int i = 0; i < CLIENT_COUNT; i++) {
+            DatagramChannel client = DatagramChannel.open();
+            client.bind(new InetSocketAddress(HOSTNAME, 0));
+            clients.add(client);
+
+            for (int j = 0; j < DATAGRAM_COUNT; j++) {
+                client.send(ByteBuffer.allocate(DATAGRAM_SIZE), crusherAddress);
+            }
+        }
+
+        // all datagrams reach the target
+        ByteBuffer bb = ByteBuffer.allocate(DATAGRAM_SIZE);
+        for (int i = 0; i < CLIENT_COUNT * DATAGRAM_COUNT; i++) {
+            bb.clear();
+            server.receive(bb);
+        }
+
+        Map<InetSocketAddress, DatagramClientStats> stats = awaitSentPackets();
+        Assert.assertEquals(CLIENT_COUNT, stats.size());
+
+        for (Map.Entry<InetSocketAddress, DatagramClientStats> entry : stats.entrySet()) {
+            DatagramClientStats clientStats = entry.getValue();
+
+            Assert.assertEquals(entry.getKey(), clientStats.getClientAddress());
+            Assert.assertEquals(DATAGRAM_COUNT, clientStats.getSentPackets().getTotal().getCount());
+            Assert.assertEquals(DATAGRAM_COUNT * DATAGRAM_SIZE, clientStats.getSentBytes().getTotal().getCount());
+            Assert.assertEquals(0, clientStats.getReadPackets().getTotal().getCount());
+            Assert.assertEquals(0, clientStats.getQueueSize());
+        }
+
+        crusher.close();
+        Assert.assertTrue(crusher.getClientStats(false).isEmpty());
+    }
+
+    private Map<InetSocketAddress, DatagramClientStats> awaitSentPackets() throws Exception {
+        final long deadlineMs = System.currentTimeMillis() + WAIT_MS;
+
+        Map<InetSocketAddress, DatagramClientStats> stats;
+        while (true) {
+            stats = crusher.getClientStats(false);
+
+            long sent = 0;
+            for (DatagramClientStats clientStats : stats.values()) {
+                sent += clientStats.getSentPackets().getTotal().getCount();
+            }
+
+            if (sent == CLIENT_COUNT * DATAGRAM_COUNT || System.currentTimeMillis() > deadlineMs) {
+                return stats;
+            }
+
+            Thread.sleep(10);
+        }
+    }
+}
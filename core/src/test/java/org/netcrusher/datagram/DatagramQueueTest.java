@@ -0,0 +1,59 @@
+package org.netcrusher.datagram;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.netcrusher.core.buffer.BufferOptions;
+import org.netcrusher.core.buffer.BufferPool;
+import org.netcrusher.core.buffer.MemoryBudget;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+public class DatagramQueueTest {
+
+    private static final int SIZE = 1024;
+
+    private static final int DATAGRAM_SIZE = 100;
+
+    private static final InetSocketAddress ADDRESS = new InetSocketAddress("127.0.0.1", 10000);
+
+    @Test
+    public void testMemoryBudget() throws Exception {
+        BufferOptions options = new BufferOptions();
+        options.setCount(8);
+        options.setSize(SIZE);
+        options.setDirect(false);
+
+        MemoryBudget budget = new MemoryBudget(2 * SIZE);
+        BufferPool pool = new BufferPool(options, budget);
+
+        DatagramQueue queue = new DatagramQueue(pool);
+        Assert.assertEquals(0, budget.getUsedBytes());
+
+        Assert.assertTrue(queue.add(ADDRESS, datagram(), 0));
+        Assert.assertTrue(queue.add(ADDRESS, datagram(), 0));
+        Assert.assertEquals(2 * SIZE, budget.getUsedBytes());
+
+        // the budget is exhausted so the datagram is dropped and accounted
+        Assert.assertFalse(queue.add(ADDRESS, datagram(), 0));
+        Assert.assertEquals(2, queue.size());
+        Assert.assertEquals(1, budget.getDroppedCount());
+        Assert.assertEquals(DATAGRAM_SIZE, budget.getDroppedBytes());
+
+        DatagramQueue.BufferEntry entry = queue.request();
+        Assert.assertEquals(DATAGRAM_SIZE, entry.getBuffer().remaining());
+        queue.release(entry);
+        Assert.assertEquals(SIZE, budget.getUsedBytes());
+
+        Assert.assertTrue(queue.add(ADDRESS, datagram(), 0));
+
+        queue.reset();
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertEquals(0, budget.getUsedBytes());
+        Assert.assertEquals(0, pool.getAcquiredBytes());
+    }
+
+    private static ByteBuffer datagram() {
+        return ByteBuffer.allocate(DATAGRAM_SIZE);
+    }
+}
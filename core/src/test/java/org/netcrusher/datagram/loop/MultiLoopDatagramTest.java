@@ -0,0 +1,120 @@
+package org.netcrusher.datagram.loop;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.meter.RateMeters;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioLoopBalancing;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioReactorBuilder;
+import org.netcrusher.datagram.DatagramCrusher;
+import org.netcrusher.datagram.DatagramCrusherBuilder;
+import org.netcrusher.datagram.bulk.DatagramBulkClient;
+import org.netcrusher.datagram.bulk.DatagramBulkReflector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CyclicBarrier;
+
+public class MultiLoopDatagramTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultiLoopDatagramTest.class);
+
+    private static final int CLIENT_PORT = 10182;
+
+    private static final int CRUSHER_PORT = 10183;
+
+    private static final int REFLECTOR_PORT = 10184;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int LOOP_COUNT = 2;
+
+    private static final long COUNT = 2_000;
+
+    private static final long SEND_WAIT_MS = 120_000;
+
+    private static final long READ_WAIT_MS = 30_000;
+
+    private NioReactor reactor;
+
+    private DatagramCrusher crusher;
+
+    @Before
+    public void setUp() throws Exception {
+        // the primary loop already holds the inner socket so the outer socket goes to the other loop
+        reactor = NioReactorBuilder.builder()
+            .withLoopCount(LOOP_COUNT)
+            .withLoopBalancing(NioLoopBalancing.LEAST_LOADED)
+            .build();
+
+        crusher = DatagramCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, CRUSHER_PORT)
+            .withConnectAddress(HOSTNAME, REFLECTOR_PORT)
+            .withCreationListener((addr) -> LOGGER.info("Client is created <{}>", addr))
+            .withDeletionListener((addr, byteMeters, packetMeters) -> LOGGER.info("Client is deleted <{}>", addr))
+            .buildAndOpen();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (crusher != null) {
+            crusher.close();
+            Assert.assertFalse(crusher.isOpen());
+        }
+
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+    }
+
+    @Test
+    public void test() throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(3);
+
+        DatagramBulkClient client = new DatagramBulkClient("CLIENT",
+            new InetSocketAddress(HOSTNAME, CLIENT_PORT),
+            new InetSocketAddress(HOSTNAME, CRUSHER_PORT),
+            COUNT,
+            barrier,
+            barrier);
+
+        DatagramBulkReflector reflector = new DatagramBulkReflector("REFLECTOR",
+            new InetSocketAddress(HOSTNAME, REFLECTOR_PORT),
+            COUNT,
+            barrier);
+
+        reflector.open();
+        client.open();
+
+        try {
+            final byte[] producerDigest = client.awaitProducerResult(SEND_WAIT_MS).getDigest();
+            final byte[] consumerDigest = client.awaitConsumerResult(READ_WAIT_MS).getDigest();
+
+            reflector.awaitReflectorResult(READ_WAIT_MS).getDigest();
+
+            Assert.assertEquals(1, crusher.getClientAddresses().size());
+            InetSocketAddress clientAddress = crusher.getClientAddresses().iterator().next();
+
+            Assert.assertEquals(1, reactor.getSelectors().get(1).getLoad());
+
+            RateMeters innerPacketMeters = crusher.getInnerPacketMeters();
+            Assert.assertEquals(COUNT, innerPacketMeters.getReadMeter().getTotalCount());
+            Assert.assertEquals(COUNT, innerPacketMeters.getSentMeter().getTotalCount());
+
+            RateMeters outerPacketMeters = crusher.getClientPacketMeters(clientAddress);
+            Assert.assertEquals(COUNT, outerPacketMeters.getReadMeter().getTotalCount());
+            Assert.assertEquals(COUNT, outerPacketMeters.getSentMeter().getTotalCount());
+
+            Assert.assertArrayEquals(producerDigest, consumerDigest);
+        } finally {
+            NioUtils.close(client);
+            NioUtils.close(reflector);
+        }
+    }
+}
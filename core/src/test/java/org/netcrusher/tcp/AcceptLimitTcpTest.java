@@ -0,0 +1,159 @@
+package org.netcrusher.tcp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.throttle.rate.PacketRateThrottler;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+public class AcceptLimitTcpTest {
+
+    private static final int PORT_CRUSHER = 10106;
+
+    private static final int PORT_SERVER = 10107;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int BACKLOG = 64;
+
+    private static final long WAIT_MS = 5_000;
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    private ServerSocketChannel server;
+
+    private List<SocketChannel> clients;
+
+    @Before
+    public void setUp() throws Exception {
+        // connections are completed by the kernel and stay in the backlog, nobody needs to accept them
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(HOSTNAME, PORT_SERVER), BACKLOG);
+
+        reactor = new NioReactor();
+
+        clients = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (SocketChannel client : clients) {
+            NioUtils.close(client);
+        }
+
+        if (crusher != null) {
+            crusher.close();
+            Assert.assertFalse(crusher.isOpen());
+        }
+
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testBacklog() throws Exception {
+        crusher = builder()
+            .withMaxConnections(2)
+            .buildAndOpen();
+
+        for (int i = 0; i < 4; i++) {
+            connect();
+        }
+
+        // extra clients wait in the backlog
+        await(2, crusher::getClientTotalCount);
+        Thread.sleep(200);
+        Assert.assertEquals(2, crusher.getClientTotalCount());
+
+        // a released pair lets the next client in
+        Assert.assertTrue(crusher.closeClient((InetSocketAddress) clients.get(0).getLocalAddress()));
+        await(3, crusher::getClientTotalCount);
+        Thread.sleep(200);
+        Assert.assertEquals(3, crusher.getClientTotalCount());
+        Assert.assertEquals(2, crusher.getClientAddresses().size());
+    }
+
+    @Test
+    public void testReject() throws Exception {
+        crusher = builder()
+            .withMaxConnections(1)
+            .withAcceptOverflow(TcpAcceptOverflow.REJECT)
+            .buildAndOpen();
+
+        connect();
+        await(1, crusher::getClientTotalCount);
+
+        // the client over the limit is reset at once
+        SocketChannel rejected = connect();
+        try {
+            Assert.assertEquals(-1, rejected.read(ByteBuffer.allocate(1)));
+        } catch (IOException e) {
+            // reset by the crusher
+        }
+
+        Assert.assertEquals(1, crusher.getClientTotalCount());
+    }
+
+    @Test
+    public void testThrottling() throws Exception {
+        final int clientCount = 10;
+
+        crusher = builder()
+            .withAcceptThrottlerFactory((addr) -> new PacketRateThrottler(5, 1, TimeUnit.SECONDS))
+            .buildAndOpen();
+
+        for (int i = 0; i < clientCount; i++) {
+            connect();
+        }
+
+        // clients over the rate wait in the backlog
+        Thread.sleep(300);
+        int count = crusher.getClientTotalCount();
+        Assert.assertTrue("Count is " + count, count > 0 && count < clientCount);
+
+        await(clientCount, crusher::getClientTotalCount);
+    }
+
+    private TcpCrusherBuilder builder() {
+        return TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .withBacklog(BACKLOG);
+    }
+
+    private SocketChannel connect() throws IOException {
+        SocketChannel client = SocketChannel.open(new InetSocketAddress(HOSTNAME, PORT_CRUSHER));
+        clients.add(client);
+        return client;
+    }
+
+    private static void await(int expected, IntSupplier counter) throws Exception {
+        final long deadlineMs = System.currentTimeMillis() + WAIT_MS;
+        while (counter.getAsInt() != expected && System.currentTimeMillis() < deadlineMs) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals(expected, counter.getAsInt());
+    }
+}
@@ -0,0 +1,157 @@
+package org.netcrusher.tcp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioLoopBalancing;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioReactorBuilder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AsyncCloseTcpTest {
+
+    private static final InetSocketAddress CRUSHER_ADDRESS = new InetSocketAddress("127.0.0.1", 10284);
+
+    private static final InetSocketAddress REFLECTOR_ADDRESS = new InetSocketAddress("127.0.0.1", 10285);
+
+    private static final int CLIENT_COUNT = 32;
+
+    private static final int LOOP_COUNT = 3;
+
+    private static final long WAIT_MS = 5_000;
+
+    private final AtomicInteger deletedCount = new AtomicInteger();
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    private ServerSocketChannel reflector;
+
+    private List<SocketChannel> clients;
+
+    @Before
+    public void setUp() throws Exception {
+        // connections are completed by the backlog so nobody has to accept them
+        reflector = ServerSocketChannel.open();
+        reflector.bind(REFLECTOR_ADDRESS, CLIENT_COUNT * 2);
+
+        // pairs are spread over several loops so batch closing has to go to each of them
+        reactor = NioReactorBuilder.builder()
+            .withLoopCount(LOOP_COUNT)
+            .withLoopBalancing(NioLoopBalancing.ROUND_ROBIN)
+            .build();
+
+        crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(CRUSHER_ADDRESS)
+            .withConnectAddress(REFLECTOR_ADDRESS)
+            .withDeletionListener((addr, byteMeters) -> deletedCount.incrementAndGet())
+            .buildAndOpen();
+
+        clients = new ArrayList<>(CLIENT_COUNT);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (clients != null) {
+            clients.forEach(NioUtils::close);
+        }
+
+        if (crusher != null) {
+            crusher.close();
+        }
+
+        if (reactor != null) {
+            reactor.close();
+        }
+
+        if (reflector != null) {
+            reflector.close();
+        }
+    }
+
+    @Test
+    public void test() throws Exception {
+        List<InetSocketAddress> addresses = connectClients();
+
+        List<InetSocketAddress> asyncAddresses = addresses.subList(0, CLIENT_COUNT / 2);
+        List<InetSocketAddress> batchAddresses = addresses.subList(CLIENT_COUNT / 2, CLIENT_COUNT);
+
+        Assert.assertNotNull(crusher.getClientByteMetersAsync(asyncAddresses.get(0))
+            .get(WAIT_MS, TimeUnit.MILLISECONDS));
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(asyncAddresses.size());
+        for (InetSocketAddress address : asyncAddresses) {
+            futures.add(crusher.closeClientAsync(address));
+        }
+
+        Assert.assertEquals(batchAddresses.size(), crusher.closeClients(batchAddresses));
+        Assert.assertEquals(0, crusher.closeClients(batchAddresses));
+
+        for (CompletableFuture<Boolean> future : futures) {
+            Assert.assertTrue(future.get(WAIT_MS, TimeUnit.MILLISECONDS));
+        }
+
+        Assert.assertFalse(crusher.closeClientAsync(asyncAddresses.get(0))
+            .get(WAIT_MS, TimeUnit.MILLISECONDS));
+        Assert.assertNull(crusher.getClientByteMetersAsync(asyncAddresses.get(0))
+            .get(WAIT_MS, TimeUnit.MILLISECONDS));
+
+        Assert.assertTrue(crusher.getClientAddresses().isEmpty());
+    }
+
+    @Test
+    public void testCloseAllPairs() throws Exception {
+        connectClients();
+
+        // each loop closes its pairs at once and the call returns when all pairs are forgotten
+        crusher.closeAllPairs();
+        Assert.assertTrue(crusher.getClientAddresses().isEmpty());
+
+        for (SocketChannel client : clients) {
+            try {
+                Assert.assertEquals(-1, client.read(ByteBuffer.allocate(1)));
+            } catch (IOException e) {
+                // reset by the crusher
+            }
+        }
+
+        long deadlineMs = System.currentTimeMillis() + WAIT_MS;
+        while (deletedCount.get() < CLIENT_COUNT && System.currentTimeMillis() < deadlineMs) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(CLIENT_COUNT, deletedCount.get());
+
+        // the crusher keeps accepting
+        connectClients();
+    }
+
+    private List<InetSocketAddress> connectClients() throws Exception {
+        for (int i = 0; i < CLIENT_COUNT; i++) {
+            clients.add(SocketChannel.open(CRUSHER_ADDRESS));
+        }
+
+        long deadlineMs = System.currentTimeMillis() + WAIT_MS;
+        while (crusher.getClientAddresses().size() < CLIENT_COUNT && System.currentTimeMillis() < deadlineMs) {
+            Thread.sleep(10);
+        }
+
+        List<InetSocketAddress> addresses = new ArrayList<>(crusher.getClientAddresses());
+        Assert.assertEquals(CLIENT_COUNT, addresses.size());
+
+        return addresses;
+    }
+}
@@ -0,0 +1,153 @@
+package org.netcrusher.tcp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioReactor;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.function.BooleanSupplier;
+
+public class BackendHealthTcpTest {
+
+    private static final int PORT_CRUSHER = 10104;
+
+    private static final int PORT_SERVER = 10105;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final long WAIT_MS = 5_000;
+
+    private static final InetSocketAddress SERVER_ADDRESS = new InetSocketAddress(HOSTNAME, PORT_SERVER);
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    private ServerSocketChannel server;
+
+    @Before
+    public void setUp() throws Exception {
+        reactor = new NioReactor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (crusher != null) {
+            crusher.close();
+            Assert.assertFalse(crusher.isOpen());
+        }
+
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testReject() throws Exception {
+        crusher = openCrusher(false);
+
+        // nobody listens to the target so the first client fails and the target is considered down
+        assertClosed(connect());
+        await(() -> crusher.isBackendDown(SERVER_ADDRESS));
+
+        // next clients are rejected at once
+        for (int i = 0; i < 3; i++) {
+            assertClosed(connect());
+        }
+        Assert.assertTrue(crusher.isBackendDown(SERVER_ADDRESS));
+        Assert.assertEquals(0, crusher.getClientTotalCount());
+
+        // the probe finds the target is back
+        openServer();
+        await(() -> !crusher.isBackendDown(SERVER_ADDRESS));
+
+        try (SocketChannel client = connect()) {
+            assertPaired(client);
+        }
+    }
+
+    @Test
+    public void testParking() throws Exception {
+        crusher = openCrusher(true);
+
+        assertClosed(connect());
+        await(() -> crusher.isBackendDown(SERVER_ADDRESS));
+
+        // the client waits for the target instead of being rejected
+        try (SocketChannel client = connect()) {
+            Thread.sleep(100);
+            Assert.assertEquals(0, crusher.getClientTotalCount());
+
+            openServer();
+            assertPaired(client);
+        }
+    }
+
+    private TcpCrusher openCrusher(boolean parking) {
+        return TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(SERVER_ADDRESS)
+            .withBackendFailureThreshold(1)
+            .withBackendBackoffMs(100, 200)
+            .withBackendDownParking(parking)
+            .buildAndOpen();
+    }
+
+    private void openServer() throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(SERVER_ADDRESS);
+    }
+
+    private SocketChannel connect() throws IOException {
+        return SocketChannel.open(new InetSocketAddress(HOSTNAME, PORT_CRUSHER));
+    }
+
+    private void assertPaired(SocketChannel client) throws Exception {
+        client.write(ByteBuffer.wrap(new byte[] { 1, 2, 3 }));
+
+        // the probe connection comes first and is closed at once
+        ByteBuffer bb = ByteBuffer.allocate(3);
+        while (bb.position() == 0) {
+            try (SocketChannel serverClient = server.accept()) {
+                while (bb.hasRemaining() && serverClient.read(bb) >= 0) {
+                    // read all
+                }
+            }
+        }
+
+        Assert.assertFalse(bb.hasRemaining());
+        Assert.assertEquals(1, crusher.getClientTotalCount());
+    }
+
+    private static void assertClosed(SocketChannel client) throws Exception {
+        try {
+            Assert.assertEquals(-1, client.read(ByteBuffer.allocate(1)));
+        } catch (IOException e) {
+            // reset by the crusher
+        } finally {
+            NioUtils.close(client);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws Exception {
+        final long deadlineMs = System.currentTimeMillis() + WAIT_MS;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadlineMs) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertTrue(condition.getAsBoolean());
+    }
+}
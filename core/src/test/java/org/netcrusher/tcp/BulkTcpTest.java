@@ -4,6 +4,7 @@ import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.netcrusher.core.buffer.BufferPool;
 import org.netcrusher.core.filter.TransformFilter;
 import org.netcrusher.core.meter.RateMeters;
 import org.netcrusher.core.reactor.NioReactor;
@@ -31,6 +32,11 @@ public class BulkTcpTest {
 
     private static final long READ_WAIT_MS = 30_000;
 
+    private static final long POOL_WAIT_MS = 5_000;
+
+    // the pool keeps one slab of spare buffers
+    private static final long POOL_SPARE_BYTES = 1024 * 1024;
+
     private NioReactor reactor;
 
     private TcpCrusher crusher;
@@ -52,6 +58,7 @@ public class BulkTcpTest {
             .withOutgoingTransformFilterFactory((addr) -> TransformFilter.NOOP)
             .withIncomingThrottlerFactory((addr) -> Throttler.NOOP)
             .withOutgoingThrottlerFactory((addr) -> Throttler.NOOP)
+            .withBufferLeakDetection(true)
             .withCreationListener((addr) -> LOGGER.info("Client is created <{}>", addr))
             .withDeletionListener((addr, byteMeters) -> LOGGER.info("Client is deleted <{}>", addr))
             .buildAndOpen();
@@ -62,6 +69,7 @@ public class BulkTcpTest {
         if (crusher != null) {
             crusher.close();
             Assert.assertFalse(crusher.isOpen());
+            Assert.assertEquals(0, crusher.getBufferPool().checkLeaks());
         }
 
         if (reactor != null) {
@@ -105,6 +113,27 @@ public class BulkTcpTest {
 
                 Assert.assertArrayEquals(producer1Digest, consumer2Digest);
                 Assert.assertArrayEquals(producer2Digest, consumer1Digest);
+
+                // the idle pair returns all buffers after the trim period and the pool frees unused slabs
+                BufferPool bufferPool = crusher.getBufferPool();
+                long deadlineMs = System.currentTimeMillis() + POOL_WAIT_MS;
+                while ((bufferPool.getAcquiredBytes() > 0 || bufferPool.getAllocatedBytes() > POOL_SPARE_BYTES)
+                    && System.currentTimeMillis() < deadlineMs)
+                {
+                    Thread.sleep(10);
+                }
+                Assert.assertEquals(0, bufferPool.getAcquiredBytes());
+                Assert.assertTrue(bufferPool.getAcquiredPeakBytes() > 0);
+                Assert.assertTrue(bufferPool.getAllocatedBytes() <= POOL_SPARE_BYTES);
+
+                // queues have been used and shrunk back when idle
+                TcpClientQueueStats queueStats = crusher.getClientQueueStats(clientAddress);
+                for (TcpQueueStats stats : new TcpQueueStats[] { queueStats.getIncoming(), queueStats.getOutgoing() }) {
+                    Assert.assertEquals(0, stats.getBufferCount());
+                    Assert.assertEquals(2, stats.getCapacity());
+                    Assert.assertTrue(stats.getHighWaterBufferCount() > 0);
+                    Assert.assertTrue(stats.getHighWaterBufferCount() <= stats.getBufferLimit());
+                }
             }
         }
     }
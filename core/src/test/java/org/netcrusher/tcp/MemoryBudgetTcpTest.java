@@ -0,0 +1,147 @@
+package org.netcrusher.tcp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.buffer.MemoryBudget;
+import org.netcrusher.core.meter.RateMeters;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioReactorBuilder;
+import org.netcrusher.tcp.bulk.TcpBulkClient;
+import org.netcrusher.tcp.bulk.TcpBulkServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class MemoryBudgetTcpTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MemoryBudgetTcpTest.class);
+
+    private static final int PORT_CRUSHER = 10089;
+
+    private static final int PORT_SERVER = 10090;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int CLIENT_COUNT = 4;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    // less than every queue needs so channels have to wait for each other
+    private static final long MEMORY_BUDGET = 6 * BUFFER_SIZE;
+
+    private static final long COUNT = 4 * 1024 * 1024;
+
+    private static final long POOL_WAIT_MS = 5_000;
+
+    private static final long SEND_WAIT_MS = 60_000;
+
+    private static final long READ_WAIT_MS = 30_000;
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    private TcpBulkServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new TcpBulkServer(new InetSocketAddress(HOSTNAME, PORT_SERVER), COUNT);
+        server.open();
+
+        reactor = NioReactorBuilder.builder()
+            .withMemoryBudget(MEMORY_BUDGET)
+            .build();
+
+        crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .withBufferSize(BUFFER_SIZE)
+            .withBufferTrimIdleNs(TimeUnit.MILLISECONDS.toNanos(10))
+            .withCreationListener((addr) -> LOGGER.info("Client is created <{}>", addr))
+            .withDeletionListener((addr, byteMeters) -> LOGGER.info("Client is deleted <{}>", addr))
+            .buildAndOpen();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (crusher != null) {
+            crusher.close();
+            Assert.assertFalse(crusher.isOpen());
+        }
+
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void test() throws Exception {
+        final InetSocketAddress crusherAddress = new InetSocketAddress(HOSTNAME, PORT_CRUSHER);
+
+        List<TcpBulkClient> clients = new ArrayList<>(CLIENT_COUNT);
+        try {
+            for (int i = 0; i < CLIENT_COUNT; i++) {
+                clients.add(TcpBulkClient.forAddress("EXT" + i, crusherAddress, COUNT));
+            }
+
+            List<byte[]> producerDigests = new ArrayList<>(CLIENT_COUNT);
+            for (TcpBulkClient client : clients) {
+                producerDigests.add(client.awaitProducerResult(SEND_WAIT_MS).getDigest());
+            }
+
+            Assert.assertEquals(CLIENT_COUNT, server.getClients().size());
+            Assert.assertEquals(CLIENT_COUNT, crusher.getClientAddresses().size());
+
+            List<byte[]> serverProducerDigests = new ArrayList<>(CLIENT_COUNT);
+            for (TcpBulkClient serverClient : server.getClients()) {
+                serverProducerDigests.add(serverClient.awaitProducerResult(SEND_WAIT_MS).getDigest());
+
+                byte[] digest = serverClient.awaitConsumerResult(READ_WAIT_MS).getDigest();
+                Assert.assertTrue(producerDigests.stream().anyMatch((d) -> Arrays.equals(d, digest)));
+            }
+
+            for (TcpBulkClient client : clients) {
+                byte[] digest = client.awaitConsumerResult(READ_WAIT_MS).getDigest();
+                Assert.assertTrue(serverProducerDigests.stream().anyMatch((d) -> Arrays.equals(d, digest)));
+            }
+
+            for (InetSocketAddress clientAddress : crusher.getClientAddresses()) {
+                RateMeters clientMeters = crusher.getClientByteMeters(clientAddress);
+                Assert.assertEquals(COUNT, clientMeters.getReadMeter().getTotalCount());
+                Assert.assertEquals(COUNT, clientMeters.getSentMeter().getTotalCount());
+            }
+
+            MemoryBudget budget = reactor.getMemoryBudget();
+            Assert.assertTrue(budget.getPeakBytes() <= MEMORY_BUDGET);
+
+            // idle queues return all memory
+            long deadlineMs = System.currentTimeMillis() + POOL_WAIT_MS;
+            while (budget.getUsedBytes() > 0 && System.currentTimeMillis() < deadlineMs) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(0, budget.getUsedBytes());
+            Assert.assertEquals(0, budget.getStalledCount());
+        } finally {
+            for (TcpBulkClient client : clients) {
+                client.close();
+            }
+        }
+
+        for (TcpBulkClient serverClient : server.getClients()) {
+            serverClient.close();
+        }
+    }
+}
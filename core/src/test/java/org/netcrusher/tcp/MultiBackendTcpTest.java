@@ -0,0 +1,144 @@
+package org.netcrusher.tcp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.reactor.NioReactor;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+public class MultiBackendTcpTest {
+
+    private static final int PORT_CRUSHER = 10101;
+
+    private static final int PORT_SERVER1 = 10102;
+
+    private static final int PORT_SERVER2 = 10103;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int CLIENT_COUNT = 4;
+
+    private static final int BYTE_COUNT = 100;
+
+    private static final long WAIT_MS = 5_000;
+
+    private static final InetSocketAddress SERVER1 = new InetSocketAddress(HOSTNAME, PORT_SERVER1);
+
+    private static final InetSocketAddress SERVER2 = new InetSocketAddress(HOSTNAME, PORT_SERVER2);
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    private ServerSocketChannel server1;
+
+    private ServerSocketChannel server2;
+
+    @Before
+    public void setUp() throws Exception {
+        // connections are completed by the kernel and stay in the backlog, nobody needs to accept them
+        server1 = ServerSocketChannel.open();
+        server1.bind(SERVER1);
+
+        server2 = ServerSocketChannel.open();
+        server2.bind(SERVER2);
+
+        reactor = new NioReactor();
+
+        crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddresses(Arrays.asList(SERVER1, SERVER2))
+            .withBackendBalancing(TcpBackendBalancing.ROUND_ROBIN)
+            .buildAndOpen();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (crusher != null) {
+            crusher.close();
+            Assert.assertFalse(crusher.isOpen());
+        }
+
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+
+        if (server1 != null) {
+            server1.close();
+        }
+
+        if (server2 != null) {
+            server2.close();
+        }
+    }
+
+    @Test
+    public void test() throws Exception {
+        Assert.assertEquals(Arrays.asList(SERVER1, SERVER2), crusher.getConnectAddresses());
+        Assert.assertEquals(SERVER1, crusher.getConnectAddress());
+
+        final InetSocketAddress crusherAddress = new InetSocketAddress(HOSTNAME, PORT_CRUSHER);
+
+        List<SocketChannel> clients = new ArrayList<>(CLIENT_COUNT);
+        try {
+            for (int i = 0; i < CLIENT_COUNT; i++) {
+                SocketChannel client = SocketChannel.open(crusherAddress);
+                client.write(ByteBuffer.allocate(BYTE_COUNT));
+                clients.add(client);
+            }
+
+            await(CLIENT_COUNT, () -> crusher.getClientAddresses().size());
+
+            // clients are spread evenly
+            Assert.assertEquals(CLIENT_COUNT / 2, crusher.getBackendActiveCount(SERVER1));
+            Assert.assertEquals(CLIENT_COUNT / 2, crusher.getBackendActiveCount(SERVER2));
+            Assert.assertEquals(-1, crusher.getBackendActiveCount(crusherAddress));
+
+            await(CLIENT_COUNT / 2 * BYTE_COUNT,
+                () -> crusher.getBackendByteMeters(SERVER1).getSentMeter().getTotalCount());
+            await(CLIENT_COUNT / 2 * BYTE_COUNT,
+                () -> crusher.getBackendByteMeters(SERVER2).getSentMeter().getTotalCount());
+            Assert.assertEquals(0, crusher.getBackendByteMeters(SERVER1).getReadMeter().getTotalCount());
+        } finally {
+            for (SocketChannel client : clients) {
+                client.close();
+            }
+        }
+
+        // pairs are closed when both sides are closed
+        closeServerClients(server1);
+        closeServerClients(server2);
+
+        await(0, () -> crusher.getBackendActiveCount(SERVER1));
+        await(0, () -> crusher.getBackendActiveCount(SERVER2));
+    }
+
+    private static void closeServerClients(ServerSocketChannel server) throws Exception {
+        server.configureBlocking(false);
+
+        SocketChannel serverClient;
+        while ((serverClient = server.accept()) != null) {
+            serverClient.close();
+        }
+    }
+
+    private static void await(long expected, LongSupplier counter) throws Exception {
+        final long deadlineMs = System.currentTimeMillis() + WAIT_MS;
+        while (counter.getAsLong() != expected && System.currentTimeMillis() < deadlineMs) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals(expected, counter.getAsLong());
+    }
+}
@@ -0,0 +1,184 @@
+package org.netcrusher.tcp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioReactor;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+public class OutboundPoolTcpTest {
+
+    private static final int PORT_CRUSHER = 10185;
+
+    private static final int PORT_SERVER = 10186;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int POOL_SIZE = 2;
+
+    private static final long WAIT_MS = 5_000;
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    private ServerSocketChannel server;
+
+    private List<SocketChannel> serverClients;
+
+    @Before
+    public void setUp() throws Exception {
+        server = ServerSocketChannel.open();
+        server.configureBlocking(false);
+        server.bind(new InetSocketAddress(HOSTNAME, PORT_SERVER));
+
+        serverClients = new ArrayList<>();
+
+        reactor = new NioReactor();
+
+        crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .withOutboundPoolSize(POOL_SIZE)
+            .buildAndOpen();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (crusher != null) {
+            crusher.close();
+            Assert.assertFalse(crusher.isOpen());
+        }
+
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+
+        for (SocketChannel serverClient : serverClients) {
+            NioUtils.close(serverClient);
+        }
+
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void test() throws Exception {
+        // the pool connects to the target before any client comes
+        SocketChannel pooled1 = acceptServerClient();
+        SocketChannel pooled2 = acceptServerClient();
+        await(POOL_SIZE, crusher::getOutboundPoolIdleCount);
+
+        try (SocketChannel client = SocketChannel.open(new InetSocketAddress(HOSTNAME, PORT_CRUSHER))) {
+            client.write(ByteBuffer.wrap(new byte[] { 1, 2, 3 }));
+
+            // the client is paired with one of pooled connections
+            SocketChannel paired = null;
+            ByteBuffer bb = ByteBuffer.allocate(3);
+            final long deadlineMs = System.currentTimeMillis() + WAIT_MS;
+            while (paired == null && System.currentTimeMillis() < deadlineMs) {
+                if (pooled1.read(bb) > 0) {
+                    paired = pooled1;
+                } else if (pooled2.read(bb) > 0) {
+                    paired = pooled2;
+                } else {
+                    Thread.sleep(10);
+                }
+            }
+
+            Assert.assertNotNull(paired);
+            Assert.assertEquals(1, crusher.getClientTotalCount());
+
+            // the pool is refilled in background
+            acceptServerClient();
+            await(POOL_SIZE, crusher::getOutboundPoolIdleCount);
+
+            // the target closes an idle connection so the pool replaces it
+            SocketChannel unpaired = (paired == pooled1) ? pooled2 : pooled1;
+            unpaired.close();
+
+            acceptServerClient();
+            await(POOL_SIZE, crusher::getOutboundPoolIdleCount);
+
+            Assert.assertEquals(1, crusher.getClientAddresses().size());
+        }
+    }
+
+    @Test
+    public void testGreeting() throws Exception {
+        SocketChannel pooled1 = acceptServerClient();
+        SocketChannel pooled2 = acceptServerClient();
+        await(POOL_SIZE, crusher::getOutboundPoolIdleCount);
+
+        // the target speaks first so idle connections become readable
+        pooled1.write(ByteBuffer.wrap(new byte[] { 1, 1 }));
+        pooled2.write(ByteBuffer.wrap(new byte[] { 2, 2 }));
+
+        Thread.sleep(200);
+        Assert.assertEquals(POOL_SIZE, crusher.getOutboundPoolIdleCount());
+
+        try (SocketChannel client = SocketChannel.open(new InetSocketAddress(HOSTNAME, PORT_CRUSHER))) {
+            // the client gets the greeting received by the pooled connection
+            ByteBuffer greeting = ByteBuffer.allocate(2);
+            while (greeting.hasRemaining()) {
+                Assert.assertTrue(client.read(greeting) >= 0);
+            }
+
+            final byte id = greeting.get(0);
+            Assert.assertEquals(id, greeting.get(1));
+            Assert.assertTrue(id == 1 || id == 2);
+
+            // the rest of the conversation goes the usual way
+            SocketChannel paired = (id == 1) ? pooled1 : pooled2;
+            paired.write(ByteBuffer.wrap(new byte[] { 3 }));
+
+            ByteBuffer bb = ByteBuffer.allocate(1);
+            while (bb.hasRemaining()) {
+                Assert.assertTrue(client.read(bb) >= 0);
+            }
+            Assert.assertEquals(3, bb.get(0));
+
+            // the greeting is counted with bytes the client has read
+            final InetSocketAddress clientAddress = (InetSocketAddress) client.getLocalAddress();
+            Assert.assertEquals(3, crusher.getClientByteMeters(clientAddress).getReadMeter().getTotalCount());
+        }
+    }
+
+    private SocketChannel acceptServerClient() throws Exception {
+        final long deadlineMs = System.currentTimeMillis() + WAIT_MS;
+        while (System.currentTimeMillis() < deadlineMs) {
+            SocketChannel serverClient = server.accept();
+            if (serverClient != null) {
+                serverClient.configureBlocking(false);
+                serverClients.add(serverClient);
+                return serverClient;
+            }
+
+            Thread.sleep(10);
+        }
+
+        throw new IOException("No connection from the crusher");
+    }
+
+    private static void await(int expected, IntSupplier counter) throws Exception {
+        final long deadlineMs = System.currentTimeMillis() + WAIT_MS;
+        while (counter.getAsInt() != expected && System.currentTimeMillis() < deadlineMs) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals(expected, counter.getAsInt());
+    }
+}
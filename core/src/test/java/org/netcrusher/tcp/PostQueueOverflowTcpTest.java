@@ -0,0 +1,198 @@
+package org.netcrusher.tcp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.buffer.MemoryBudget;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioReactorBuilder;
+import org.netcrusher.core.reactor.NioSelector;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+public class PostQueueOverflowTcpTest {
+
+    private static final int PORT_CRUSHER = 10112;
+
+    private static final int PORT_SERVER = 10113;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final InetSocketAddress SERVER_ADDRESS = new InetSocketAddress(HOSTNAME, PORT_SERVER);
+
+    private static final int BACKLOG = 16;
+
+    private static final int POST_QUEUE_CAPACITY = 16;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final long MEMORY_BUDGET = 64 * BUFFER_SIZE;
+
+    private static final int DATA_SIZE = 4 * BUFFER_SIZE;
+
+    private static final long WAIT_MS = 5_000;
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    private ServerSocketChannel server;
+
+    private List<SocketChannel> clients;
+
+    private List<CountDownLatch> blocks;
+
+    @Before
+    public void setUp() throws Exception {
+        // connections are completed by the kernel and stay in the backlog, nobody needs to accept them
+        server = ServerSocketChannel.open();
+        server.bind(SERVER_ADDRESS, BACKLOG);
+
+        // pairs live on the worker loop, the acceptor lives on the boss loop
+        reactor = NioReactorBuilder.builder()
+            .withLoopCount(1)
+            .withBossLoop(true)
+            .withPostQueueCapacity(POST_QUEUE_CAPACITY)
+            .withMemoryBudget(MEMORY_BUDGET)
+            .build();
+
+        crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(SERVER_ADDRESS)
+            .withBacklog(BACKLOG)
+            .withMaxConnections(1)
+            .withBufferSize(BUFFER_SIZE)
+            .withBufferTrimIdleNs(0)
+            .buildAndOpen();
+
+        clients = new ArrayList<>();
+        blocks = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        blocks.forEach(CountDownLatch::countDown);
+
+        for (SocketChannel client : clients) {
+            NioUtils.close(client);
+        }
+
+        if (crusher != null) {
+            crusher.close();
+            Assert.assertFalse(crusher.isOpen());
+        }
+
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void test() throws Exception {
+        final NioSelector worker = reactor.getWorkerSelectors().get(0);
+        final NioSelector boss = reactor.getBossSelector();
+        final MemoryBudget budget = reactor.getMemoryBudget();
+
+        final SocketChannel client1 = connect();
+        await(1, crusher::getClientTotalCount);
+
+        // the second client is over the limit so accepting is paused
+        connect();
+        Thread.sleep(200);
+        Assert.assertEquals(1, crusher.getClientTotalCount());
+
+        // the channel of the first client stops reading as there is no memory
+        final long taken = MEMORY_BUDGET - budget.getUsedBytes();
+        Assert.assertTrue(budget.tryAcquire(taken));
+
+        writeFully(client1, DATA_SIZE);
+        await(1, budget::getStalledCount);
+
+        // both loops are busy and their post queues are full
+        final CountDownLatch workerBlock = block(worker);
+        final CountDownLatch bossBlock = block(boss);
+
+        // memory is released by this thread, so reading is resumed through the full queue of the worker loop
+        budget.release(taken);
+        Assert.assertEquals(0, budget.getStalledCount());
+
+        workerBlock.countDown();
+
+        final InetSocketAddress clientAddress1 = (InetSocketAddress) client1.getLocalAddress();
+        await(DATA_SIZE, () -> crusher.getClientByteMeters(clientAddress1).getSentMeter().getTotalCount());
+
+        // the pair is closed on the worker loop, so accepting is resumed through the full queue of the boss loop
+        Assert.assertTrue(crusher.closeClient(clientAddress1));
+        await(0, () -> crusher.getBackendActiveCount(SERVER_ADDRESS));
+
+        bossBlock.countDown();
+
+        await(2, crusher::getClientTotalCount);
+
+        Assert.assertTrue(worker.getStats().getPostQueueOverflows() > 0);
+        Assert.assertTrue(boss.getStats().getPostQueueOverflows() > 0);
+    }
+
+    private CountDownLatch block(NioSelector selector) throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        blocks.add(release);
+
+        selector.post(() -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Assert.assertTrue(blocked.await(WAIT_MS, TimeUnit.MILLISECONDS));
+
+        int posted = 0;
+        while (selector.tryPost(() -> { })) {
+            posted++;
+        }
+        Assert.assertEquals(POST_QUEUE_CAPACITY, posted);
+
+        return release;
+    }
+
+    private SocketChannel connect() throws IOException {
+        SocketChannel client = SocketChannel.open(new InetSocketAddress(HOSTNAME, PORT_CRUSHER));
+        clients.add(client);
+        return client;
+    }
+
+    private static void writeFully(SocketChannel client, int size) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(size);
+        while (bb.hasRemaining()) {
+            client.write(bb);
+        }
+    }
+
+    private static void await(long expected, LongSupplier counter) throws Exception {
+        final long deadlineMs = System.currentTimeMillis() + WAIT_MS;
+        while (counter.getAsLong() != expected && System.currentTimeMillis() < deadlineMs) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals(expected, counter.getAsLong());
+    }
+}
@@ -0,0 +1,161 @@
+package org.netcrusher.tcp;
+
+import org.netcrusher.core.reactor.NioLoopBalancing;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioReactorBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection storm: each invocation opens a bunch of connections at once and waits until the crusher
+ * has created a pair for every one of them. Connections are completed by the kernel and wait in the backlog,
+ * so the time is spent by the crusher accepting and setting up pairs. The backend doesn't accept connections
+ * while the invocation is measured. With sharding every loop accepts connections from its own listening socket.
+ * Run main() with the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TcpAcceptBenchmark {
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int PORT_CRUSHER = 10097;
+
+    private static final int PORT_SERVER = 10098;
+
+    private static final int LOOP_COUNT = 4;
+
+    private static final int CONNECTION_COUNT = 256;
+
+    private static final int BACKLOG = 1024;
+
+    private static final long WAIT_MS = 30_000;
+
+    @Param({ "1", "64" })
+    private int acceptBudget;
+
+    @Param({ "false", "true" })
+    private boolean acceptorSharding;
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    private ServerSocketChannel serverChannel;
+
+    private InetSocketAddress crusherAddress;
+
+    private List<SocketChannel> clients;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(HOSTNAME, PORT_SERVER), BACKLOG);
+        serverChannel.configureBlocking(false);
+
+        reactor = NioReactorBuilder.builder()
+            .withLoopCount(LOOP_COUNT)
+            .withLoopBalancing(NioLoopBalancing.ROUND_ROBIN)
+            .build();
+
+        crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .withBacklog(BACKLOG)
+            .withAcceptBudget(acceptBudget)
+            .withAcceptorSharding(acceptorSharding)
+            .buildAndOpen();
+
+        crusherAddress = new InetSocketAddress(HOSTNAME, PORT_CRUSHER);
+        clients = new ArrayList<>(CONNECTION_COUNT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        crusher.close();
+        reactor.close();
+        serverChannel.close();
+    }
+
+    @TearDown(Level.Invocation)
+    public void disconnect() throws Exception {
+        for (SocketChannel client : clients) {
+            client.close();
+        }
+        clients.clear();
+
+        SocketChannel server;
+        while ((server = serverChannel.accept()) != null) {
+            server.close();
+        }
+
+        await(0, () -> crusher.getClientAddresses().size());
+    }
+
+    @Benchmark
+    public int storm() throws Exception {
+        final int expected = crusher.getClientTotalCount() + CONNECTION_COUNT;
+
+        for (int i = 0; i < CONNECTION_COUNT; i++) {
+            clients.add(SocketChannel.open(crusherAddress));
+        }
+
+        return await(expected, () -> crusher.getClientTotalCount());
+    }
+
+    private static int await(int expected, Counter counter) throws Exception {
+        final long deadlineMs = System.currentTimeMillis() + WAIT_MS;
+
+        int count;
+        while ((count = counter.get()) != expected) {
+            if (System.currentTimeMillis() > deadlineMs) {
+                throw new IOException("Expected " + expected + " connections but there are " + count);
+            }
+
+            Thread.yield();
+        }
+
+        return count;
+    }
+
+    @FunctionalInterface
+    private interface Counter {
+
+        int get();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include(TcpAcceptBenchmark.class.getSimpleName())
+            .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,161 @@
+package org.netcrusher.tcp;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.netcrusher.core.meter.RateMeterImpl;
+import org.netcrusher.core.meter.RateMeters;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TcpBackendsTest {
+
+    private static final List<InetSocketAddress> ADDRESSES = Arrays.asList(
+        new InetSocketAddress("127.0.0.1", 10001),
+        new InetSocketAddress("127.0.0.1", 10002),
+        new InetSocketAddress("127.0.0.1", 10003)
+    );
+
+    private static final InetSocketAddress CLIENT = new InetSocketAddress("127.0.0.1", 20000);
+
+    private static final TcpBackendHealthOptions HEALTH = new TcpBackendHealthOptions();
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        TcpBackends backends = new TcpBackends(ADDRESSES, TcpBackendBalancing.ROUND_ROBIN, HEALTH);
+
+        for (int i = 0; i < 6; i++) {
+            TcpBackend backend = backends.acquire(CLIENT);
+            Assert.assertEquals(ADDRESSES.get(i % 3), backend.getAddress());
+        }
+
+        for (TcpBackend backend : backends.getBackends()) {
+            Assert.assertEquals(2, backend.getActiveCount());
+        }
+    }
+
+    @Test
+    public void testLeastActive() throws Exception {
+        TcpBackends backends = new TcpBackends(ADDRESSES, TcpBackendBalancing.LEAST_ACTIVE, HEALTH);
+
+        TcpBackend backend1 = backends.acquire(CLIENT);
+        TcpBackend backend2 = backends.acquire(CLIENT);
+        TcpBackend backend3 = backends.acquire(CLIENT);
+        Assert.assertNotSame(backend1, backend2);
+        Assert.assertNotSame(backend2, backend3);
+        Assert.assertNotSame(backend1, backend3);
+
+        // the released target has the least number of connections
+        backend2.release();
+        Assert.assertSame(backend2, backends.acquire(CLIENT));
+    }
+
+    @Test
+    public void testConsistentHash() throws Exception {
+        TcpBackends backends = new TcpBackends(ADDRESSES, TcpBackendBalancing.CONSISTENT_HASH, HEALTH);
+
+        // connections from the same host stick to the same target whatever the port is
+        TcpBackend sticky = backends.acquire(CLIENT);
+        for (int port = 20001; port < 20100; port++) {
+            Assert.assertSame(sticky, backends.acquire(new InetSocketAddress("127.0.0.1", port)));
+        }
+
+        // different hosts are spread between all targets
+        Map<InetSocketAddress, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            InetSocketAddress client = new InetSocketAddress("10.0." + (i / 256) + "." + (i % 256), 20000);
+            counts.merge(backends.acquire(client).getAddress(), 1, Integer::sum);
+        }
+
+        Assert.assertEquals(3, counts.size());
+        for (int count : counts.values()) {
+            Assert.assertTrue("Count is " + count, count > 600 && count < 1400);
+        }
+
+        // a new target takes clients from others but doesn't move clients between them
+        List<InetSocketAddress> extended = Arrays.asList(
+            ADDRESSES.get(0), ADDRESSES.get(1), ADDRESSES.get(2), new InetSocketAddress("127.0.0.1", 10004));
+        TcpBackends extendedBackends = new TcpBackends(extended, TcpBackendBalancing.CONSISTENT_HASH, HEALTH);
+
+        for (int i = 0; i < 1000; i++) {
+            InetSocketAddress client = new InetSocketAddress("10.1." + (i / 256) + "." + (i % 256), 20000);
+            InetSocketAddress before = backends.acquire(client).getAddress();
+            InetSocketAddress after = extendedBackends.acquire(client).getAddress();
+            Assert.assertTrue(before.equals(after) || after.equals(extended.get(3)));
+        }
+    }
+
+    @Test
+    public void testDownBackends() throws Exception {
+        TcpBackendHealthOptions health = new TcpBackendHealthOptions();
+        health.setFailureThreshold(2);
+        health.setMinBackoffMs(100);
+        health.setMaxBackoffMs(300);
+
+        for (TcpBackendBalancing balancing : TcpBackendBalancing.values()) {
+            TcpBackends backends = new TcpBackends(ADDRESSES, balancing, health);
+            TcpBackend backend2 = backends.getBackend(ADDRESSES.get(1));
+
+            // a success between failures resets the counter
+            Assert.assertEquals(0, backend2.registerFailure());
+            backend2.registerSuccess();
+            Assert.assertEquals(0, backend2.registerFailure());
+            Assert.assertEquals(100_000_000L, backend2.registerFailure());
+            Assert.assertTrue(backend2.isDown());
+
+            // the backoff is doubled up to the maximum
+            Assert.assertEquals(200_000_000L, backend2.registerProbeFailure());
+            Assert.assertEquals(300_000_000L, backend2.registerProbeFailure());
+
+            for (int i = 0; i < 100; i++) {
+                InetSocketAddress client = new InetSocketAddress("10.0.0." + i, 20000);
+                Assert.assertNotSame(balancing.name(), backend2, backends.acquire(client));
+            }
+
+            // a target which is down is still chosen if all of them are down
+            for (TcpBackend backend : backends.getBackends()) {
+                backend.registerFailure();
+                backend.registerFailure();
+            }
+            Assert.assertTrue(backends.acquire(CLIENT).isDown());
+
+            backend2.registerSuccess();
+            Assert.assertFalse(backend2.isDown());
+            Assert.assertSame(balancing.name(), backend2, backends.acquire(CLIENT));
+        }
+    }
+    @Test
+    public void testByteMeters() throws Exception {
+        TcpBackends backends = new TcpBackends(ADDRESSES, TcpBackendBalancing.ROUND_ROBIN, HEALTH);
+        TcpBackend backend = backends.getBackend(ADDRESSES.get(0));
+
+        RateMeterImpl read1 = new RateMeterImpl();
+        RateMeterImpl sent1 = new RateMeterImpl();
+        RateMeterImpl read2 = new RateMeterImpl();
+        RateMeterImpl sent2 = new RateMeterImpl();
+        RateMeters pair1 = new RateMeters(read1, sent1);
+        RateMeters pair2 = new RateMeters(read2, sent2);
+
+        backend.attachMeters(pair1);
+        backend.attachMeters(pair2);
+
+        read1.update(100);
+        sent1.update(10);
+        read2.update(200);
+        sent2.update(20);
+
+        RateMeters meters = backend.getByteMeters();
+        Assert.assertEquals(300, meters.getReadMeter().getTotalCount());
+        Assert.assertEquals(30, meters.getSentMeter().getTotalCount());
+
+        // bytes of a closed pair stay counted
+        backend.detachMeters(pair1);
+        read2.update(50);
+
+        Assert.assertEquals(350, meters.getReadMeter().getTotalCount());
+        Assert.assertEquals(30, meters.getSentMeter().getTotalCount());
+    }
+}
@@ -0,0 +1,130 @@
+package org.netcrusher.tcp;
+
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.throttle.DelayThrottler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a delayed TCP connection when a chunk arrives while the previous one is still delayed.
+ * Each invocation sends the first chunk, sends the second one after a half of the delay and waits until both
+ * are received. With arrival timestamps the invocation takes 1.5 delays, while stamping the second chunk
+ * at the moment the first one is released makes it 2 delays. Run main() with the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TcpDelayBenchmark {
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int PORT_CRUSHER = 10091;
+
+    private static final int PORT_SERVER = 10092;
+
+    private static final int CHUNK_SIZE = 64;
+
+    @Param({ "10", "50" })
+    private long delayMs;
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    private ServerSocketChannel serverChannel;
+
+    private SocketChannel client;
+
+    private SocketChannel server;
+
+    private ByteBuffer sent;
+
+    private ByteBuffer received;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(HOSTNAME, PORT_SERVER));
+
+        reactor = new NioReactor();
+
+        crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .withOutgoingThrottlerFactory((addr) -> new DelayThrottler(delayMs, TimeUnit.MILLISECONDS))
+            .buildAndOpen();
+
+        client = SocketChannel.open(new InetSocketAddress(HOSTNAME, PORT_CRUSHER));
+        client.socket().setTcpNoDelay(true);
+
+        server = serverChannel.accept();
+
+        sent = ByteBuffer.allocate(CHUNK_SIZE);
+        received = ByteBuffer.allocate(CHUNK_SIZE * 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.close();
+        server.close();
+        crusher.close();
+        reactor.close();
+        serverChannel.close();
+    }
+
+    @Benchmark
+    public int pipelined() throws Exception {
+        send();
+        Thread.sleep(delayMs / 2);
+        send();
+
+        received.clear();
+        while (received.hasRemaining()) {
+            if (server.read(received) < 0) {
+                throw new IOException("Connection is closed");
+            }
+        }
+
+        return received.position();
+    }
+
+    private void send() throws IOException {
+        sent.clear();
+        while (sent.hasRemaining()) {
+            client.write(sent);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include(TcpDelayBenchmark.class.getSimpleName())
+            .build();
+
+        new Runner(options).run();
+    }
+}
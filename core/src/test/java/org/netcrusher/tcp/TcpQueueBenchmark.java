@@ -0,0 +1,109 @@
+package org.netcrusher.tcp;
+
+import org.netcrusher.core.buffer.BufferOptions;
+import org.netcrusher.core.buffer.BufferPool;
+import org.netcrusher.core.throttle.Throttler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request/release cycle of the queue as made by a pair of channels: a scattering read fills some buffers,
+ * a gathering write drains them. Sockets are simulated by moving buffer positions, so only the queue
+ * itself is measured. The full path with a filter and a throttler is compared to the pass-through one.
+ * Run main() with the test classpath, add "-prof gc" to see allocations per cycle.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TcpQueueBenchmark {
+
+    private static final int BUFFER_COUNT = 64;
+
+    private static final int BUFFER_SIZE = 32 * 1024;
+
+    @Param({ "1000", "100000", "1000000" })
+    private int chunk;
+
+    @Param({ "true", "false" })
+    private boolean passThrough;
+
+    private TcpQueue queue;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        BufferOptions bufferOptions = new BufferOptions();
+        bufferOptions.setCount(BUFFER_COUNT);
+        bufferOptions.setSize(BUFFER_SIZE);
+        bufferOptions.setDirect(true);
+        bufferOptions.setTrimIdleNs(TimeUnit.SECONDS.toNanos(1));
+
+        if (passThrough) {
+            queue = new TcpQueue(new BufferPool(bufferOptions), null, null);
+        } else {
+            // filter and throttler which do nothing but make the queue take the full path
+            queue = new TcpQueue(new BufferPool(bufferOptions), (bb) -> { }, (bb) -> Throttler.NO_DELAY_NS);
+        }
+    }
+
+    @Benchmark
+    public long readWrite() {
+        final long read;
+        TcpQueueBuffers writable = queue.requestWritableBuffers();
+        try {
+            read = move(writable, chunk);
+        } finally {
+            queue.releaseWritableBuffers();
+        }
+
+        final long sent;
+        TcpQueueBuffers readable = queue.requestReadableBuffers();
+        try {
+            sent = move(readable, read);
+        } finally {
+            queue.releaseReadableBuffers();
+        }
+
+        return sent;
+    }
+
+    private static long move(TcpQueueBuffers buffers, long limit) {
+        final ByteBuffer[] array = buffers.getArray();
+
+        long moved = 0;
+        for (int i = buffers.getOffset(), end = i + buffers.getCount(); i < end && moved < limit; i++) {
+            ByteBuffer bb = array[i];
+            int size = (int) Math.min(bb.remaining(), limit - moved);
+            bb.position(bb.position() + size);
+            moved += size;
+        }
+
+        return moved;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include(TcpQueueBenchmark.class.getSimpleName())
+            .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,383 @@
+package org.netcrusher.tcp;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.netcrusher.core.buffer.BufferOptions;
+import org.netcrusher.core.buffer.BufferPool;
+import org.netcrusher.core.filter.TransformFilter;
+import org.netcrusher.core.throttle.PacingThrottler;
+import org.netcrusher.core.throttle.DelayThrottler;
+import org.netcrusher.core.throttle.Throttler;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+public class TcpQueueTest {
+
+    private static final int BUFFER_COUNT = 4;
+
+    private static final int BUFFER_SIZE = 16;
+
+    private static final long DELAY_MS = 200;
+
+    private static final InetSocketAddress CLIENT_ADDRESS = new InetSocketAddress("127.0.0.1", 10000);
+
+    @Test
+    public void testOrderAcrossWrap() throws Exception {
+        TcpQueue queue = new TcpQueue(createPool(), null, null);
+        Random random = new Random(1);
+
+        byte produced = 0;
+        byte consumed = 0;
+
+        for (int cycle = 0; cycle < 10_000; cycle++) {
+            if (queue.hasWritable()) {
+                TcpQueueBuffers writable = queue.requestWritableBuffers();
+                try {
+                    int size = random.nextInt(BUFFER_SIZE * 3);
+                    for (int i = writable.getOffset(), end = i + writable.getCount(); i < end; i++) {
+                        ByteBuffer bb = writable.getArray()[i];
+                        while (bb.hasRemaining() && size-- > 0) {
+                            bb.put(produced++);
+                        }
+                    }
+                } finally {
+                    queue.releaseWritableBuffers();
+                }
+            }
+
+            TcpQueueBuffers readable = queue.requestReadableBuffers();
+            try {
+                int size = random.nextInt(BUFFER_SIZE * 3);
+                for (int i = readable.getOffset(), end = i + readable.getCount(); i < end; i++) {
+                    ByteBuffer bb = readable.getArray()[i];
+                    while (bb.hasRemaining() && size-- > 0) {
+                        Assert.assertEquals(consumed++, bb.get());
+                    }
+                }
+            } finally {
+                queue.releaseReadableBuffers();
+            }
+
+            Assert.assertTrue(queue.getStats().getBufferCount() <= BUFFER_COUNT);
+        }
+
+        queue.reset();
+        Assert.assertEquals(0, queue.getStats().getBufferCount());
+        Assert.assertFalse(queue.hasReadable());
+    }
+
+    @Test
+    public void testFilterDropsBuffer() throws Exception {
+        // drops every buffer which starts with zero
+        TransformFilter filter = (bb) -> {
+            if (bb.hasRemaining() && bb.get(bb.position()) == 0) {
+                bb.position(bb.limit());
+            }
+        };
+
+        TcpQueue queue = new TcpQueue(createPool(), filter, null);
+
+        TcpQueueBuffers writable = queue.requestWritableBuffers();
+        Assert.assertEquals(2, writable.getCount());
+        try {
+            fill(writable.getArray()[writable.getOffset()], (byte) 0, BUFFER_SIZE);
+            fill(writable.getArray()[writable.getOffset() + 1], (byte) 1, BUFFER_SIZE / 2);
+        } finally {
+            queue.releaseWritableBuffers();
+        }
+
+        TcpQueueBuffers readable = queue.requestReadableBuffers();
+        Assert.assertEquals(1, readable.getCount());
+
+        ByteBuffer bb = readable.getArray()[readable.getOffset()];
+        Assert.assertEquals(BUFFER_SIZE / 2, bb.remaining());
+        while (bb.hasRemaining()) {
+            Assert.assertEquals(1, bb.get());
+        }
+        queue.releaseReadableBuffers();
+
+        Assert.assertFalse(queue.hasReadable());
+        Assert.assertTrue(queue.hasWritable());
+    }
+
+    @Test
+    public void testArrivalTimestamps() throws Exception {
+        TcpQueue queue = new TcpQueue(createPool(), null, new DelayThrottler(DELAY_MS, TimeUnit.MILLISECONDS));
+
+        write(queue, (byte) 1, BUFFER_SIZE / 4);
+
+        TcpQueueBuffers readable = queue.requestReadableBuffers();
+        Assert.assertEquals(0, readable.getCount());
+        Assert.assertTrue(readable.getDelayNs() > 0);
+        queue.releaseReadableBuffers();
+
+        // the second chunk arrives while the first one is still delayed
+        Thread.sleep(DELAY_MS / 2);
+        write(queue, (byte) 2, BUFFER_SIZE / 4);
+
+        Thread.sleep(DELAY_MS * 3 / 4);
+
+        readable = queue.requestReadableBuffers();
+        Assert.assertTrue(readable.getCount() >= 1);
+        ByteBuffer bb = readable.getArray()[readable.getOffset()];
+        Assert.assertEquals(BUFFER_SIZE / 4, bb.remaining());
+        while (bb.hasRemaining()) {
+            Assert.assertEquals(1, bb.get());
+        }
+        queue.releaseReadableBuffers();
+
+        // the second chunk is delayed from its own arrival, not from the moment the first one is released
+        readable = queue.requestReadableBuffers();
+        Assert.assertTrue(readable.getDelayNs() < TimeUnit.MILLISECONDS.toNanos(DELAY_MS / 2));
+        queue.releaseReadableBuffers();
+    }
+
+    @Test
+    public void testChunksShareBuffer() throws Exception {
+        TcpQueue queue = new TcpQueue(createPool(), null, new DelayThrottler(DELAY_MS, TimeUnit.MILLISECONDS));
+
+        // small reads while the data is delayed are stamped inside the same buffer
+        for (int i = 0; i < 4; i++) {
+            write(queue, (byte) i, BUFFER_SIZE / 4);
+
+            TcpQueueBuffers readable = queue.requestReadableBuffers();
+            Assert.assertEquals(0, readable.getCount());
+            queue.releaseReadableBuffers();
+        }
+        // the queue hasn't grown over the initial couple of buffers
+        Assert.assertEquals(2, queue.getStats().getBufferCount());
+
+        Thread.sleep(DELAY_MS * 3 / 2);
+
+        TcpQueueBuffers readable = queue.requestReadableBuffers();
+        Assert.assertEquals(1, readable.getCount());
+        ByteBuffer bb = readable.getArray()[readable.getOffset()];
+        Assert.assertEquals(BUFFER_SIZE, bb.remaining());
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            Assert.assertEquals(i / (BUFFER_SIZE / 4), bb.get());
+        }
+        queue.releaseReadableBuffers();
+
+        Assert.assertFalse(queue.hasReadable());
+    }
+
+    @Test
+    public void testFilterInsideChunks() throws Exception {
+        // drops leading zeros of every chunk
+        TransformFilter filter = (bb) -> {
+            while (bb.hasRemaining() && bb.get(bb.position()) == 0) {
+                bb.get();
+            }
+        };
+
+        TcpQueue queue = new TcpQueue(createPool(), filter, new DelayThrottler(0, TimeUnit.MILLISECONDS));
+
+        TcpQueueBuffers writable = queue.requestWritableBuffers();
+        try {
+            ByteBuffer bb = writable.getArray()[writable.getOffset()];
+            fill(bb, (byte) 0, 2);
+            fill(bb, (byte) 1, 2);
+        } finally {
+            queue.releaseWritableBuffers();
+        }
+
+        writable = queue.requestWritableBuffers();
+        try {
+            ByteBuffer bb = writable.getArray()[writable.getOffset()];
+            Assert.assertEquals(2, bb.position());
+            fill(bb, (byte) 0, 1);
+            fill(bb, (byte) 2, 3);
+        } finally {
+            queue.releaseWritableBuffers();
+        }
+
+        TcpQueueBuffers readable = queue.requestReadableBuffers();
+        Assert.assertEquals(1, readable.getCount());
+        ByteBuffer bb = readable.getArray()[readable.getOffset()];
+        Assert.assertEquals(5, bb.remaining());
+        for (byte expected : new byte[] { 1, 1, 2, 2, 2 }) {
+            Assert.assertEquals(expected, bb.get());
+        }
+        queue.releaseReadableBuffers();
+
+        Assert.assertFalse(queue.hasReadable());
+    }
+
+    @Test
+    public void testPassThrough() throws Exception {
+        TcpQueue queue = TcpQueue.allocateQueue(CLIENT_ADDRESS, createPool(),
+            (addr) -> TransformFilter.NOOP, (addr) -> Throttler.NOOP);
+        Assert.assertTrue(queue.isPassThrough());
+
+        TcpQueueBuffers writable = queue.requestWritableBuffers();
+        try {
+            fill(writable.getArray()[writable.getOffset()], (byte) 1, BUFFER_SIZE);
+            fill(writable.getArray()[writable.getOffset() + 1], (byte) 2, BUFFER_SIZE / 2);
+        } finally {
+            queue.releaseWritableBuffers();
+        }
+
+        // the peer takes only a part of the data
+        TcpQueueBuffers readable = queue.requestReadableBuffers();
+        Assert.assertEquals(2, readable.getCount());
+        ByteBuffer first = readable.getArray()[readable.getOffset()];
+        for (int i = 0; i < BUFFER_SIZE / 4; i++) {
+            Assert.assertEquals(1, first.get());
+        }
+        queue.releaseReadableBuffers();
+
+        Assert.assertEquals(BUFFER_SIZE - BUFFER_SIZE / 4 + BUFFER_SIZE / 2, queue.calculateReadableBytes());
+
+        // the rest goes as is and in order
+        readable = queue.requestReadableBuffers();
+        Assert.assertEquals(2, readable.getCount());
+        Assert.assertSame(first, readable.getArray()[readable.getOffset()]);
+        while (first.hasRemaining()) {
+            Assert.assertEquals(1, first.get());
+        }
+        ByteBuffer second = readable.getArray()[readable.getOffset() + 1];
+        Assert.assertEquals(BUFFER_SIZE / 2, second.remaining());
+        while (second.hasRemaining()) {
+            Assert.assertEquals(2, second.get());
+        }
+        queue.releaseReadableBuffers();
+
+        Assert.assertFalse(queue.hasReadable());
+    }
+
+    @Test
+    public void testNoPassThrough() throws Exception {
+        Assert.assertFalse(TcpQueue.allocateQueue(CLIENT_ADDRESS, createPool(),
+            (addr) -> (bb) -> { }, null).isPassThrough());
+
+        Assert.assertFalse(TcpQueue.allocateQueue(CLIENT_ADDRESS, createPool(),
+            null, (addr) -> new DelayThrottler(DELAY_MS, TimeUnit.MILLISECONDS)).isPassThrough());
+
+        // a pacing throttler is not kept as a plain throttler but still needs the pacing path
+        PacingThrottler pacer = new PacingThrottler() {
+            @Override
+            public long calculateAllowedBytes() {
+                return BUFFER_SIZE / 2;
+            }
+
+            @Override
+            public long calculateSliceDelayNs() {
+                return DELAY_MS;
+            }
+
+            @Override
+            public void registerSentBytes(long bytes) {
+                // nothing to count
+            }
+
+            @Override
+            public long calculateDelayNs(ByteBuffer bb) {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        TcpQueue queue = TcpQueue.allocateQueue(CLIENT_ADDRESS, createPool(), null, (addr) -> pacer);
+        Assert.assertFalse(queue.isPassThrough());
+
+        write(queue, (byte) 1, BUFFER_SIZE);
+
+        TcpQueueBuffers readable = queue.requestReadableBuffers();
+        Assert.assertEquals(1, readable.getCount());
+        Assert.assertEquals(BUFFER_SIZE / 2, readable.getArray()[readable.getOffset()].remaining());
+        queue.releaseReadableBuffers();
+    }
+
+    @Test
+    public void testPacing() throws Exception {
+        final long[] allowed = { BUFFER_SIZE + BUFFER_SIZE / 4 };
+        final long[] sent = { 0 };
+
+        PacingThrottler pacer = new PacingThrottler() {
+            @Override
+            public long calculateAllowedBytes() {
+                return allowed[0];
+            }
+
+            @Override
+            public long calculateSliceDelayNs() {
+                return DELAY_MS;
+            }
+
+            @Override
+            public void registerSentBytes(long bytes) {
+                sent[0] += bytes;
+                allowed[0] -= bytes;
+            }
+
+            @Override
+            public long calculateDelayNs(ByteBuffer bb) {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        TcpQueue queue = new TcpQueue(createPool(), null, pacer);
+
+        TcpQueueBuffers writable = queue.requestWritableBuffers();
+        try {
+            fill(writable.getArray()[writable.getOffset()], (byte) 1, BUFFER_SIZE);
+            fill(writable.getArray()[writable.getOffset() + 1], (byte) 2, BUFFER_SIZE);
+        } finally {
+            queue.releaseWritableBuffers();
+        }
+
+        // the second buffer is clipped to the allowed size
+        TcpQueueBuffers readable = queue.requestReadableBuffers();
+        Assert.assertEquals(2, readable.getCount());
+        ByteBuffer second = readable.getArray()[readable.getOffset() + 1];
+        Assert.assertEquals(BUFFER_SIZE / 4, second.remaining());
+
+        readable.getArray()[readable.getOffset()].position(BUFFER_SIZE);
+        second.position(second.position() + BUFFER_SIZE / 8);
+        queue.releaseReadableBuffers();
+
+        // only really sent bytes are charged and the clipped buffer is restored
+        Assert.assertEquals(BUFFER_SIZE + BUFFER_SIZE / 8, sent[0]);
+        Assert.assertEquals(BUFFER_SIZE - BUFFER_SIZE / 8, second.remaining());
+
+        readable = queue.requestReadableBuffers();
+        Assert.assertEquals(1, readable.getCount());
+        Assert.assertEquals(BUFFER_SIZE / 8, second.remaining());
+        second.position(second.limit());
+        queue.releaseReadableBuffers();
+
+        // nothing is allowed so the channel has to wait for the next slice
+        readable = queue.requestReadableBuffers();
+        Assert.assertEquals(0, readable.getCount());
+        Assert.assertEquals(DELAY_MS, readable.getDelayNs());
+        queue.releaseReadableBuffers();
+        Assert.assertEquals(BUFFER_SIZE - BUFFER_SIZE / 4, second.remaining());
+    }
+
+    private static void write(TcpQueue queue, byte value, int size) {
+        TcpQueueBuffers writable = queue.requestWritableBuffers();
+        try {
+            fill(writable.getArray()[writable.getOffset()], value, size);
+        } finally {
+            queue.releaseWritableBuffers();
+        }
+    }
+
+    private static void fill(ByteBuffer bb, byte value, int size) {
+        for (int i = 0; i < size; i++) {
+            bb.put(value);
+        }
+    }
+
+    private static BufferPool createPool() {
+        BufferOptions bufferOptions = new BufferOptions();
+        bufferOptions.setCount(BUFFER_COUNT);
+        bufferOptions.setSize(BUFFER_SIZE);
+        bufferOptions.setDirect(false);
+        bufferOptions.setTrimIdleNs(1);
+
+        return new BufferPool(bufferOptions);
+    }
+}
@@ -0,0 +1,146 @@
+package org.netcrusher.tcp.loop;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.meter.RateMeters;
+import org.netcrusher.core.reactor.NioLoopBalancing;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioReactorBuilder;
+import org.netcrusher.core.reactor.NioSelector;
+import org.netcrusher.tcp.TcpCrusher;
+import org.netcrusher.tcp.TcpCrusherBuilder;
+import org.netcrusher.tcp.bulk.TcpBulkClient;
+import org.netcrusher.tcp.bulk.TcpBulkServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BossLoopTcpTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BossLoopTcpTest.class);
+
+    private static final int PORT_CRUSHER = 10087;
+
+    private static final int PORT_SERVER = 10088;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int LOOP_COUNT = 2;
+
+    private static final int CLIENT_COUNT = 4;
+
+    private static final long COUNT = 16 * 1024 * 1024;
+
+    private static final long SEND_WAIT_MS = 60_000;
+
+    private static final long READ_WAIT_MS = 30_000;
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    private TcpBulkServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new TcpBulkServer(new InetSocketAddress(HOSTNAME, PORT_SERVER), COUNT);
+        server.open();
+
+        reactor = NioReactorBuilder.builder()
+            .withLoopCount(LOOP_COUNT)
+            .withBossLoop(true)
+            .withLoopBalancing(NioLoopBalancing.ROUND_ROBIN)
+            .build();
+
+        crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .withCreationListener((addr) -> LOGGER.info("Client is created <{}>", addr))
+            .withDeletionListener((addr, byteMeters) -> LOGGER.info("Client is deleted <{}>", addr))
+            .buildAndOpen();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (crusher != null) {
+            crusher.close();
+            Assert.assertFalse(crusher.isOpen());
+        }
+
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void test() throws Exception {
+        Assert.assertEquals(LOOP_COUNT + 1, reactor.getLoopCount());
+        Assert.assertEquals(LOOP_COUNT, reactor.getWorkerSelectors().size());
+        Assert.assertFalse(reactor.getWorkerSelectors().contains(reactor.getBossSelector()));
+
+        // control operations stay on a worker loop
+        Assert.assertTrue(reactor.getWorkerSelectors().contains(reactor.getSelector()));
+
+        final InetSocketAddress crusherAddress = new InetSocketAddress(HOSTNAME, PORT_CRUSHER);
+
+        List<TcpBulkClient> clients = new ArrayList<>(CLIENT_COUNT);
+        try {
+            for (int i = 0; i < CLIENT_COUNT; i++) {
+                clients.add(TcpBulkClient.forAddress("EXT" + i, crusherAddress, COUNT));
+            }
+
+            List<byte[]> producerDigests = new ArrayList<>(CLIENT_COUNT);
+            for (TcpBulkClient client : clients) {
+                producerDigests.add(client.awaitProducerResult(SEND_WAIT_MS).getDigest());
+            }
+
+            Assert.assertEquals(CLIENT_COUNT, server.getClients().size());
+            Assert.assertEquals(CLIENT_COUNT, crusher.getClientAddresses().size());
+
+            // the boss loop has only the server socket, pairs are on the worker loops
+            Assert.assertEquals(1, reactor.getBossSelector().getLoad());
+            for (NioSelector selector : reactor.getWorkerSelectors()) {
+                Assert.assertEquals(2 * CLIENT_COUNT / LOOP_COUNT, selector.getLoad());
+            }
+
+            List<byte[]> serverProducerDigests = new ArrayList<>(CLIENT_COUNT);
+            for (TcpBulkClient serverClient : server.getClients()) {
+                serverProducerDigests.add(serverClient.awaitProducerResult(SEND_WAIT_MS).getDigest());
+
+                byte[] digest = serverClient.awaitConsumerResult(READ_WAIT_MS).getDigest();
+                Assert.assertTrue(producerDigests.stream().anyMatch((d) -> Arrays.equals(d, digest)));
+            }
+
+            for (TcpBulkClient client : clients) {
+                byte[] digest = client.awaitConsumerResult(READ_WAIT_MS).getDigest();
+                Assert.assertTrue(serverProducerDigests.stream().anyMatch((d) -> Arrays.equals(d, digest)));
+            }
+
+            for (InetSocketAddress clientAddress : crusher.getClientAddresses()) {
+                RateMeters clientMeters = crusher.getClientByteMeters(clientAddress);
+                Assert.assertEquals(COUNT, clientMeters.getReadMeter().getTotalCount());
+                Assert.assertEquals(COUNT, clientMeters.getSentMeter().getTotalCount());
+            }
+        } finally {
+            for (TcpBulkClient client : clients) {
+                client.close();
+            }
+        }
+
+        for (TcpBulkClient serverClient : server.getClients()) {
+            serverClient.close();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.netcrusher.tcp.loop;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.nio.NioUtils;
+import org.netcrusher.core.reactor.NioLoopBalancing;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioReactorBuilder;
+import org.netcrusher.tcp.TcpClientStats;
+import org.netcrusher.tcp.TcpCrusher;
+import org.netcrusher.tcp.TcpCrusherBuilder;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class ClientStatsTcpTest {
+
+    private static final int PORT_CRUSHER = 10108;
+
+    private static final int PORT_SERVER = 10109;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int LOOP_COUNT = 3;
+
+    private static final int CLIENT_COUNT = 6;
+
+    private static final int DATA_SIZE = 1000;
+
+    private static final long WAIT_MS = 5_000;
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    private ServerSocketChannel server;
+
+    private List<SocketChannel> channels;
+
+    @Before
+    public void setUp() throws Exception {
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(HOSTNAME, PORT_SERVER));
+
+        reactor = NioReactorBuilder.builder()
+            .withLoopCount(LOOP_COUNT)
+            .withLoopBalancing(NioLoopBalancing.ROUND_ROBIN)
+            .build();
+
+        crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .buildAndOpen();
+
+        channels = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (SocketChannel channel : channels) {
+            NioUtils.close(channel);
+        }
+
+        if (crusher != null) {
+            crusher.close();
+            Assert.assertFalse(crusher.isOpen());
+        }
+
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void test() throws Exception {
+        // pairs are spread between loops
+        for (int i = 0; i < CLIENT_COUNT; i++) {
+            SocketChannel client = SocketChannel.open(new InetSocketAddress(HOSTNAME, PORT_CRUSHER));
+            channels.add(client);
+            client.write(ByteBuffer.allocate(DATA_SIZE));
+
+            SocketChannel serverClient = server.accept();
+            channels.add(serverClient);
+
+            ByteBuffer bb = ByteBuffer.allocate(DATA_SIZE);
+            while (bb.hasRemaining()) {
+                serverClient.read(bb);
+            }
+        }
+
+        // pairs are registered by the primary loop after they have started
+        final long deadlineMs = System.currentTimeMillis() + WAIT_MS;
+        while (crusher.getClientAddresses().size() < CLIENT_COUNT && System.currentTimeMillis() < deadlineMs) {
+            Thread.sleep(10);
+        }
+
+        Map<InetSocketAddress, TcpClientStats> stats = crusher.getClientStats(true);
+        Assert.assertEquals(CLIENT_COUNT, stats.size());
+        Assert.assertEquals(crusher.getClientAddresses().size(), stats.size());
+
+        for (Map.Entry<InetSocketAddress, TcpClientStats> entry : stats.entrySet()) {
+            TcpClientStats clientStats = entry.getValue();
+
+            Assert.assertEquals(entry.getKey(), clientStats.getClientAddress());
+            Assert.assertEquals(new InetSocketAddress(HOSTNAME, PORT_SERVER), clientStats.getConnectAddress());
+            Assert.assertEquals(DATA_SIZE, clientStats.getSentBytes().getTotal().getCount());
+            Assert.assertEquals(DATA_SIZE, clientStats.getSentBytes().getPeriod().getCount());
+            Assert.assertEquals(0, clientStats.getReadBytes().getTotal().getCount());
+            Assert.assertNotNull(clientStats.getQueueStats().getIncoming());
+            Assert.assertNotNull(clientStats.getQueueStats().getOutgoing());
+        }
+
+        // periods are reset by the previous call
+        for (TcpClientStats clientStats : crusher.getClientStats(false).values()) {
+            Assert.assertEquals(DATA_SIZE, clientStats.getSentBytes().getTotal().getCount());
+            Assert.assertEquals(0, clientStats.getSentBytes().getPeriod().getCount());
+        }
+
+        try {
+            stats.clear();
+            Assert.fail("Snapshot must be immutable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        crusher.close();
+        Assert.assertTrue(crusher.getClientStats(false).isEmpty());
+    }
+}
@@ -0,0 +1,115 @@
+package org.netcrusher.tcp.loop;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.netcrusher.core.reactor.NioLoopBalancing;
+import org.netcrusher.core.reactor.NioReactor;
+import org.netcrusher.core.reactor.NioReactorBuilder;
+import org.netcrusher.core.reactor.NioSelector;
+import org.netcrusher.tcp.TcpCrusher;
+import org.netcrusher.tcp.TcpCrusherBuilder;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ShardedAcceptorTcpTest {
+
+    private static final int PORT_CRUSHER = 10099;
+
+    private static final int PORT_SERVER = 10100;
+
+    private static final String HOSTNAME = "127.0.0.1";
+
+    private static final int LOOP_COUNT = 4;
+
+    private static final int CLIENT_COUNT = 64;
+
+    private static final int BACKLOG = 1024;
+
+    private static final long WAIT_MS = 10_000;
+
+    private NioReactor reactor;
+
+    private TcpCrusher crusher;
+
+    private ServerSocketChannel server;
+
+    @Before
+    public void setUp() throws Exception {
+        // connections are completed by the kernel and stay in the backlog, nobody needs to accept them
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(HOSTNAME, PORT_SERVER), BACKLOG);
+
+        reactor = NioReactorBuilder.builder()
+            .withLoopCount(LOOP_COUNT)
+            .withBossLoop(true)
+            .withLoopBalancing(NioLoopBalancing.ROUND_ROBIN)
+            .build();
+
+        crusher = TcpCrusherBuilder.builder()
+            .withReactor(reactor)
+            .withBindAddress(HOSTNAME, PORT_CRUSHER)
+            .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .withBacklog(BACKLOG)
+            .withAcceptorSharding(true)
+            .buildAndOpen();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (crusher != null) {
+            crusher.close();
+            Assert.assertFalse(crusher.isOpen());
+        }
+
+        if (reactor != null) {
+            reactor.close();
+            Assert.assertFalse(reactor.isOpen());
+        }
+
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void test() throws Exception {
+        // SO_REUSEPORT is set through JDK internals on Java 8 which is done on Linux only
+        Assume.assumeTrue(System.getProperty("os.name").toLowerCase().startsWith("linux"));
+
+        Assert.assertEquals(LOOP_COUNT, crusher.getAcceptorShardCount());
+
+        final InetSocketAddress crusherAddress = new InetSocketAddress(HOSTNAME, PORT_CRUSHER);
+
+        List<SocketChannel> clients = new ArrayList<>(CLIENT_COUNT);
+        try {
+            for (int i = 0; i < CLIENT_COUNT; i++) {
+                clients.add(SocketChannel.open(crusherAddress));
+            }
+
+            final long deadlineMs = System.currentTimeMillis() + WAIT_MS;
+            while (crusher.getClientAddresses().size() < CLIENT_COUNT && System.currentTimeMillis() < deadlineMs) {
+                Thread.sleep(10);
+            }
+
+            Assert.assertEquals(CLIENT_COUNT, crusher.getClientAddresses().size());
+            Assert.assertEquals(CLIENT_COUNT, crusher.getClientTotalCount());
+
+            // the boss loop doesn't listen, each worker loop has its listening socket and accepted pairs
+            Assert.assertEquals(0, reactor.getBossSelector().getLoad());
+            for (NioSelector selector : reactor.getWorkerSelectors()) {
+                Assert.assertTrue(selector.getLoad() > 1);
+            }
+        } finally {
+            for (SocketChannel client : clients) {
+                client.close();
+            }
+        }
+    }
+}
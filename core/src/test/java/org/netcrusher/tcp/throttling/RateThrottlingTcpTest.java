@@ -6,6 +6,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.netcrusher.core.reactor.NioReactor;
 import org.netcrusher.core.throttle.rate.ByteRateThrottler;
+import org.netcrusher.tcp.TcpClientQueueStats;
 import org.netcrusher.tcp.TcpCrusher;
 import org.netcrusher.tcp.TcpCrusherBuilder;
 import org.netcrusher.tcp.bulk.TcpBulkClient;
@@ -39,6 +40,8 @@ public class RateThrottlingTcpTest {
 
     private static final double RATE_PRECISION = 0.05;
 
+    private static final int BUFFER_COUNT = 16;
+
     private NioReactor reactor;
 
     private TcpCrusher crusher;
@@ -56,6 +59,7 @@ public class RateThrottlingTcpTest {
             .withReactor(reactor)
             .withBindAddress(HOSTNAME, PORT_CRUSHER)
             .withConnectAddress(HOSTNAME, PORT_SERVER)
+            .withBufferCount(BUFFER_COUNT)
             .withIncomingThrottlerFactory((addr) ->
                 new ByteRateThrottler(INCOMING_BYTES_PER_SEC, 1, TimeUnit.SECONDS))
             .withOutgoingThrottlerFactory((addr) ->
@@ -93,6 +97,12 @@ public class RateThrottlingTcpTest {
             try (TcpBulkClient client2 = server.getClients().iterator().next()) {
                 final TcpBulkResult producer2Result = client2.awaitProducerResult(SEND_WAIT_MS);
 
+                // throttled peers are slower than producers so both queues have grown to the limit
+                InetSocketAddress clientAddress = crusher.getClientAddresses().iterator().next();
+                TcpClientQueueStats queueStats = crusher.getClientQueueStats(clientAddress);
+                Assert.assertEquals(BUFFER_COUNT, queueStats.getIncoming().getHighWaterBufferCount());
+                Assert.assertEquals(BUFFER_COUNT, queueStats.getOutgoing().getHighWaterBufferCount());
+
                 final TcpBulkResult consumer1Result = client1.awaitConsumerResult(READ_WAIT_MS);
                 final TcpBulkResult consumer2Result = client2.awaitConsumerResult(READ_WAIT_MS);
 